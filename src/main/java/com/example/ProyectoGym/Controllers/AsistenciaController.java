@@ -1,15 +1,44 @@
 package com.example.ProyectoGym.Controllers;
 
+import com.example.ProyectoGym.Dto.EventoTorniquete;
+import com.example.ProyectoGym.Dto.FilaAsistenciaMiembro;
+import com.example.ProyectoGym.Dto.PaginaHistorial;
 import com.example.ProyectoGym.Model.Administrador;
+import com.example.ProyectoGym.Services.ArchivoAsistenciasService;
+import com.example.ProyectoGym.Services.AsistenciaEnVivoService;
 import com.example.ProyectoGym.Services.AsistenciaService;
+import com.example.ProyectoGym.Services.DiarioAsistenciasService;
+import com.example.ProyectoGym.Services.EscrituraDiferidaService;
+import com.example.ProyectoGym.Services.EstadisticaMiembroService;
+import com.example.ProyectoGym.Services.KioscoService;
+import com.example.ProyectoGym.Services.OcupacionHorariaService;
+import com.example.ProyectoGym.Services.TokenQrService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Controlador para la gestion de asistencias al gimnasio desde el panel administrativo.
@@ -26,6 +55,30 @@ public class AsistenciaController {
     @Autowired
     private AsistenciaService asistenciaService;
 
+    @Autowired
+    private OcupacionHorariaService ocupacionHorariaService;
+
+    @Autowired
+    private AsistenciaEnVivoService asistenciaEnVivoService;
+
+    @Autowired
+    private ArchivoAsistenciasService archivoAsistenciasService;
+
+    @Autowired
+    private KioscoService kioscoService;
+
+    @Autowired
+    private TokenQrService tokenQrService;
+
+    @Autowired
+    private DiarioAsistenciasService diarioAsistenciasService;
+
+    @Autowired
+    private EscrituraDiferidaService escrituraDiferidaService;
+
+    @Autowired
+    private EstadisticaMiembroService estadisticaMiembroService;
+
     /**
      * Muestra la pagina principal de gestion de asistencias.
      * Incluye lista de miembros con su estado actual, historial del dia
@@ -42,7 +95,7 @@ public class AsistenciaController {
             return "redirect:/admin/login";
         }
 
-        List<Map<String, Object>> miembrosConEstado = asistenciaService.obtenerListaMiembrosConEstado();
+        List<FilaAsistenciaMiembro> miembrosConEstado = asistenciaService.obtenerListaMiembrosConEstado();
         List<Map<String, Object>> historialHoy = asistenciaService.obtenerHistorialHoy();
         long asistenciasHoy = asistenciaService.contarAsistenciasHoy();
         long miembrosEnGimnasio = asistenciaService.contarMiembrosEnGimnasio();
@@ -55,6 +108,23 @@ public class AsistenciaController {
         return "asistencias-admin";
     }
 
+    /**
+     * Abre el flujo de eventos en vivo (Server-Sent Events) de entradas y salidas.
+     * La pagina de asistencias lo usa para actualizar filas y contadores sin recargar.
+     *
+     * @param session Sesion HTTP para validar autenticacion
+     * @return Emisor SSE o 401 si no hay sesion de administrador activa
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> suscribirEnVivo(HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        return ResponseEntity.ok(asistenciaEnVivoService.suscribir());
+    }
+
     /**
      * Registra la entrada de un miembro al gimnasio mediante peticion AJAX.
      * Valida que exista sesion de administrador activa antes de procesar.
@@ -71,7 +141,77 @@ public class AsistenciaController {
             return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
         }
 
-        String resultado = asistenciaService.registrarEntrada(miembroId);
+        // Si la base de datos no responde a tiempo, se anota en el diario local y se aplicara al reconectar
+        LocalDateTime fechaHora = DiarioAsistenciasService.marcaDeTiempo();
+        String resultado = diarioAsistenciasService.registrarConRespaldo(
+                () -> escrituraDiferidaService.isHabilitada()
+                        ? esperar(asistenciaService.registrarEntradaDiferida(miembroId, fechaHora),
+                                escrituraDiferidaService.getEsperaMaximaMs())
+                        : asistenciaService.registrarEntrada(miembroId, fechaHora),
+                () -> diarioAsistenciasService.registrarEntrada(miembroId, fechaHora));
+
+        if (resultado.startsWith("SUCCESS")) {
+            return Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""));
+        } else {
+            return Map.of("status", "error", "message", resultado.replace("ERROR: ", ""));
+        }
+    }
+
+    /**
+     * Registra la entrada de un miembro desde el kiosco de recepcion con su DNI mediante peticion AJAX.
+     * Si la base de datos no responde a tiempo, la entrada de un DNI en cache se anota en el diario local.
+     *
+     * @param dni DNI ingresado por el miembro
+     * @param session Sesion HTTP para validar autenticacion del kiosco
+     * @return JSON con estado de la operacion y mensaje descriptivo
+     */
+    @PostMapping("/kiosco")
+    @ResponseBody
+    public Map<String, String> registrarEntradaKiosco(@RequestParam String dni, HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        LocalDateTime fechaHora = DiarioAsistenciasService.marcaDeTiempo();
+        String resultado = diarioAsistenciasService.registrarConRespaldo(
+                () -> kioscoService.registrarEntrada(dni, fechaHora),
+                () -> kioscoService.registrarEntradaSinConexion(dni, fechaHora));
+
+        if (resultado.startsWith("SUCCESS")) {
+            return Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""));
+        } else {
+            return Map.of("status", "error", "message", resultado.replace("ERROR: ", ""));
+        }
+    }
+
+    /**
+     * Registra la entrada de un miembro al escanear el codigo QR de su telefono mediante peticion AJAX.
+     * El token se verifica sin consultar la base de datos antes de registrar la entrada;
+     * si la base de datos no responde a tiempo, la entrada se anota en el diario local.
+     *
+     * @param token Token QR escaneado
+     * @param session Sesion HTTP para validar autenticacion del lector
+     * @return JSON con estado de la operacion y mensaje descriptivo
+     */
+    @PostMapping("/qr")
+    @ResponseBody
+    public Map<String, String> registrarEntradaQr(@RequestParam String token, HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        String verificacion = tokenQrService.verificarToken(token);
+        if (verificacion.startsWith("ERROR")) {
+            return Map.of("status", "error", "message", verificacion.replace("ERROR: ", ""));
+        }
+
+        Long miembroId = Long.valueOf(verificacion.replace("SUCCESS: ", ""));
+        LocalDateTime fechaHora = DiarioAsistenciasService.marcaDeTiempo();
+        String resultado = diarioAsistenciasService.registrarConRespaldo(
+                () -> asistenciaService.registrarEntrada(miembroId, fechaHora),
+                () -> diarioAsistenciasService.registrarEntrada(miembroId, fechaHora));
 
         if (resultado.startsWith("SUCCESS")) {
             return Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""));
@@ -96,7 +236,11 @@ public class AsistenciaController {
             return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
         }
 
-        String resultado = asistenciaService.registrarSalida(miembroId);
+        // Si la base de datos no responde a tiempo, se anota en el diario local y se aplicara al reconectar
+        LocalDateTime fechaHora = DiarioAsistenciasService.marcaDeTiempo();
+        String resultado = diarioAsistenciasService.registrarConRespaldo(
+                () -> asistenciaService.registrarSalida(miembroId, fechaHora),
+                () -> diarioAsistenciasService.registrarSalida(miembroId, fechaHora));
 
         if (resultado.startsWith("SUCCESS")) {
             return Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""));
@@ -105,6 +249,176 @@ public class AsistenciaController {
         }
     }
 
+    /**
+     * Registra un lote de entradas y salidas enviadas por los torniquetes.
+     * Los eventos se procesan en el orden recibido y cada uno obtiene su propio resultado.
+     * Si la base de datos no responde a tiempo, el lote se anota en el diario local.
+     *
+     * @param eventos Lista ordenada de eventos con ID de miembro, tipo y fecha/hora del dispositivo
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con el estado (success/error) y mensaje de cada evento, en el mismo orden
+     */
+    @PostMapping("/lote")
+    @ResponseBody
+    public List<Map<String, String>> registrarLote(@RequestBody List<EventoTorniquete> eventos, HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return List.of(Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión."));
+        }
+
+        // Los eventos sin hora del dispositivo reciben una sola, compartida por ambos registros
+        for (EventoTorniquete evento : eventos) {
+            if (evento.getFechaHora() == null) {
+                evento.setFechaHora(DiarioAsistenciasService.marcaDeTiempo());
+            }
+        }
+        List<String> resultados = diarioAsistenciasService.registrarConRespaldo(
+                () -> asistenciaService.registrarLote(eventos),
+                () -> diarioAsistenciasService.registrarLote(eventos));
+
+        return resultados.stream()
+                .map(resultado -> resultado.startsWith("SUCCESS")
+                        ? Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""))
+                        : Map.of("status", "error", "message", resultado.replace("ERROR: ", "")))
+                .toList();
+    }
+
+    /**
+     * Obtiene el mapa de calor de ocupacion por dia de la semana y hora mediante peticion AJAX.
+     * Se calcula unicamente desde el resumen horario, sin recorrer las asistencias.
+     *
+     * @param meses Cantidad de meses hacia atras a incluir (por defecto 12)
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con las celdas del mapa de calor o mensaje de error si la sesion expiro
+     */
+    @GetMapping("/ocupacion-horaria")
+    @ResponseBody
+    public Map<String, Object> obtenerMapaOcupacion(@RequestParam(defaultValue = "12") int meses,
+                                                    HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("error", "Sesión expirada");
+        }
+
+        return Map.of(
+                "meses", meses,
+                "celdas", ocupacionHorariaService.obtenerMapaCalor(meses)
+        );
+    }
+
+    /**
+     * Recalcula el resumen de ocupacion horaria de un rango de fechas desde el historial.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con estado de la operacion y cantidad de horas recalculadas
+     */
+    @PostMapping("/ocupacion-horaria/recalcular")
+    @ResponseBody
+    public Map<String, String> recalcularOcupacion(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                                   HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        int horas = ocupacionHorariaService.recalcular(desde, hasta);
+        return Map.of("status", "success", "message", "Horas recalculadas: " + horas);
+    }
+
+    /**
+     * Descarga en CSV las asistencias de un rango de fechas.
+     * La respuesta se escribe por partes mientras se leen las filas, sin cargar el rango en memoria.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @param session Sesion HTTP para validar autenticacion
+     * @return Archivo CSV en streaming o 401 si no hay sesion de administrador activa
+     */
+    @GetMapping("/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarAsistencias(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (hasta.isBefore(desde)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        StreamingResponseBody cuerpo = salida -> asistenciaService.exportarAsistenciasCsv(desde, hasta, salida);
+        return ResponseEntity.ok()
+                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"asistencias_" + desde + "_" + hasta + ".csv\"")
+                .body(cuerpo);
+    }
+
+    /**
+     * Lista los meses de asistencias archivados en disco mediante peticion AJAX.
+     *
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con los meses archivados y el tamano de cada archivo
+     */
+    @GetMapping("/archivo")
+    @ResponseBody
+    public Map<String, Object> obtenerMesesArchivados(HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("error", "Sesión expirada");
+        }
+
+        return Map.of("meses", archivoAsistenciasService.obtenerMesesArchivados());
+    }
+
+    /**
+     * Restaura a la tabla las asistencias de un mes archivado para una auditoria.
+     *
+     * @param mes Mes a restaurar en formato yyyy-MM
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con estado de la operacion y cantidad de asistencias restauradas
+     */
+    @PostMapping("/archivo/restaurar")
+    @ResponseBody
+    public Map<String, String> restaurarMesArchivado(@RequestParam @DateTimeFormat(pattern = "yyyy-MM") YearMonth mes,
+                                                     HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        String resultado = archivoAsistenciasService.restaurarMes(mes);
+
+        if (resultado.startsWith("SUCCESS")) {
+            return Map.of("status", "success", "message", resultado.replace("SUCCESS: ", ""));
+        } else {
+            return Map.of("status", "error", "message", resultado.replace("ERROR: ", ""));
+        }
+    }
+
+    /**
+     * Reconstruye las estadisticas de visitas de todos los miembros desde el historial,
+     * conservando las visitas de las asistencias ya archivadas.
+     *
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con estado de la operacion y cantidad de miembros recalculados
+     */
+    @PostMapping("/estadisticas/reconstruir")
+    @ResponseBody
+    public Map<String, String> reconstruirEstadisticas(HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        int miembros = estadisticaMiembroService.reconstruir();
+        return Map.of("status", "success", "message", "Estadísticas recalculadas para " + miembros + " miembros");
+    }
+
     /**
      * Verifica el estado actual de asistencia de un miembro mediante peticion AJAX.
      * Retorna si esta presente en el gimnasio y sus asistencias del mes.
@@ -131,22 +445,56 @@ public class AsistenciaController {
     }
 
     /**
-     * Muestra el historial completo de asistencias de un miembro especifico.
+     * Muestra el historial de asistencias de un miembro especifico, paginado por cursor.
+     * Las paginas posteriores a la primera solo contienen asistencias cerradas, por lo que
+     * el navegador puede conservarlas en cache.
      *
      * @param miembroId ID del miembro a consultar
+     * @param cursor Cursor de la pagina a mostrar (opcional, primera pagina si se omite)
+     * @param tamano Cantidad de asistencias por pagina
      * @param session Sesion HTTP para validar autenticacion
      * @param model Modelo para pasar datos a la vista
+     * @param response Respuesta HTTP para indicar la politica de cache
      * @return Vista con historial de asistencias o redireccion al login
      */
     @GetMapping("/historial/{miembroId}")
-    public String verHistorialMiembro(@PathVariable Long miembroId, HttpSession session, Model model) {
+    public String verHistorialMiembro(@PathVariable Long miembroId,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      @RequestParam(value = "tamano", defaultValue = "50") int tamano,
+                                      HttpSession session, Model model,
+                                      HttpServletResponse response) {
         Administrador admin = (Administrador) session.getAttribute("administrador");
         if (admin == null) {
             return "redirect:/admin/login";
         }
 
-        var asistencias = asistenciaService.obtenerAsistenciasPorMiembro(miembroId);
-        model.addAttribute("asistencias", asistencias);
+        PaginaHistorial pagina = asistenciaService.obtenerPaginaHistorial(miembroId, cursor, tamano);
+        if (!pagina.isPrimeraPagina()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL,
+                    CacheControl.maxAge(Duration.ofHours(1)).cachePrivate().getHeaderValue());
+        }
+
+        model.addAttribute("miembroId", miembroId);
+        model.addAttribute("asistencias", pagina.getAsistencias());
+        model.addAttribute("pagina", pagina);
         return "historial-asistencias";
     }
-}
\ No newline at end of file
+
+    // Espera el resultado de una escritura diferida y relanza la causa original si el lote fallo.
+    // Si el lote no se confirma a tiempo la entrada puede escribirse despues, por lo que no se reintenta.
+    private static String esperar(CompletableFuture<String> resultado, long esperaMaximaMs) {
+        try {
+            return resultado.get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return "ERROR: La entrada aún se está procesando. Verifique el estado del miembro antes de reintentar";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR: La entrada aún se está procesando. Verifique el estado del miembro antes de reintentar";
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -3,9 +3,9 @@ package com.example.ProyectoGym.Controllers;
 import com.example.ProyectoGym.Model.Administrador;
 import com.example.ProyectoGym.Model.ClaseGrupal;
 import com.example.ProyectoGym.Model.Instructor;
+import com.example.ProyectoGym.Services.ClaseOcupacionSnapshotService;
 import com.example.ProyectoGym.Services.ClaseService;
 import com.example.ProyectoGym.Services.InstructorService;
-import com.example.ProyectoGym.Repository.ReservaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -13,6 +13,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.servlet.http.HttpSession;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,11 +37,11 @@ public class ClaseController {
     private InstructorService instructorService;
 
     @Autowired
-    private ReservaRepository reservaRepository;
+    private ClaseOcupacionSnapshotService claseOcupacionSnapshotService;
 
     /**
      * Muestra la lista completa de clases grupales con informacion detallada.
-     * Incluye datos del instructor asignado y cantidad de miembros inscritos.
+     * Incluye datos del instructor asignado y miembros inscritos en la proxima sesion.
      *
      * @param session Sesion HTTP para validar autenticacion
      * @param model Modelo para pasar datos a la vista
@@ -53,8 +54,9 @@ public class ClaseController {
             return "redirect:/admin/login";
         }
 
-        List<ClaseGrupal> clases = claseService.obtenerTodasLasClases();
+        List<ClaseGrupal> clases = claseService.obtenerTodasLasClasesConInstructor();
         List<Instructor> instructores = instructorService.obtenerTodosLosInstructores();
+        Map<Long, Long> inscritos = claseOcupacionSnapshotService.obtenerInscritosProximaSesion();
 
         List<Map<String, Object>> clasesConInfo = clases.stream().map(clase -> {
             Map<String, Object> info = new HashMap<>();
@@ -71,7 +73,7 @@ public class ClaseController {
                     clase.getInstructor().getNombre() : "Sin asignar");
             info.put("instructorId", clase.getInstructor() != null ?
                     clase.getInstructor().getId() : null);
-            info.put("inscritos", reservaRepository.countReservasActivasByClase(clase));
+            info.put("inscritos", inscritos.getOrDefault(clase.getId(), 0L));
             return info;
         }).toList();
 
@@ -294,4 +296,38 @@ public class ClaseController {
             return Map.of("status", "error", "message", resultado.replace("ERROR: ", ""));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Obtiene los instructores libres en un horario mediante peticion AJAX,
+     * para ofrecer solo instructores sin clases superpuestas al crear o editar una clase.
+     *
+     * @param diaSemana Dias de la clase
+     * @param horaInicio Hora de inicio (HH:mm)
+     * @param duracion Duracion en minutos
+     * @param claseId ID de la clase que se esta editando (opcional)
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con los instructores libres
+     */
+    @GetMapping("/instructores-libres")
+    @ResponseBody
+    public Map<String, Object> instructoresLibres(@RequestParam String diaSemana,
+                                                  @RequestParam String horaInicio,
+                                                  @RequestParam Integer duracion,
+                                                  @RequestParam(required = false) Long claseId,
+                                                  HttpSession session) {
+        Administrador admin = (Administrador) session.getAttribute("administrador");
+        if (admin == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        List<Map<String, Object>> instructores = new ArrayList<>();
+        for (Instructor instructor : claseService.obtenerInstructoresLibres(diaSemana, horaInicio, duracion, claseId)) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("id", instructor.getId());
+            info.put("nombre", instructor.getNombre());
+            info.put("especialidad", instructor.getEspecialidad());
+            instructores.add(info);
+        }
+        return Map.of("status", "success", "instructores", instructores);
+    }
+}
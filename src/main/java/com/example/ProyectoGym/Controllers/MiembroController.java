@@ -1,13 +1,20 @@
 package com.example.ProyectoGym.Controllers;
 
+import com.example.ProyectoGym.Dto.TicketAdmision;
 import com.example.ProyectoGym.Model.Miembro;
 import com.example.ProyectoGym.Model.ClaseGrupal;
+import com.example.ProyectoGym.Model.ClaseSesion;
 import com.example.ProyectoGym.Model.AsignacionRutina;
 import com.example.ProyectoGym.Model.SesionCompletada;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import com.example.ProyectoGym.Services.AdmisionReservasService;
 import com.example.ProyectoGym.Services.MiembroService;
 import com.example.ProyectoGym.Services.ClaseService;
 import com.example.ProyectoGym.Services.RutinaService;
+import com.example.ProyectoGym.Services.TokenQrService;
+import com.example.ProyectoGym.Services.EstadisticaMiembroService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +22,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import jakarta.servlet.http.HttpSession;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -40,6 +48,15 @@ public class MiembroController {
     @Autowired
     private RutinaService rutinaService;
 
+    @Autowired
+    private TokenQrService tokenQrService;
+
+    @Autowired
+    private EstadisticaMiembroService estadisticaMiembroService;
+
+    @Autowired
+    private AdmisionReservasService admisionReservasService;
+
     /**
      * Muestra el dashboard principal del miembro con resumen de actividad.
      * Incluye informacion de membresia y reservas de clases activas.
@@ -63,7 +80,7 @@ public class MiembroController {
     }
 
     /**
-     * Muestra el perfil completo del miembro con sus datos personales.
+     * Muestra el perfil completo del miembro con sus datos personales y sus estadisticas de visitas.
      * Calcula automaticamente la edad basandose en la fecha de nacimiento.
      *
      * @param session Sesion HTTP para validar autenticacion
@@ -84,12 +101,15 @@ public class MiembroController {
         }
 
         model.addAttribute("miembro", miembro);
+        model.addAttribute("estadisticas", estadisticaMiembroService.obtenerEstadisticas(miembro.getId()).orElse(null));
+        model.addAttribute("visitasMes", estadisticaMiembroService.contarVisitasMesActual(miembro.getId()));
         return "perfil";
     }
 
     /**
-     * Muestra las clases grupales disponibles con informacion de cupos.
-     * Incluye reservas activas del miembro y valida si puede reservar segun su plan.
+     * Muestra las clases grupales disponibles con su proxima sesion e informacion de cupos.
+     * Incluye reservas activas del miembro, sus posiciones en listas de espera
+     * y valida si puede reservar segun su plan.
      *
      * @param session Sesion HTTP para validar autenticacion
      * @param model Modelo para pasar datos a la vista
@@ -111,8 +131,10 @@ public class MiembroController {
             cuposDisponibles.put(clase.getId(), claseService.calcularCuposDisponibles(clase));
         }
         model.addAttribute("cuposDisponibles", cuposDisponibles);
+        model.addAttribute("proximasSesiones", claseService.obtenerProximasSesiones());
 
         model.addAttribute("reservas", claseService.obtenerReservasActivas(miembro));
+        model.addAttribute("posicionesEspera", claseService.obtenerPosicionesListaEspera(miembro));
         model.addAttribute("puedeReservar", claseService.puedeReservar(miembro));
         model.addAttribute("miembro", miembro);
 
@@ -121,15 +143,20 @@ public class MiembroController {
 
     /**
      * Procesa la reserva de una clase grupal por parte del miembro.
+     * Reserva la sesion indicada o, si no se indica, la proxima sesion de la clase.
      * Valida disponibilidad de cupos y permisos segun el plan de membresia.
+     * Con la admision de reservas habilitada, la solicitud se encola y se entrega un ticket
+     * que la vista consulta hasta que la reserva se confirma o rechaza.
      *
      * @param claseId ID de la clase a reservar
+     * @param sesionId ID de la sesion a reservar (opcional)
      * @param session Sesion HTTP para validar autenticacion
      * @param redirectAttributes Atributos para mensajes flash
      * @return Redireccion a la lista de clases con mensaje de resultado
      */
     @PostMapping("/clases/reservar")
-    public String reservarClase(@RequestParam Long claseId,
+    public String reservarClase(@RequestParam(required = false) Long claseId,
+                                @RequestParam(required = false) Long sesionId,
                                 HttpSession session,
                                 RedirectAttributes redirectAttributes) {
         Miembro miembro = (Miembro) session.getAttribute("miembro");
@@ -138,7 +165,18 @@ public class MiembroController {
             return "redirect:/login";
         }
 
-        String resultado = claseService.reservarClase(miembro, claseId);
+        if (admisionReservasService.isHabilitada()) {
+            return solicitarAdmision(miembro, claseId, sesionId, redirectAttributes);
+        }
+
+        String resultado;
+        if (sesionId != null) {
+            resultado = claseService.reservarSesion(miembro, sesionId);
+        } else if (claseId != null) {
+            resultado = claseService.reservarClase(miembro, claseId);
+        } else {
+            resultado = "ERROR: Debes indicar la clase o la sesión a reservar";
+        }
 
         if (resultado.startsWith("SUCCESS")) {
             redirectAttributes.addFlashAttribute("mensaje", resultado.replace("SUCCESS: ", ""));
@@ -151,6 +189,63 @@ public class MiembroController {
         return "redirect:/miembro/clases";
     }
 
+    private String solicitarAdmision(Miembro miembro, Long claseId, Long sesionId,
+                                     RedirectAttributes redirectAttributes) {
+        if (sesionId == null && claseId != null) {
+            ClaseSesionRepository.ProximaSesion proxima = claseService.obtenerProximasSesiones().get(claseId);
+            sesionId = proxima != null ? proxima.getId() : null;
+        }
+        if (sesionId == null) {
+            redirectAttributes.addFlashAttribute("mensaje", "La clase no tiene sesiones programadas");
+            redirectAttributes.addFlashAttribute("tipoMensaje", "error");
+            return "redirect:/miembro/clases";
+        }
+
+        TicketAdmision ticket = admisionReservasService.solicitar(miembro, sesionId);
+        if (ticket.getEstado() == TicketAdmision.Estado.RECHAZADA) {
+            redirectAttributes.addFlashAttribute("mensaje", ticket.getMensaje().replace("ERROR: ", ""));
+            redirectAttributes.addFlashAttribute("tipoMensaje", "error");
+        } else {
+            Long posicion = admisionReservasService.obtenerPosicion(ticket);
+            redirectAttributes.addFlashAttribute("mensaje", posicion != null
+                    ? "Tu solicitud está en la fila (posición " + posicion + "). Confirmaremos tu reserva en unos segundos."
+                    : "Tu solicitud fue procesada");
+            redirectAttributes.addFlashAttribute("tipoMensaje", "success");
+            redirectAttributes.addFlashAttribute("ticketAdmision", ticket.getId());
+        }
+        return "redirect:/miembro/clases";
+    }
+
+    /**
+     * Consulta el estado de una solicitud de reserva encolada mediante peticion AJAX.
+     *
+     * @param ticketId ID del ticket entregado al encolar la solicitud
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con el estado (EN_COLA, CONFIRMADA o RECHAZADA), la posicion o el mensaje final
+     */
+    @GetMapping("/clases/admision/{ticketId}")
+    @ResponseBody
+    public Map<String, Object> consultarAdmision(@PathVariable String ticketId, HttpSession session) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        TicketAdmision ticket = admisionReservasService.consultar(ticketId, miembro.getId());
+        if (ticket == null) {
+            return Map.of("status", "error", "message", "Solicitud no encontrada o vencida");
+        }
+
+        if (!ticket.isResuelto()) {
+            Long posicion = admisionReservasService.obtenerPosicion(ticket);
+            return Map.of("status", "success", "estado", ticket.getEstado().name(),
+                    "posicion", posicion != null ? posicion : 1L);
+        }
+        return Map.of("status", "success", "estado", ticket.getEstado().name(),
+                "message", ticket.getMensaje().replaceFirst("^(SUCCESS|ERROR): ", ""));
+    }
+
     /**
      * Procesa la cancelacion de una reserva de clase grupal.
      *
@@ -182,6 +277,127 @@ public class MiembroController {
         return "redirect:/miembro/clases";
     }
 
+    /**
+     * Agrega al miembro a la lista de espera de una sesion llena.
+     * Cuando se cancele una reserva, el primero de la lista recibe el cupo automaticamente.
+     *
+     * @param sesionId ID de la sesion
+     * @param session Sesion HTTP para validar autenticacion
+     * @param redirectAttributes Atributos para mensajes flash
+     * @return Redireccion a la lista de clases con mensaje de resultado
+     */
+    @PostMapping("/clases/lista-espera")
+    public String unirseListaEspera(@RequestParam Long sesionId,
+                                    HttpSession session,
+                                    RedirectAttributes redirectAttributes) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return "redirect:/login";
+        }
+
+        String resultado = claseService.unirseListaEspera(miembro, sesionId);
+
+        if (resultado.startsWith("SUCCESS")) {
+            redirectAttributes.addFlashAttribute("mensaje", resultado.replace("SUCCESS: ", ""));
+            redirectAttributes.addFlashAttribute("tipoMensaje", "success");
+        } else {
+            redirectAttributes.addFlashAttribute("mensaje", resultado.replace("ERROR: ", ""));
+            redirectAttributes.addFlashAttribute("tipoMensaje", "error");
+        }
+
+        return "redirect:/miembro/clases";
+    }
+
+    /**
+     * Quita al miembro de la lista de espera de una sesion.
+     *
+     * @param sesionId ID de la sesion
+     * @param session Sesion HTTP para validar autenticacion
+     * @param redirectAttributes Atributos para mensajes flash
+     * @return Redireccion a la lista de clases con mensaje de resultado
+     */
+    @PostMapping("/clases/lista-espera/salir")
+    public String salirListaEspera(@RequestParam Long sesionId,
+                                   HttpSession session,
+                                   RedirectAttributes redirectAttributes) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return "redirect:/login";
+        }
+
+        String resultado = claseService.salirListaEspera(miembro, sesionId);
+
+        if (resultado.startsWith("SUCCESS")) {
+            redirectAttributes.addFlashAttribute("mensaje", resultado.replace("SUCCESS: ", ""));
+            redirectAttributes.addFlashAttribute("tipoMensaje", "success");
+        } else {
+            redirectAttributes.addFlashAttribute("mensaje", resultado.replace("ERROR: ", ""));
+            redirectAttributes.addFlashAttribute("tipoMensaje", "error");
+        }
+
+        return "redirect:/miembro/clases";
+    }
+
+    /**
+     * Consulta la posicion del miembro en la lista de espera de una sesion mediante peticion AJAX.
+     *
+     * @param sesionId ID de la sesion
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con la posicion actual, o error si no esta en la lista
+     */
+    @GetMapping("/clases/lista-espera/{sesionId}")
+    @ResponseBody
+    public Map<String, Object> posicionListaEspera(@PathVariable Long sesionId, HttpSession session) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        Long posicion = claseService.obtenerPosicionListaEspera(miembro, sesionId);
+        if (posicion == null) {
+            return Map.of("status", "error", "message", "No estás en la lista de espera de esta sesión");
+        }
+        return Map.of("status", "success", "posicion", posicion);
+    }
+
+    /**
+     * Obtiene el calendario de sesiones de clases de una semana mediante peticion AJAX.
+     *
+     * @param semana Cualquier dia de la semana a consultar (por defecto, la semana actual)
+     * @param session Sesion HTTP para validar autenticacion
+     * @return JSON con las sesiones de la semana ordenadas por hora de inicio
+     */
+    @GetMapping("/clases/calendario")
+    @ResponseBody
+    public Map<String, Object> calendarioClases(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate semana,
+            HttpSession session) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return Map.of("status", "error", "message", "Sesión expirada. Por favor inicia sesión.");
+        }
+
+        List<Map<String, Object>> sesiones = new ArrayList<>();
+        for (ClaseSesion sesion : claseService.obtenerCalendarioSemana(semana != null ? semana : LocalDate.now())) {
+            Map<String, Object> info = new HashMap<>();
+            info.put("sesionId", sesion.getId());
+            info.put("claseId", sesion.getClase().getId());
+            info.put("nombre", sesion.getClase().getNombre());
+            info.put("instructor", sesion.getClase().getInstructor() != null ?
+                    sesion.getClase().getInstructor().getNombre() : "Sin asignar");
+            info.put("inicio", sesion.getInicio().toString());
+            info.put("fin", sesion.getFin().toString());
+            info.put("capacidad", sesion.getCapacidad());
+            info.put("cuposDisponibles", sesion.getCuposDisponibles());
+            sesiones.add(info);
+        }
+        return Map.of("status", "success", "sesiones", sesiones);
+    }
+
     /**
      * Muestra la rutina de entrenamiento asignada al miembro.
      * Incluye ejercicios detallados, estadisticas de sesiones y progreso mensual.
@@ -358,4 +574,32 @@ public class MiembroController {
         model.addAttribute("miembro", miembro);
         return "progreso";
     }
-}
\ No newline at end of file
+
+    /**
+     * Genera un codigo QR de corta duracion para registrar la entrada al gimnasio
+     * escaneandolo desde el telefono del miembro.
+     *
+     * @param session Sesion HTTP para validar autenticacion del miembro
+     * @return JSON con el token a mostrar como QR y su validez en segundos
+     */
+    @GetMapping("/qr-token")
+    @ResponseBody
+    public Map<String, Object> generarTokenQr(HttpSession session) {
+        Miembro miembro = (Miembro) session.getAttribute("miembro");
+
+        if (miembro == null) {
+            return Map.of("error", "Sesión expirada");
+        }
+
+        // Se relee el miembro para firmar la fecha de vencimiento vigente (p. ej. tras una renovacion)
+        Miembro actual = miembroService.obtenerMiembroPorId(miembro.getId());
+        if (actual == null || !actual.getActivo() || actual.estaVencida()) {
+            return Map.of("error", "Membresía inactiva o vencida. Debe renovar.");
+        }
+
+        return Map.of(
+                "token", tokenQrService.emitirToken(actual.getId(), actual.getFechaVencimiento()),
+                "validezSegundos", tokenQrService.getValidezSegundos()
+        );
+    }
+}
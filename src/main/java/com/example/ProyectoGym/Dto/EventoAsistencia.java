@@ -0,0 +1,70 @@
+package com.example.ProyectoGym.Dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento publicado por AsistenciaService cada vez que se registra una entrada
+ * o una salida. Los componentes que mantienen estado derivado de las asistencias
+ * lo escuchan una vez confirmada la transaccion.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+public class EventoAsistencia {
+
+    public enum Tipo {
+        ENTRADA,
+        SALIDA
+    }
+
+    private final Tipo tipo;
+    private final Long miembroId;
+    private final LocalDateTime fechaHoraEntrada;
+    private final LocalDateTime fechaHoraSalida;
+    // Salida registrada por el cierre automatico de visitas olvidadas
+    private final boolean autoCerrada;
+
+    private EventoAsistencia(Tipo tipo, Long miembroId, LocalDateTime fechaHoraEntrada,
+                             LocalDateTime fechaHoraSalida, boolean autoCerrada) {
+        this.tipo = tipo;
+        this.miembroId = miembroId;
+        this.fechaHoraEntrada = fechaHoraEntrada;
+        this.fechaHoraSalida = fechaHoraSalida;
+        this.autoCerrada = autoCerrada;
+    }
+
+    public static EventoAsistencia entrada(Long miembroId, LocalDateTime fechaHoraEntrada) {
+        return new EventoAsistencia(Tipo.ENTRADA, miembroId, fechaHoraEntrada, null, false);
+    }
+
+    public static EventoAsistencia salida(Long miembroId, LocalDateTime fechaHoraEntrada,
+                                          LocalDateTime fechaHoraSalida) {
+        return new EventoAsistencia(Tipo.SALIDA, miembroId, fechaHoraEntrada, fechaHoraSalida, false);
+    }
+
+    public static EventoAsistencia cierreAutomatico(Long miembroId, LocalDateTime fechaHoraEntrada,
+                                                    LocalDateTime fechaHoraSalida) {
+        return new EventoAsistencia(Tipo.SALIDA, miembroId, fechaHoraEntrada, fechaHoraSalida, true);
+    }
+
+    // Getters
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Long getMiembroId() {
+        return miembroId;
+    }
+
+    public LocalDateTime getFechaHoraEntrada() {
+        return fechaHoraEntrada;
+    }
+
+    public LocalDateTime getFechaHoraSalida() {
+        return fechaHoraSalida;
+    }
+
+    public boolean isAutoCerrada() {
+        return autoCerrada;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ProyectoGym.Dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Evento de entrada o salida enviado por un torniquete dentro de un lote.
+ * La fecha y hora es la registrada por el dispositivo al momento del escaneo.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+public class EventoTorniquete {
+
+    private Long miembroId;
+
+    private EventoAsistencia.Tipo tipo;
+
+    private LocalDateTime fechaHora;
+
+    public EventoTorniquete() {
+    }
+
+    public EventoTorniquete(Long miembroId, EventoAsistencia.Tipo tipo, LocalDateTime fechaHora) {
+        this.miembroId = miembroId;
+        this.tipo = tipo;
+        this.fechaHora = fechaHora;
+    }
+
+    // Getters y Setters
+    public Long getMiembroId() {
+        return miembroId;
+    }
+
+    public void setMiembroId(Long miembroId) {
+        this.miembroId = miembroId;
+    }
+
+    public EventoAsistencia.Tipo getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(EventoAsistencia.Tipo tipo) {
+        this.tipo = tipo;
+    }
+
+    public LocalDateTime getFechaHora() {
+        return fechaHora;
+    }
+
+    public void setFechaHora(LocalDateTime fechaHora) {
+        this.fechaHora = fechaHora;
+    }
+}
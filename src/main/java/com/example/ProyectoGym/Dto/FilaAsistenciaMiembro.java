@@ -0,0 +1,86 @@
+package com.example.ProyectoGym.Dto;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Fila tipada del listado de asistencia diaria del panel administrativo.
+ * Agrupa los datos basicos de un miembro activo con el estado de sus
+ * asistencias del dia (presente, asistio o ausente).
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+public class FilaAsistenciaMiembro {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final Long id;
+    private final String nombre;
+    private final String dni;
+    private final String plan;
+
+    // Entrada de la asistencia abierta del dia, null si el miembro no esta en el gimnasio
+    private LocalDateTime entradaActiva;
+
+    // true si el miembro tiene al menos una asistencia cerrada en el dia
+    private boolean asistio;
+
+    public FilaAsistenciaMiembro(Long id, String nombre, String dni, String plan) {
+        this.id = id;
+        this.nombre = nombre;
+        this.dni = dni;
+        this.plan = plan;
+    }
+
+    /**
+     * Incorpora una asistencia del dia al estado de la fila.
+     * Una entrada sin salida marca al miembro como presente; una asistencia
+     * cerrada lo marca como que ya asistio.
+     *
+     * @param entrada Fecha y hora de entrada, null si el miembro no tiene asistencias hoy
+     * @param salida Fecha y hora de salida, null si la asistencia sigue abierta
+     */
+    public void registrar(LocalDateTime entrada, LocalDateTime salida) {
+        if (entrada == null) {
+            return;
+        }
+        if (salida == null) {
+            this.entradaActiva = entrada;
+        } else {
+            this.asistio = true;
+        }
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public boolean isEnGimnasio() {
+        return entradaActiva != null;
+    }
+
+    public String getEstado() {
+        if (entradaActiva != null) {
+            return "Presente";
+        }
+        return asistio ? "Asistió" : "Ausente";
+    }
+
+    public String getHoraEntrada() {
+        return entradaActiva != null ? entradaActiva.toLocalTime().format(TIME_FORMATTER) : "----";
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.ProyectoGym.Dto;
+
+import com.example.ProyectoGym.Model.Asistencia;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Pagina del historial de asistencias de un miembro obtenida por paginacion por cursor.
+ * El cursor codifica la fecha de entrada y el ID de la ultima asistencia de la pagina,
+ * de modo que la pagina siguiente se obtiene con una busqueda en el indice sin
+ * recorrer las filas anteriores.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+public class PaginaHistorial {
+
+    private static final char SEPARADOR = '_';
+
+    private final List<Asistencia> asistencias;
+    private final String cursorActual;
+    private final String cursorSiguiente;
+
+    public PaginaHistorial(List<Asistencia> asistencias, String cursorActual, String cursorSiguiente) {
+        this.asistencias = asistencias;
+        this.cursorActual = cursorActual;
+        this.cursorSiguiente = cursorSiguiente;
+    }
+
+    /**
+     * Codifica la posicion de una asistencia como cursor de pagina.
+     *
+     * @param asistencia Ultima asistencia de la pagina
+     * @return Cursor con el formato fechaHoraEntrada_id
+     */
+    public static String codificarCursor(Asistencia asistencia) {
+        return asistencia.getFechaHoraEntrada().toString() + SEPARADOR + asistencia.getId();
+    }
+
+    /**
+     * Obtiene la fecha de entrada codificada en un cursor.
+     *
+     * @param cursor Cursor recibido del cliente
+     * @return Fecha de entrada o null si el cursor no es valido
+     */
+    public static LocalDateTime fechaDelCursor(String cursor) {
+        int posicion = posicionSeparador(cursor);
+        if (posicion < 0) return null;
+        try {
+            return LocalDateTime.parse(cursor.substring(0, posicion));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Obtiene el ID de asistencia codificado en un cursor.
+     *
+     * @param cursor Cursor recibido del cliente
+     * @return ID de la asistencia o null si el cursor no es valido
+     */
+    public static Long idDelCursor(String cursor) {
+        int posicion = posicionSeparador(cursor);
+        if (posicion < 0) return null;
+        try {
+            return Long.parseLong(cursor.substring(posicion + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int posicionSeparador(String cursor) {
+        return cursor == null ? -1 : cursor.lastIndexOf(SEPARADOR);
+    }
+
+    public List<Asistencia> getAsistencias() {
+        return asistencias;
+    }
+
+    /**
+     * @return Cursor con el que se obtuvo esta pagina, null si es la primera
+     */
+    public String getCursorActual() {
+        return cursorActual;
+    }
+
+    /**
+     * @return Cursor de la pagina siguiente, null si no hay mas asistencias
+     */
+    public String getCursorSiguiente() {
+        return cursorSiguiente;
+    }
+
+    public boolean isPrimeraPagina() {
+        return cursorActual == null;
+    }
+
+    public boolean isHayMas() {
+        return cursorSiguiente != null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.ProyectoGym.Dto;
+
+/**
+ * Ticket de una solicitud de reserva encolada en la admision de reservas.
+ * El numero indica el orden de llegada dentro de la cola de su sesion; el estado y el
+ * mensaje se completan cuando la solicitud es admitida y la reserva se confirma o rechaza.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+public class TicketAdmision {
+
+    public enum Estado { EN_COLA, CONFIRMADA, RECHAZADA }
+
+    private final String id;
+    private final Long miembroId;
+    private final Long sesionId;
+    private final long numero;
+
+    private volatile Estado estado = Estado.EN_COLA;
+    private volatile String mensaje;
+    private volatile long resueltoNanos;
+
+    public TicketAdmision(String id, Long miembroId, Long sesionId, long numero) {
+        this.id = id;
+        this.miembroId = miembroId;
+        this.sesionId = sesionId;
+        this.numero = numero;
+    }
+
+    /**
+     * Crea un ticket ya rechazado, para solicitudes que no llegan a encolarse.
+     *
+     * @param miembroId ID del miembro
+     * @param sesionId ID de la sesion solicitada
+     * @param error Mensaje de error con el prefijo "ERROR: "
+     * @return Ticket rechazado
+     */
+    public static TicketAdmision rechazado(Long miembroId, Long sesionId, String error) {
+        TicketAdmision ticket = new TicketAdmision(null, miembroId, sesionId, -1);
+        ticket.resolver(error);
+        return ticket;
+    }
+
+    /**
+     * Registra el resultado de la reserva: confirmada si empieza con "SUCCESS", rechazada en caso contrario.
+     *
+     * @param resultado Mensaje devuelto por la reserva
+     */
+    public void resolver(String resultado) {
+        this.mensaje = resultado;
+        this.resueltoNanos = System.nanoTime();
+        this.estado = resultado.startsWith("SUCCESS") ? Estado.CONFIRMADA : Estado.RECHAZADA;
+    }
+
+    public boolean isResuelto() {
+        return estado != Estado.EN_COLA;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getMiembroId() {
+        return miembroId;
+    }
+
+    public Long getSesionId() {
+        return sesionId;
+    }
+
+    public long getNumero() {
+        return numero;
+    }
+
+    public Estado getEstado() {
+        return estado;
+    }
+
+    public String getMensaje() {
+        return mensaje;
+    }
+
+    public long getResueltoNanos() {
+        return resueltoNanos;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "actividad_diaria")
+public class ActividadDiaria {
+
+    @Id
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private Integer entradas = 0; // asistencias iniciadas en el dia
+
+    @Column(nullable = false)
+    private Integer salidas = 0; // asistencias cerradas en el dia
+
+    @Column(name = "sesiones_completadas", nullable = false)
+    private Integer sesionesCompletadas = 0; // sesiones de rutina completadas
+
+    @Column(nullable = false)
+    private Integer reservas = 0; // reservas de clases realizadas en el dia
+
+    // Constructores
+    public ActividadDiaria() {
+    }
+
+    public ActividadDiaria(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    // Getters y Setters
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Integer getEntradas() {
+        return entradas;
+    }
+
+    public void setEntradas(Integer entradas) {
+        this.entradas = entradas;
+    }
+
+    public Integer getSalidas() {
+        return salidas;
+    }
+
+    public void setSalidas(Integer salidas) {
+        this.salidas = salidas;
+    }
+
+    public Integer getSesionesCompletadas() {
+        return sesionesCompletadas;
+    }
+
+    public void setSesionesCompletadas(Integer sesionesCompletadas) {
+        this.sesionesCompletadas = sesionesCompletadas;
+    }
+
+    public Integer getReservas() {
+        return reservas;
+    }
+
+    public void setReservas(Integer reservas) {
+        this.reservas = reservas;
+    }
+}
@@ -5,7 +5,10 @@ import java.time.LocalDateTime;
 import java.time.Duration;
 
 @Entity
-@Table(name = "asistencias")
+@Table(name = "asistencias", indexes = {
+        @Index(name = "idx_asistencias_miembro_entrada", columnList = "miembro_id, fecha_hora_entrada, id"),
+        @Index(name = "idx_asistencias_entrada", columnList = "fecha_hora_entrada")
+})
 public class Asistencia {
 
     @Id
@@ -25,6 +28,10 @@ public class Asistencia {
     @Column(name = "duracion_minutos")
     private Integer duracionMinutos;
 
+    // true si la salida la registro el cierre automatico y no el miembro
+    @Column(name = "auto_cerrada", columnDefinition = "boolean default false")
+    private Boolean autoCerrada = false;
+
     // Constructores
     public Asistencia() {
         this.fechaHoraEntrada = LocalDateTime.now();
@@ -37,7 +44,11 @@ public class Asistencia {
 
     // Metodo para registrar salida y calcular duración
     public void registrarSalida() {
-        this.fechaHoraSalida = LocalDateTime.now();
+        registrarSalida(LocalDateTime.now());
+    }
+
+    public void registrarSalida(LocalDateTime fechaHoraSalida) {
+        this.fechaHoraSalida = fechaHoraSalida;
         if (this.fechaHoraEntrada != null) {
             Duration duracion = Duration.between(this.fechaHoraEntrada, this.fechaHoraSalida);
             this.duracionMinutos = (int) duracion.toMinutes();
@@ -94,4 +105,12 @@ public class Asistencia {
     public void setDuracionMinutos(Integer duracionMinutos) {
         this.duracionMinutos = duracionMinutos;
     }
+
+    public Boolean getAutoCerrada() {
+        return autoCerrada;
+    }
+
+    public void setAutoCerrada(Boolean autoCerrada) {
+        this.autoCerrada = autoCerrada;
+    }
 }
@@ -1,11 +1,26 @@
 package com.example.ProyectoGym.Model;
 
 import jakarta.persistence.*;
+import java.text.Normalizer;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Entity
 @Table(name = "clase_grupal")
 public class ClaseGrupal {
 
+    private static final Map<String, DayOfWeek> DIAS = Map.of(
+            "lun", DayOfWeek.MONDAY, "mar", DayOfWeek.TUESDAY, "mie", DayOfWeek.WEDNESDAY,
+            "jue", DayOfWeek.THURSDAY, "vie", DayOfWeek.FRIDAY, "sab", DayOfWeek.SATURDAY,
+            "dom", DayOfWeek.SUNDAY);
+
+    private static final Pattern HORA = Pattern.compile("(\\d{1,2}):(\\d{2})");
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -28,6 +43,14 @@ public class ClaseGrupal {
     @Column(name = "capacidad")
     private Integer capacidad;
 
+    // Plantilla tipada del horario, derivada de diaSemana y horaInicio; genera las sesiones fechadas
+    @Convert(converter = DiasSemanaConverter.class)
+    @Column(name = "dias", length = 70)
+    private Set<DayOfWeek> dias;
+
+    @Column(name = "hora")
+    private LocalTime hora;
+
     @Column(name = "imagen_url", length = 255)
     private String imagenUrl;
 
@@ -48,8 +71,8 @@ public class ClaseGrupal {
                        Integer duracion, Integer capacidad, String imagenUrl, Instructor instructor) {
         this.nombre = nombre;
         this.descripcion = descripcion;
-        this.diaSemana = diaSemana;
-        this.horaInicio = horaInicio;
+        setDiaSemana(diaSemana);
+        setHoraInicio(horaInicio);
         this.duracion = duracion;
         this.capacidad = capacidad;
         this.imagenUrl = imagenUrl;
@@ -57,6 +80,57 @@ public class ClaseGrupal {
         this.activa = true;
     }
 
+    // Metodos de negocio
+
+    // Interpreta textos como "Lunes y Miércoles", "Martes, Jueves" o "Lunes a Viernes"
+    public static Set<DayOfWeek> interpretarDias(String texto) {
+        Set<DayOfWeek> dias = EnumSet.noneOf(DayOfWeek.class);
+        if (texto == null) {
+            return dias;
+        }
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "").toLowerCase();
+        DayOfWeek anterior = null;
+        boolean rango = false;
+        for (String palabra : normalizado.split("[^a-z]+")) {
+            DayOfWeek dia = palabra.length() >= 3 ? DIAS.get(palabra.substring(0, 3)) : null;
+            if (dia != null) {
+                if (rango && anterior != null) {
+                    for (DayOfWeek d = anterior; d != dia; d = d.plus(1)) {
+                        dias.add(d);
+                    }
+                }
+                dias.add(dia);
+                anterior = dia;
+                rango = false;
+            } else if (palabra.equals("a") || palabra.equals("al")) {
+                rango = true;
+            }
+        }
+        return dias;
+    }
+
+    // Interpreta la primera hora con formato HH:mm del texto; null si no hay una valida
+    public static LocalTime interpretarHora(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        Matcher matcher = HORA.matcher(texto);
+        if (!matcher.find()) {
+            return null;
+        }
+        int horas = Integer.parseInt(matcher.group(1));
+        int minutos = Integer.parseInt(matcher.group(2));
+        if (horas > 23 || minutos > 59) {
+            return null;
+        }
+        return LocalTime.of(horas, minutos);
+    }
+
+    public boolean tieneHorario() {
+        return dias != null && !dias.isEmpty() && hora != null;
+    }
+
     // Getters y Setters
     public Long getId() {
         return id;
@@ -88,6 +162,7 @@ public class ClaseGrupal {
 
     public void setDiaSemana(String diaSemana) {
         this.diaSemana = diaSemana;
+        this.dias = interpretarDias(diaSemana);
     }
 
     public String getHoraInicio() {
@@ -96,6 +171,7 @@ public class ClaseGrupal {
 
     public void setHoraInicio(String horaInicio) {
         this.horaInicio = horaInicio;
+        this.hora = interpretarHora(horaInicio);
     }
 
     public Integer getDuracion() {
@@ -114,6 +190,22 @@ public class ClaseGrupal {
         this.capacidad = capacidad;
     }
 
+    public Set<DayOfWeek> getDias() {
+        return dias;
+    }
+
+    public void setDias(Set<DayOfWeek> dias) {
+        this.dias = dias;
+    }
+
+    public LocalTime getHora() {
+        return hora;
+    }
+
+    public void setHora(LocalTime hora) {
+        this.hora = hora;
+    }
+
     public String getImagenUrl() {
         return imagenUrl;
     }
@@ -0,0 +1,105 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "clase_sesion", indexes = {
+        @Index(name = "idx_clase_sesion_inicio", columnList = "inicio")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_clase_sesion_clase_inicio", columnNames = {"clase_id", "inicio"})
+})
+public class ClaseSesion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "clase_id", nullable = false)
+    private ClaseGrupal clase;
+
+    @Column(nullable = false)
+    private LocalDateTime inicio;
+
+    @Column(nullable = false)
+    private LocalDateTime fin;
+
+    @Column
+    private Integer capacidad; // null = sin limite
+
+    // Reservas activas; solo lo modifican los UPDATE condicionales de ClaseSesionRepository
+    @Column(name = "inscritos", insertable = false, updatable = false, columnDefinition = "integer not null default 0")
+    private Integer inscritos = 0;
+
+    // true cuando InasistenciasService ya marco sus reservas como asistidas o no asistidas
+    @Column(name = "asistencia_conciliada", insertable = false, updatable = false,
+            columnDefinition = "boolean not null default false")
+    private Boolean asistenciaConciliada = false;
+
+    // Constructores
+    public ClaseSesion() {
+    }
+
+    // Metodos de negocio
+
+    public Integer getCuposDisponibles() {
+        if (capacidad == null) {
+            return null;
+        }
+        return capacidad - inscritos;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public ClaseGrupal getClase() {
+        return clase;
+    }
+
+    public void setClase(ClaseGrupal clase) {
+        this.clase = clase;
+    }
+
+    public LocalDateTime getInicio() {
+        return inicio;
+    }
+
+    public void setInicio(LocalDateTime inicio) {
+        this.inicio = inicio;
+    }
+
+    public LocalDateTime getFin() {
+        return fin;
+    }
+
+    public void setFin(LocalDateTime fin) {
+        this.fin = fin;
+    }
+
+    public Integer getCapacidad() {
+        return capacidad;
+    }
+
+    public void setCapacidad(Integer capacidad) {
+        this.capacidad = capacidad;
+    }
+
+    public Integer getInscritos() {
+        return inscritos;
+    }
+
+    public void setInscritos(Integer inscritos) {
+        this.inscritos = inscritos;
+    }
+
+    public Boolean getAsistenciaConciliada() {
+        return asistenciaConciliada;
+    }
+}
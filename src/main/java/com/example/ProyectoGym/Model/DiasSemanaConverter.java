@@ -0,0 +1,42 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.DayOfWeek;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Convierte los dias de una clase a una columna de texto con los nombres de DayOfWeek
+ * separados por comas (ej: "MONDAY,WEDNESDAY").
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Converter
+public class DiasSemanaConverter implements AttributeConverter<Set<DayOfWeek>, String> {
+
+    @Override
+    public String convertToDatabaseColumn(Set<DayOfWeek> dias) {
+        if (dias == null) {
+            return null;
+        }
+        return dias.stream().sorted().map(DayOfWeek::name).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public Set<DayOfWeek> convertToEntityAttribute(String columna) {
+        if (columna == null) {
+            return null;
+        }
+        Set<DayOfWeek> dias = EnumSet.noneOf(DayOfWeek.class);
+        for (String dia : columna.split(",")) {
+            if (!dia.isBlank()) {
+                dias.add(DayOfWeek.valueOf(dia.trim()));
+            }
+        }
+        return dias;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+@Entity
+@Table(name = "estadisticas_miembro")
+public class EstadisticaMiembro {
+
+    @Id
+    @Column(name = "miembro_id")
+    private Long miembroId;
+
+    @Column(nullable = false)
+    private Long visitas = 0L; // visitas cerradas (con salida)
+
+    @Column(name = "minutos_totales", nullable = false)
+    private Long minutosTotales = 0L;
+
+    @Column(name = "mes_actual", nullable = false)
+    private LocalDate mesActual; // primer dia del mes mas reciente con visitas
+
+    @Column(name = "visitas_mes_actual", nullable = false)
+    private Integer visitasMesActual = 0;
+
+    @Column(name = "visitas_mes_anterior", nullable = false)
+    private Integer visitasMesAnterior = 0; // visitas del mes previo a mesActual
+
+    @Column(name = "ultima_visita")
+    private LocalDateTime ultimaVisita; // entrada de la visita cerrada mas reciente
+
+    // Parte de visitas y minutosTotales que corresponde a asistencias archivadas (ya no estan en la tabla)
+    @Column(name = "visitas_archivadas", nullable = false, columnDefinition = "bigint default 0")
+    private Long visitasArchivadas = 0L;
+
+    @Column(name = "minutos_archivados", nullable = false, columnDefinition = "bigint default 0")
+    private Long minutosArchivados = 0L;
+
+    // Constructores
+    public EstadisticaMiembro() {
+    }
+
+    // Metodos de negocio
+
+    // Visitas de un mes, considerando que los contadores mensuales pueden estar desactualizados
+    public int visitasEn(YearMonth mes) {
+        if (mesActual == null) {
+            return 0;
+        }
+        YearMonth ultimo = YearMonth.from(mesActual);
+        if (ultimo.equals(mes)) {
+            return visitasMesActual;
+        }
+        if (ultimo.minusMonths(1).equals(mes)) {
+            return visitasMesAnterior;
+        }
+        return 0;
+    }
+
+    public long getPromedioMinutos() {
+        return visitas > 0 ? minutosTotales / visitas : 0;
+    }
+
+    // Getters y Setters
+    public Long getMiembroId() {
+        return miembroId;
+    }
+
+    public void setMiembroId(Long miembroId) {
+        this.miembroId = miembroId;
+    }
+
+    public Long getVisitas() {
+        return visitas;
+    }
+
+    public void setVisitas(Long visitas) {
+        this.visitas = visitas;
+    }
+
+    public Long getMinutosTotales() {
+        return minutosTotales;
+    }
+
+    public void setMinutosTotales(Long minutosTotales) {
+        this.minutosTotales = minutosTotales;
+    }
+
+    public LocalDate getMesActual() {
+        return mesActual;
+    }
+
+    public void setMesActual(LocalDate mesActual) {
+        this.mesActual = mesActual;
+    }
+
+    public Integer getVisitasMesActual() {
+        return visitasMesActual;
+    }
+
+    public void setVisitasMesActual(Integer visitasMesActual) {
+        this.visitasMesActual = visitasMesActual;
+    }
+
+    public Integer getVisitasMesAnterior() {
+        return visitasMesAnterior;
+    }
+
+    public void setVisitasMesAnterior(Integer visitasMesAnterior) {
+        this.visitasMesAnterior = visitasMesAnterior;
+    }
+
+    public LocalDateTime getUltimaVisita() {
+        return ultimaVisita;
+    }
+
+    public void setUltimaVisita(LocalDateTime ultimaVisita) {
+        this.ultimaVisita = ultimaVisita;
+    }
+
+    public Long getVisitasArchivadas() {
+        return visitasArchivadas;
+    }
+
+    public void setVisitasArchivadas(Long visitasArchivadas) {
+        this.visitasArchivadas = visitasArchivadas;
+    }
+
+    public Long getMinutosArchivados() {
+        return minutosArchivados;
+    }
+
+    public void setMinutosArchivados(Long minutosArchivados) {
+        this.minutosArchivados = minutosArchivados;
+    }
+}
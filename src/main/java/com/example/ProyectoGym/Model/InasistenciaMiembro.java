@@ -0,0 +1,70 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "inasistencias_miembro")
+public class InasistenciaMiembro {
+
+    @Id
+    @Column(name = "miembro_id")
+    private Long miembroId;
+
+    @Column(nullable = false)
+    private Integer consecutivas = 0; // inasistencias desde la ultima clase reservada a la que asistio
+
+    @Column(nullable = false)
+    private Integer total = 0;
+
+    @Column(name = "ultima_inasistencia")
+    private LocalDateTime ultimaInasistencia; // inicio de la sesion de la inasistencia mas reciente
+
+    // Constructores
+    public InasistenciaMiembro() {
+    }
+
+    // Metodos de negocio
+
+    // Fecha hasta la que el miembro no puede reservar, o null si no esta penalizado
+    public LocalDateTime penalizadoHasta(int limite, int diasPenalizacion) {
+        if (consecutivas < limite || ultimaInasistencia == null) {
+            return null;
+        }
+        LocalDateTime hasta = ultimaInasistencia.plusDays(diasPenalizacion);
+        return hasta.isAfter(LocalDateTime.now()) ? hasta : null;
+    }
+
+    // Getters y Setters
+    public Long getMiembroId() {
+        return miembroId;
+    }
+
+    public void setMiembroId(Long miembroId) {
+        this.miembroId = miembroId;
+    }
+
+    public Integer getConsecutivas() {
+        return consecutivas;
+    }
+
+    public void setConsecutivas(Integer consecutivas) {
+        this.consecutivas = consecutivas;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public LocalDateTime getUltimaInasistencia() {
+        return ultimaInasistencia;
+    }
+
+    public void setUltimaInasistencia(LocalDateTime ultimaInasistencia) {
+        this.ultimaInasistencia = ultimaInasistencia;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "lista_espera", indexes = {
+        @Index(name = "idx_lista_espera_sesion_posicion", columnList = "sesion_id, posicion")
+}, uniqueConstraints = {
+        @UniqueConstraint(name = "uk_lista_espera_miembro_sesion", columnNames = {"miembro_id", "sesion_id"})
+})
+public class ListaEspera {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "miembro_id", nullable = false)
+    private Miembro miembro;
+
+    @ManyToOne
+    @JoinColumn(name = "clase_id", nullable = false)
+    private ClaseGrupal claseGrupal;
+
+    @ManyToOne
+    @JoinColumn(name = "sesion_id")
+    private ClaseSesion sesion; // cada sesion fechada tiene su propia cola
+
+    @Column(nullable = false)
+    private Long posicion; // creciente en orden de llegada (secuencia lista_espera_posicion_seq)
+
+    @Column(name = "fecha_solicitud", nullable = false)
+    private LocalDateTime fechaSolicitud;
+
+    // Constructores
+    public ListaEspera() {
+        this.fechaSolicitud = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Miembro getMiembro() {
+        return miembro;
+    }
+
+    public void setMiembro(Miembro miembro) {
+        this.miembro = miembro;
+    }
+
+    public ClaseGrupal getClaseGrupal() {
+        return claseGrupal;
+    }
+
+    public void setClaseGrupal(ClaseGrupal claseGrupal) {
+        this.claseGrupal = claseGrupal;
+    }
+
+    public ClaseSesion getSesion() {
+        return sesion;
+    }
+
+    public void setSesion(ClaseSesion sesion) {
+        this.sesion = sesion;
+    }
+
+    public Long getPosicion() {
+        return posicion;
+    }
+
+    public void setPosicion(Long posicion) {
+        this.posicion = posicion;
+    }
+
+    public LocalDateTime getFechaSolicitud() {
+        return fechaSolicitud;
+    }
+
+    public void setFechaSolicitud(LocalDateTime fechaSolicitud) {
+        this.fechaSolicitud = fechaSolicitud;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.ProyectoGym.Model;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+@Entity
+@Table(name = "ocupacion_horaria", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ocupacion_horaria_fecha_hora", columnNames = {"fecha", "hora"})
+})
+public class OcupacionHoraria {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(nullable = false)
+    private Integer hora; // 0-23
+
+    @Column(nullable = false)
+    private Integer entradas = 0;
+
+    @Column(nullable = false)
+    private Integer salidas = 0;
+
+    @Column(name = "pico_concurrente", nullable = false)
+    private Integer picoConcurrente = 0; // maximo de miembros presentes a la vez durante la hora
+
+    // Constructores
+    public OcupacionHoraria() {
+    }
+
+    public OcupacionHoraria(LocalDate fecha, Integer hora) {
+        this.fecha = fecha;
+        this.hora = hora;
+    }
+
+    // Getters y Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDate fecha) {
+        this.fecha = fecha;
+    }
+
+    public Integer getHora() {
+        return hora;
+    }
+
+    public void setHora(Integer hora) {
+        this.hora = hora;
+    }
+
+    public Integer getEntradas() {
+        return entradas;
+    }
+
+    public void setEntradas(Integer entradas) {
+        this.entradas = entradas;
+    }
+
+    public Integer getSalidas() {
+        return salidas;
+    }
+
+    public void setSalidas(Integer salidas) {
+        this.salidas = salidas;
+    }
+
+    public Integer getPicoConcurrente() {
+        return picoConcurrente;
+    }
+
+    public void setPicoConcurrente(Integer picoConcurrente) {
+        this.picoConcurrente = picoConcurrente;
+    }
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "reserva")
+@Table(name = "reserva", indexes = {
+        @Index(name = "idx_reserva_sesion", columnList = "sesion_id")
+})
 public class Reserva {
 
     @Id
@@ -19,6 +21,10 @@ public class Reserva {
     @JoinColumn(name = "clase_id", nullable = false)
     private ClaseGrupal claseGrupal;
 
+    @ManyToOne
+    @JoinColumn(name = "sesion_id")
+    private ClaseSesion sesion; // fecha concreta reservada; null en reservas anteriores a las sesiones
+
     @Column(name = "fecha_reserva")
     private LocalDateTime fechaReserva;
 
@@ -63,6 +69,14 @@ public class Reserva {
         this.claseGrupal = claseGrupal;
     }
 
+    public ClaseSesion getSesion() {
+        return sesion;
+    }
+
+    public void setSesion(ClaseSesion sesion) {
+        this.sesion = sesion;
+    }
+
     public LocalDateTime getFechaReserva() {
         return fechaReserva;
     }
@@ -4,7 +4,10 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "sesion_completada")
+@Table(name = "sesion_completada", indexes = {
+        @Index(name = "idx_sesion_completada_miembro_fecha", columnList = "miembro_id, fecha_completada"),
+        @Index(name = "idx_sesion_completada_fecha", columnList = "fecha_completada")
+})
 public class SesionCompletada {
 
     @Id
@@ -0,0 +1,86 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.ActividadDiaria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * Repositorio para los contadores de actividad por dia del gimnasio.
+ * Una fila por fecha con entradas, salidas, sesiones de rutina completadas y reservas,
+ * de modo que los paneles leen una sola fila en lugar de contar cada tabla.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface ActividadDiariaRepository extends JpaRepository<ActividadDiaria, LocalDate> {
+
+    /**
+     * Suma los incrementos indicados a los contadores de una fecha, creando su fila si no existe.
+     * Los incrementos pueden ser negativos (por ejemplo, al eliminar una sesion registrada por error).
+     * Se une a la transaccion del llamador o, si no hay ninguna, abre la suya.
+     *
+     * @param fecha Fecha de la actividad
+     * @param entradas Entradas a sumar
+     * @param salidas Salidas a sumar
+     * @param sesiones Sesiones completadas a sumar
+     * @param reservas Reservas a sumar
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO actividad_diaria AS a (fecha, entradas, salidas, sesiones_completadas, reservas) " +
+            "VALUES (:fecha, :entradas, :salidas, :sesiones, :reservas) " +
+            "ON CONFLICT (fecha) DO UPDATE SET entradas = a.entradas + EXCLUDED.entradas, " +
+            "salidas = a.salidas + EXCLUDED.salidas, " +
+            "sesiones_completadas = a.sesiones_completadas + EXCLUDED.sesiones_completadas, " +
+            "reservas = a.reservas + EXCLUDED.reservas",
+            nativeQuery = true)
+    void sumar(@Param("fecha") LocalDate fecha, @Param("entradas") int entradas, @Param("salidas") int salidas,
+               @Param("sesiones") int sesiones, @Param("reservas") int reservas);
+
+    /**
+     * Recalcula los contadores de una fecha desde las tablas de origen y sobrescribe su fila.
+     *
+     * @param fecha Fecha a recalcular
+     */
+    @Modifying
+    @Query(value = "INSERT INTO actividad_diaria (fecha, entradas, salidas, sesiones_completadas, reservas) " +
+            "SELECT CAST(:fecha AS date), " +
+            "(SELECT COUNT(*) FROM asistencias WHERE fecha_hora_entrada >= CAST(:fecha AS date) " +
+            "  AND fecha_hora_entrada < CAST(:fecha AS date) + 1), " +
+            "(SELECT COUNT(*) FROM asistencias WHERE fecha_hora_salida >= CAST(:fecha AS date) " +
+            "  AND fecha_hora_salida < CAST(:fecha AS date) + 1), " +
+            "(SELECT COUNT(*) FROM sesion_completada WHERE fecha_completada = CAST(:fecha AS date)), " +
+            "(SELECT COUNT(*) FROM reserva WHERE fecha_reserva >= CAST(:fecha AS date) " +
+            "  AND fecha_reserva < CAST(:fecha AS date) + 1) " +
+            "ON CONFLICT (fecha) DO UPDATE SET entradas = EXCLUDED.entradas, salidas = EXCLUDED.salidas, " +
+            "sesiones_completadas = EXCLUDED.sesiones_completadas, reservas = EXCLUDED.reservas",
+            nativeQuery = true)
+    void recalcularDia(@Param("fecha") LocalDate fecha);
+
+    /**
+     * Suma las entradas al gimnasio registradas en un rango de fechas.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @return Total de entradas del rango
+     */
+    @Query("SELECT COALESCE(SUM(a.entradas), 0) FROM ActividadDiaria a WHERE a.fecha BETWEEN :desde AND :hasta")
+    long sumEntradasEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /**
+     * Suma las sesiones de rutina completadas en un rango de fechas.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @return Total de sesiones completadas del rango
+     */
+    @Query("SELECT COALESCE(SUM(a.sesionesCompletadas), 0) FROM ActividadDiaria a WHERE a.fecha BETWEEN :desde AND :hasta")
+    long sumSesionesCompletadasEntre(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+}
@@ -2,12 +2,16 @@ package com.example.ProyectoGym.Repository;
 
 import com.example.ProyectoGym.Model.Asistencia;
 import com.example.ProyectoGym.Model.Miembro;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -46,11 +50,25 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
     /**
      * Obtiene todas las asistencias registradas en el día actual.
      * Las asistencias se ordenan por fecha de entrada descendente (más recientes primero).
+     * Usa el rango [inicio del día, inicio del día siguiente) para aprovechar el índice por fecha de entrada.
      *
      * @return Lista de asistencias del día actual
      */
-    @Query("SELECT a FROM Asistencia a WHERE CAST(a.fechaHoraEntrada AS date) = CURRENT_DATE ORDER BY a.fechaHoraEntrada DESC")
-    List<Asistencia> findAsistenciasHoy();
+    default List<Asistencia> findAsistenciasHoy() {
+        LocalDateTime inicioDia = LocalDate.now().atStartOfDay();
+        return findAsistenciasEnRango(inicioDia, inicioDia.plusDays(1));
+    }
+
+    /**
+     * Obtiene las asistencias con entrada dentro de un rango semiabierto [inicio, fin).
+     * La condición se aplica directamente sobre la columna para que PostgreSQL use el índice.
+     *
+     * @param inicio Fecha y hora de inicio del rango (inclusive)
+     * @param fin Fecha y hora de fin del rango (exclusivo)
+     * @return Lista de asistencias del rango ordenadas por entrada descendente
+     */
+    @Query("SELECT a FROM Asistencia a WHERE a.fechaHoraEntrada >= :inicio AND a.fechaHoraEntrada < :fin ORDER BY a.fechaHoraEntrada DESC")
+    List<Asistencia> findAsistenciasEnRango(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
     /**
      * Obtiene asistencias registradas entre dos fechas específicas.
@@ -72,6 +90,46 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
      */
     List<Asistencia> findByMiembroOrderByFechaHoraEntradaDesc(Miembro miembro);
 
+    /**
+     * Obtiene la primera pagina del historial de un miembro, de la asistencia mas reciente a la mas antigua.
+     * Se resuelve con el índice compuesto (miembro_id, fecha_hora_entrada, id) sin ordenar en memoria.
+     *
+     * @param miembroId ID del miembro
+     * @param pagina Tamaño de pagina (solo se usa el limite, nunca un desplazamiento)
+     * @return Asistencias más recientes del miembro
+     */
+    @Query("SELECT a FROM Asistencia a WHERE a.miembro.id = :miembroId " +
+            "ORDER BY a.fechaHoraEntrada DESC, a.id DESC")
+    List<Asistencia> findPaginaHistorial(@Param("miembroId") Long miembroId, Pageable pagina);
+
+    /**
+     * Obtiene la pagina del historial de un miembro que sigue a la posicion (fecha, id) indicada.
+     * La condición redundante {@code fechaHoraEntrada <= :fecha} acota el recorrido del índice,
+     * por lo que el costo de cada pagina no depende de cuan antigua sea.
+     *
+     * @param miembroId ID del miembro
+     * @param fecha Fecha de entrada de la ultima asistencia de la pagina anterior
+     * @param id ID de la ultima asistencia de la pagina anterior
+     * @param pagina Tamaño de pagina (solo se usa el limite, nunca un desplazamiento)
+     * @return Asistencias del miembro anteriores al cursor
+     */
+    @Query("SELECT a FROM Asistencia a WHERE a.miembro.id = :miembroId " +
+            "AND a.fechaHoraEntrada <= :fecha " +
+            "AND (a.fechaHoraEntrada < :fecha OR a.id < :id) " +
+            "ORDER BY a.fechaHoraEntrada DESC, a.id DESC")
+    List<Asistencia> findPaginaHistorialAntesDe(@Param("miembroId") Long miembroId,
+                                                @Param("fecha") LocalDateTime fecha,
+                                                @Param("id") Long id,
+                                                Pageable pagina);
+
+    /**
+     * Obtiene la asistencia más antigua registrada.
+     * Útil para conocer desde qué fecha existe historial.
+     *
+     * @return Optional con la primera asistencia, empty si no hay asistencias
+     */
+    Optional<Asistencia> findFirstByOrderByFechaHoraEntradaAsc();
+
     /**
      * Obtiene las asistencias de un miembro específico dentro de un rango de fechas.
      * Permite generar reportes de asistencia personalizados por miembro y período.
@@ -92,8 +150,20 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
      *
      * @return Número de asistencias del día
      */
-    @Query("SELECT COUNT(a) FROM Asistencia a WHERE CAST(a.fechaHoraEntrada AS date) = CURRENT_DATE")
-    long countAsistenciasHoy();
+    default long countAsistenciasHoy() {
+        LocalDateTime inicioDia = LocalDate.now().atStartOfDay();
+        return countAsistenciasEnRango(inicioDia, inicioDia.plusDays(1));
+    }
+
+    /**
+     * Cuenta las asistencias con entrada dentro de un rango semiabierto [inicio, fin).
+     *
+     * @param inicio Fecha y hora de inicio del rango (inclusive)
+     * @param fin Fecha y hora de fin del rango (exclusivo)
+     * @return Número de asistencias del rango
+     */
+    @Query("SELECT COUNT(a) FROM Asistencia a WHERE a.fechaHoraEntrada >= :inicio AND a.fechaHoraEntrada < :fin")
+    long countAsistenciasEnRango(@Param("inicio") LocalDateTime inicio, @Param("fin") LocalDateTime fin);
 
     /**
      * Cuenta el número de miembros que están actualmente en el gimnasio.
@@ -112,8 +182,10 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
      * @param anio Año a consultar
      * @return Lista de asistencias del mes y año especificados
      */
-    @Query("SELECT a FROM Asistencia a WHERE EXTRACT(MONTH FROM a.fechaHoraEntrada) = :mes AND EXTRACT(YEAR FROM a.fechaHoraEntrada) = :anio ORDER BY a.fechaHoraEntrada DESC")
-    List<Asistencia> findByMesAndAnio(@Param("mes") int mes, @Param("anio") int anio);
+    default List<Asistencia> findByMesAndAnio(int mes, int anio) {
+        LocalDateTime inicioMes = YearMonth.of(anio, mes).atDay(1).atStartOfDay();
+        return findAsistenciasEnRango(inicioMes, inicioMes.plusMonths(1));
+    }
 
     /**
      * Cuenta las asistencias de un miembro específico en el mes actual.
@@ -122,8 +194,24 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
      * @param miembro El miembro del cual contar las asistencias
      * @return Número de asistencias del miembro en el mes actual
      */
-    @Query("SELECT COUNT(a) FROM Asistencia a WHERE a.miembro = :miembro AND MONTH(a.fechaHoraEntrada) = MONTH(CURRENT_DATE) AND YEAR(a.fechaHoraEntrada) = YEAR(CURRENT_DATE)")
-    long countAsistenciasMiembroMesActual(@Param("miembro") Miembro miembro);
+    default long countAsistenciasMiembroMesActual(Miembro miembro) {
+        LocalDateTime inicioMes = YearMonth.now().atDay(1).atStartOfDay();
+        return countAsistenciasMiembroEnRango(miembro, inicioMes, inicioMes.plusMonths(1));
+    }
+
+    /**
+     * Cuenta las asistencias de un miembro con entrada dentro de un rango semiabierto [inicio, fin).
+     * Se resuelve con el índice compuesto (miembro_id, fecha_hora_entrada).
+     *
+     * @param miembro El miembro del cual contar las asistencias
+     * @param inicio Fecha y hora de inicio del rango (inclusive)
+     * @param fin Fecha y hora de fin del rango (exclusivo)
+     * @return Número de asistencias del miembro en el rango
+     */
+    @Query("SELECT COUNT(a) FROM Asistencia a WHERE a.miembro = :miembro AND a.fechaHoraEntrada >= :inicio AND a.fechaHoraEntrada < :fin")
+    long countAsistenciasMiembroEnRango(@Param("miembro") Miembro miembro,
+                                        @Param("inicio") LocalDateTime inicio,
+                                        @Param("fin") LocalDateTime fin);
 
     /**
      * Obtiene la lista de miembros que están actualmente en el gimnasio.
@@ -133,4 +221,64 @@ public interface AsistenciaRepository extends JpaRepository<Asistencia, Long> {
      */
     @Query("SELECT a FROM Asistencia a WHERE a.fechaHoraSalida IS NULL ORDER BY a.fechaHoraEntrada DESC")
     List<Asistencia> findMiembrosEnGimnasio();
-}
\ No newline at end of file
+
+    /**
+     * Obtiene en una sola consulta el estado de asistencia del dia de todos los miembros activos.
+     * Retorna una fila por cada asistencia del rango (o una fila sin asistencia si el miembro
+     * no registro entradas), ordenadas por ID de miembro para agruparlas en un solo recorrido.
+     *
+     * @param inicio Inicio del dia (inclusive)
+     * @param fin Inicio del dia siguiente (exclusivo)
+     * @return Proyeccion con datos del miembro y entrada/salida de cada asistencia del dia
+     */
+    @Query("SELECT m.id AS miembroId, m.nombre AS nombre, m.dni AS dni, m.plan AS plan, " +
+            "a.fechaHoraEntrada AS fechaHoraEntrada, a.fechaHoraSalida AS fechaHoraSalida " +
+            "FROM Miembro m LEFT JOIN Asistencia a ON a.miembro = m " +
+            "AND a.fechaHoraEntrada >= :inicio AND a.fechaHoraEntrada < :fin " +
+            "WHERE m.activo = true ORDER BY m.id")
+    List<EstadoAsistenciaDia> findEstadoAsistenciaDelDia(@Param("inicio") LocalDateTime inicio,
+                                                         @Param("fin") LocalDateTime fin);
+
+    /**
+     * Obtiene el ID de miembro y la hora de entrada de todas las asistencias abiertas.
+     * Utilizado para reconstruir y reconciliar el indice de ocupacion en memoria.
+     *
+     * @return Proyeccion de las asistencias sin salida registrada
+     */
+    @Query("SELECT a.id AS id, a.miembro.id AS miembroId, a.fechaHoraEntrada AS fechaHoraEntrada " +
+            "FROM Asistencia a WHERE a.fechaHoraSalida IS NULL")
+    List<AsistenciaAbierta> findAsistenciasAbiertas();
+
+    /**
+     * Obtiene las asistencias abiertas de un conjunto de miembros en una sola consulta.
+     * Utilizado por el registro por lotes para validar entradas y salidas sin una consulta por evento.
+     *
+     * @param miembroIds IDs de los miembros a consultar
+     * @return Proyeccion de las asistencias sin salida registrada de esos miembros
+     */
+    @Query("SELECT a.id AS id, a.miembro.id AS miembroId, a.fechaHoraEntrada AS fechaHoraEntrada " +
+            "FROM Asistencia a WHERE a.miembro.id IN :miembroIds AND a.fechaHoraSalida IS NULL")
+    List<AsistenciaAbierta> findAsistenciasAbiertasByMiembroIds(@Param("miembroIds") Collection<Long> miembroIds);
+
+    /**
+     * Proyeccion del estado de asistencia diaria de un miembro.
+     * Evita cargar entidades completas y la relacion perezosa con Miembro.
+     */
+    interface EstadoAsistenciaDia {
+        Long getMiembroId();
+        String getNombre();
+        String getDni();
+        String getPlan();
+        LocalDateTime getFechaHoraEntrada();
+        LocalDateTime getFechaHoraSalida();
+    }
+
+    /**
+     * Proyeccion de una asistencia abierta: ID, miembro y hora de entrada.
+     */
+    interface AsistenciaAbierta {
+        Long getId();
+        Long getMiembroId();
+        LocalDateTime getFechaHoraEntrada();
+    }
+}
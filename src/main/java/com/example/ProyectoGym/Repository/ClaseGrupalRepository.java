@@ -26,6 +26,14 @@ public interface ClaseGrupalRepository extends JpaRepository<ClaseGrupal, Long>
      */
     List<ClaseGrupal> findByActivaTrue();
 
+    /**
+     * Obtiene todas las clases grupales junto con su instructor en una sola consulta.
+     *
+     * @return Lista de todas las clases con el instructor ya cargado
+     */
+    @Query("SELECT c FROM ClaseGrupal c LEFT JOIN FETCH c.instructor")
+    List<ClaseGrupal> findAllConInstructor();
+
     /**
      * Busca una clase grupal por su nombre exacto.
      *
@@ -58,4 +66,4 @@ public interface ClaseGrupalRepository extends JpaRepository<ClaseGrupal, Long>
      */
     @Query("SELECT COUNT(c) FROM ClaseGrupal c WHERE c.activa = true")
     Long countClasesActivas();
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.ClaseSesion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para las sesiones fechadas de las clases grupales.
+ * El indice por hora de inicio resuelve los calendarios por rango de fechas con una sola busqueda,
+ * y el indice unico (clase_id, inicio) la proxima sesion de cada clase.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface ClaseSesionRepository extends JpaRepository<ClaseSesion, Long> {
+
+    /**
+     * Obtiene la proxima sesion de una clase que aun no comienza.
+     *
+     * @param claseId ID de la clase
+     * @param ahora Fecha y hora de referencia
+     * @return Optional con la proxima sesion, empty si la clase no tiene sesiones programadas
+     */
+    Optional<ClaseSesion> findFirstByClaseIdAndInicioAfterOrderByInicioAsc(Long claseId, LocalDateTime ahora);
+
+    /**
+     * Obtiene las sesiones de clases activas que comienzan en un rango, con su clase e instructor.
+     *
+     * @param desde Inicio del rango (inclusive)
+     * @param hasta Fin del rango (exclusivo)
+     * @return Sesiones del rango ordenadas por hora de inicio
+     */
+    @Query("SELECT s FROM ClaseSesion s JOIN FETCH s.clase c LEFT JOIN FETCH c.instructor " +
+            "WHERE s.inicio >= :desde AND s.inicio < :hasta AND c.activa = true ORDER BY s.inicio")
+    List<ClaseSesion> findEntre(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Obtiene la proxima sesion de cada clase con una sola consulta.
+     *
+     * @param ahora Fecha y hora de referencia
+     * @return Una fila por clase con sesiones programadas
+     */
+    @Query(value = "SELECT DISTINCT ON (clase_id) id AS \"id\", clase_id AS \"claseId\", inicio AS \"inicio\", " +
+            "capacidad AS \"capacidad\", inscritos AS \"inscritos\" FROM clase_sesion " +
+            "WHERE inicio > :ahora ORDER BY clase_id, inicio",
+            nativeQuery = true)
+    List<ProximaSesion> findProximas(@Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Obtiene las sesiones futuras de una clase que tienen miembros en lista de espera.
+     *
+     * @param claseId ID de la clase
+     * @param ahora Fecha y hora de referencia
+     * @return IDs de las sesiones con lista de espera
+     */
+    @Query(value = "SELECT s.id FROM clase_sesion s WHERE s.clase_id = :claseId AND s.inicio > :ahora " +
+            "AND EXISTS (SELECT 1 FROM lista_espera e WHERE e.sesion_id = s.id)",
+            nativeQuery = true)
+    List<Long> findIdsConListaEspera(@Param("claseId") Long claseId, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Ocupa un cupo de la sesion solo si no alcanzo su capacidad.
+     * La actualizacion bloquea la fila de la sesion hasta el fin de la transaccion,
+     * por lo que las reservas concurrentes de la misma sesion se serializan.
+     *
+     * @param sesionId ID de la sesion
+     * @return 1 si se ocupo el cupo, 0 si la sesion esta llena
+     */
+    @Modifying
+    @Query(value = "UPDATE clase_sesion SET inscritos = inscritos + 1 " +
+            "WHERE id = :sesionId AND (capacidad IS NULL OR inscritos < capacidad)",
+            nativeQuery = true)
+    int ocuparCupo(@Param("sesionId") Long sesionId);
+
+    /**
+     * Libera un cupo ocupado de la sesion.
+     *
+     * @param sesionId ID de la sesion
+     * @return 1 si se libero el cupo, 0 si no habia cupos ocupados
+     */
+    @Modifying
+    @Query(value = "UPDATE clase_sesion SET inscritos = inscritos - 1 WHERE id = :sesionId AND inscritos > 0",
+            nativeQuery = true)
+    int liberarCupo(@Param("sesionId") Long sesionId);
+
+    /**
+     * Elimina las sesiones futuras de una clase que nadie reservo ni espera.
+     * Las sesiones con reservas se conservan para respetar la fecha que el miembro eligio.
+     *
+     * @param claseId ID de la clase
+     * @param ahora Fecha y hora de referencia
+     * @return Cantidad de sesiones eliminadas
+     */
+    @Modifying
+    @Query(value = "DELETE FROM clase_sesion s WHERE s.clase_id = :claseId AND s.inicio > :ahora " +
+            "AND NOT EXISTS (SELECT 1 FROM reserva r WHERE r.sesion_id = s.id) " +
+            "AND NOT EXISTS (SELECT 1 FROM lista_espera e WHERE e.sesion_id = s.id)",
+            nativeQuery = true)
+    int eliminarFuturasSinReservas(@Param("claseId") Long claseId, @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Actualiza la capacidad de las sesiones futuras de una clase.
+     *
+     * @param claseId ID de la clase
+     * @param ahora Fecha y hora de referencia
+     * @param capacidad Nueva capacidad (null = sin limite)
+     * @return Cantidad de sesiones actualizadas
+     */
+    @Modifying
+    @Query("UPDATE ClaseSesion s SET s.capacidad = :capacidad WHERE s.clase.id = :claseId AND s.inicio > :ahora")
+    int actualizarCapacidadFuturas(@Param("claseId") Long claseId, @Param("ahora") LocalDateTime ahora,
+                                   @Param("capacidad") Integer capacidad);
+
+    /**
+     * Proyeccion de la proxima sesion de una clase.
+     */
+    interface ProximaSesion {
+        Long getId();
+        Long getClaseId();
+        LocalDateTime getInicio();
+        Integer getCapacidad();
+        Integer getInscritos();
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.EstadisticaMiembro;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio para las estadisticas de visitas por miembro.
+ * Mantiene una fila por miembro que se actualiza con cada salida, de modo que el conteo
+ * de visitas, el tiempo de permanencia y la ultima visita se leen sin recorrer las asistencias.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface EstadisticaMiembroRepository extends JpaRepository<EstadisticaMiembro, Long> {
+
+    /**
+     * Suma una visita cerrada a las estadisticas del miembro, creando su fila si no existe.
+     * Si la visita pertenece a un mes posterior al registrado, los contadores mensuales avanzan;
+     * una visita de un mes anterior (p. ej. una salida tardia) solo suma al mes que le corresponde.
+     *
+     * @param miembroId ID del miembro
+     * @param mes Primer dia del mes de la entrada
+     * @param minutos Duracion de la visita en minutos
+     * @param entrada Fecha y hora de entrada de la visita
+     */
+    @Modifying
+    @Query(value = "INSERT INTO estadisticas_miembro AS e (miembro_id, visitas, minutos_totales, mes_actual, " +
+            "visitas_mes_actual, visitas_mes_anterior, ultima_visita) " +
+            "VALUES (:miembroId, 1, :minutos, :mes, 1, 0, :entrada) " +
+            "ON CONFLICT (miembro_id) DO UPDATE SET visitas = e.visitas + 1, " +
+            "minutos_totales = e.minutos_totales + EXCLUDED.minutos_totales, " +
+            "visitas_mes_anterior = CASE " +
+            "  WHEN EXCLUDED.mes_actual = e.mes_actual THEN e.visitas_mes_anterior " +
+            "  WHEN EXCLUDED.mes_actual = CAST(e.mes_actual + INTERVAL '1 month' AS date) THEN e.visitas_mes_actual " +
+            "  WHEN EXCLUDED.mes_actual > e.mes_actual THEN 0 " +
+            "  WHEN EXCLUDED.mes_actual = CAST(e.mes_actual - INTERVAL '1 month' AS date) THEN e.visitas_mes_anterior + 1 " +
+            "  ELSE e.visitas_mes_anterior END, " +
+            "visitas_mes_actual = CASE " +
+            "  WHEN EXCLUDED.mes_actual = e.mes_actual THEN e.visitas_mes_actual + 1 " +
+            "  WHEN EXCLUDED.mes_actual > e.mes_actual THEN 1 " +
+            "  ELSE e.visitas_mes_actual END, " +
+            "mes_actual = GREATEST(e.mes_actual, EXCLUDED.mes_actual), " +
+            "ultima_visita = GREATEST(e.ultima_visita, EXCLUDED.ultima_visita)",
+            nativeQuery = true)
+    void sumarVisita(@Param("miembroId") Long miembroId, @Param("mes") LocalDate mes,
+                     @Param("minutos") long minutos, @Param("entrada") LocalDateTime entrada);
+
+    /**
+     * Suma a la parte archivada de cada miembro las asistencias cerradas de un periodo que se
+     * van a eliminar de la tabla al archivarlo. Las visitas ya estaban contadas en el total;
+     * solo se registra que ya no pueden recalcularse desde la tabla.
+     *
+     * @param desde Inicio del periodo (inclusive)
+     * @param hasta Fin del periodo (exclusivo)
+     * @param mes Primer dia del mes archivado, para los miembros que aun no tienen estadisticas
+     */
+    @Modifying
+    @Query(value = "INSERT INTO estadisticas_miembro AS e (miembro_id, visitas, minutos_totales, mes_actual, " +
+            "visitas_mes_actual, visitas_mes_anterior, ultima_visita, visitas_archivadas, minutos_archivados) " +
+            "SELECT a.miembro_id, COUNT(*), COALESCE(SUM(a.duracion_minutos), 0), :mes, 0, 0, " +
+            "MAX(a.fecha_hora_entrada), COUNT(*), COALESCE(SUM(a.duracion_minutos), 0) " +
+            "FROM asistencias a WHERE a.fecha_hora_entrada >= :desde AND a.fecha_hora_entrada < :hasta " +
+            "AND a.fecha_hora_salida IS NOT NULL GROUP BY a.miembro_id " +
+            "ON CONFLICT (miembro_id) DO UPDATE SET " +
+            "visitas_archivadas = e.visitas_archivadas + EXCLUDED.visitas_archivadas, " +
+            "minutos_archivados = e.minutos_archivados + EXCLUDED.minutos_archivados",
+            nativeQuery = true)
+    void sumarArchivadas(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta,
+                         @Param("mes") LocalDate mes);
+
+    /**
+     * Descuenta de la parte archivada de un miembro las asistencias restauradas a la tabla,
+     * que vuelven a recalcularse desde ella.
+     *
+     * @param miembroId ID del miembro
+     * @param visitas Asistencias restauradas
+     * @param minutos Minutos de las asistencias restauradas
+     */
+    @Modifying
+    @Query(value = "UPDATE estadisticas_miembro SET " +
+            "visitas_archivadas = GREATEST(visitas_archivadas - :visitas, 0), " +
+            "minutos_archivados = GREATEST(minutos_archivados - :minutos, 0) " +
+            "WHERE miembro_id = :miembroId",
+            nativeQuery = true)
+    void descontarArchivadas(@Param("miembroId") Long miembroId, @Param("visitas") long visitas,
+                             @Param("minutos") long minutos);
+
+    /**
+     * Elimina las estadisticas que no tienen asistencias archivadas antes de reconstruirlas.
+     */
+    @Modifying
+    @Query(value = "DELETE FROM estadisticas_miembro WHERE visitas_archivadas = 0", nativeQuery = true)
+    void eliminarSinArchivadas();
+
+    /**
+     * Deja las estadisticas con asistencias archivadas solo con esa parte antes de reconstruirlas.
+     * La ultima visita se conserva: una visita archivada es anterior a cualquiera de la tabla.
+     *
+     * @param mes Primer dia del mes en curso
+     */
+    @Modifying
+    @Query(value = "UPDATE estadisticas_miembro SET visitas = visitas_archivadas, " +
+            "minutos_totales = minutos_archivados, mes_actual = :mes, visitas_mes_actual = 0, visitas_mes_anterior = 0",
+            nativeQuery = true)
+    void reiniciarConArchivadas(@Param("mes") LocalDate mes);
+
+    /**
+     * Recalcula las estadisticas de todos los miembros desde las asistencias cerradas,
+     * sumando la parte archivada de quienes la tengan.
+     *
+     * @param mes Primer dia del mes en curso
+     * @param inicioMes Inicio del mes en curso
+     * @param inicioMesAnterior Inicio del mes anterior
+     * @return Cantidad de miembros con estadisticas escritas
+     */
+    @Modifying
+    @Query(value = "INSERT INTO estadisticas_miembro AS e (miembro_id, visitas, minutos_totales, mes_actual, " +
+            "visitas_mes_actual, visitas_mes_anterior, ultima_visita) " +
+            "SELECT a.miembro_id, COUNT(*), COALESCE(SUM(a.duracion_minutos), 0), :mes, " +
+            "COUNT(*) FILTER (WHERE a.fecha_hora_entrada >= :inicioMes), " +
+            "COUNT(*) FILTER (WHERE a.fecha_hora_entrada >= :inicioMesAnterior AND a.fecha_hora_entrada < :inicioMes), " +
+            "MAX(a.fecha_hora_entrada) " +
+            "FROM asistencias a WHERE a.fecha_hora_salida IS NOT NULL GROUP BY a.miembro_id " +
+            "ON CONFLICT (miembro_id) DO UPDATE SET visitas = e.visitas_archivadas + EXCLUDED.visitas, " +
+            "minutos_totales = e.minutos_archivados + EXCLUDED.minutos_totales, mes_actual = EXCLUDED.mes_actual, " +
+            "visitas_mes_actual = EXCLUDED.visitas_mes_actual, visitas_mes_anterior = EXCLUDED.visitas_mes_anterior, " +
+            "ultima_visita = EXCLUDED.ultima_visita",
+            nativeQuery = true)
+    int recalcularTodas(@Param("mes") LocalDate mes, @Param("inicioMes") LocalDateTime inicioMes,
+                        @Param("inicioMesAnterior") LocalDateTime inicioMesAnterior);
+}
@@ -0,0 +1,17 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.InasistenciaMiembro;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Repositorio para los contadores de inasistencias a clases reservadas por miembro.
+ * Mantiene una fila por miembro que InasistenciasService actualiza al conciliar cada sesion,
+ * de modo que la penalizacion al reservar se resuelve con una busqueda por clave primaria.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface InasistenciaMiembroRepository extends JpaRepository<InasistenciaMiembro, Long> {
+}
@@ -0,0 +1,84 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.ListaEspera;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio para las listas de espera de sesiones de clases grupales llenas.
+ * Cada sesion fechada tiene una cola FIFO ordenada por posicion de llegada; el indice
+ * (sesion_id, posicion) resuelve tanto la cabeza de la cola como la posicion de un miembro.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface ListaEsperaRepository extends JpaRepository<ListaEspera, Long> {
+
+    /**
+     * Agrega un miembro al final de la lista de espera de una sesion.
+     *
+     * @param miembroId ID del miembro
+     * @param claseId ID de la clase de la sesion
+     * @param sesionId ID de la sesion
+     * @param fecha Fecha y hora de la solicitud
+     * @return 1 si se agrego, 0 si el miembro ya estaba en la lista
+     */
+    @Modifying
+    @Query(value = "INSERT INTO lista_espera (miembro_id, clase_id, sesion_id, posicion, fecha_solicitud) " +
+            "VALUES (:miembroId, :claseId, :sesionId, nextval('lista_espera_posicion_seq'), :fecha) " +
+            "ON CONFLICT (miembro_id, sesion_id) DO NOTHING",
+            nativeQuery = true)
+    int agregar(@Param("miembroId") Long miembroId, @Param("claseId") Long claseId,
+                @Param("sesionId") Long sesionId, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Quita a un miembro de la lista de espera de una sesion.
+     *
+     * @param miembroId ID del miembro
+     * @param sesionId ID de la sesion
+     * @return 1 si el miembro estaba en la lista, 0 en caso contrario
+     */
+    @Modifying
+    @Query(value = "DELETE FROM lista_espera WHERE miembro_id = :miembroId AND sesion_id = :sesionId",
+            nativeQuery = true)
+    int quitar(@Param("miembroId") Long miembroId, @Param("sesionId") Long sesionId);
+
+    /**
+     * Calcula la posicion actual (1 = siguiente en ser promovido) de un miembro en la lista de una sesion.
+     *
+     * @param miembroId ID del miembro
+     * @param sesionId ID de la sesion
+     * @return Posicion en la lista, o null si el miembro no esta en ella
+     */
+    @Query(value = "SELECT (SELECT COUNT(*) FROM lista_espera o WHERE o.sesion_id = e.sesion_id " +
+            "AND o.posicion <= e.posicion) FROM lista_espera e WHERE e.miembro_id = :miembroId AND e.sesion_id = :sesionId",
+            nativeQuery = true)
+    Long findPosicion(@Param("miembroId") Long miembroId, @Param("sesionId") Long sesionId);
+
+    /**
+     * Obtiene las posiciones actuales de un miembro en todas las listas de espera en que se encuentra.
+     *
+     * @param miembroId ID del miembro
+     * @return Una fila por sesion con su posicion en la lista
+     */
+    @Query(value = "SELECT e.sesion_id AS \"sesionId\", (SELECT COUNT(*) FROM lista_espera o " +
+            "WHERE o.sesion_id = e.sesion_id AND o.posicion <= e.posicion) AS \"posicion\" " +
+            "FROM lista_espera e WHERE e.miembro_id = :miembroId AND e.sesion_id IS NOT NULL",
+            nativeQuery = true)
+    List<PosicionEspera> findPosicionesByMiembro(@Param("miembroId") Long miembroId);
+
+    /**
+     * Proyeccion de la posicion de un miembro en la lista de espera de una sesion.
+     */
+    interface PosicionEspera {
+        Long getSesionId();
+        Long getPosicion();
+    }
+}
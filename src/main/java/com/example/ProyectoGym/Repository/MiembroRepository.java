@@ -157,4 +157,23 @@ public interface MiembroRepository extends JpaRepository<Miembro, Long> {
      * @return Lista de miembros registrados en el rango de fechas
      */
     List<Miembro> findByFechaRegistroBetween(LocalDate inicio, LocalDate fin);
-}
\ No newline at end of file
+
+    /**
+     * Obtiene solo los datos necesarios para validar el acceso de un miembro por DNI.
+     * Utilizado por el check-in del kiosco, sin cargar la entidad ni su plan.
+     *
+     * @param dni Documento Nacional de Identidad del miembro
+     * @return Optional con ID, estado y fecha de vencimiento, empty si el DNI no existe
+     */
+    @Query("SELECT m.id AS id, m.activo AS activo, m.fechaVencimiento AS fechaVencimiento FROM Miembro m WHERE m.dni = :dni")
+    Optional<DatosAcceso> findDatosAccesoByDni(@Param("dni") String dni);
+
+    /**
+     * Proyeccion con los datos de acceso de un miembro.
+     */
+    interface DatosAcceso {
+        Long getId();
+        Boolean getActivo();
+        LocalDate getFechaVencimiento();
+    }
+}
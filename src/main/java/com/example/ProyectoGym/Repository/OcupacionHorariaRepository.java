@@ -0,0 +1,126 @@
+package com.example.ProyectoGym.Repository;
+
+import com.example.ProyectoGym.Model.OcupacionHoraria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio para el resumen de ocupacion por hora del gimnasio.
+ * Mantiene de forma incremental entradas, salidas y pico de miembros presentes por fecha y hora,
+ * de modo que los reportes de horas pico no necesitan recorrer la tabla de asistencias.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Repository
+public interface OcupacionHorariaRepository extends JpaRepository<OcupacionHoraria, Long> {
+
+    /**
+     * Suma una entrada a la hora indicada y actualiza su pico de ocupacion.
+     * Crea la fila de la hora si aun no existe. La ocupacion se cuenta en las asistencias confirmadas
+     * abiertas en el momento de la entrada (incluida la propia), por lo que no depende de cuando se procese el evento.
+     *
+     * @param fecha Fecha de la entrada
+     * @param hora Hora de la entrada (0-23)
+     * @param momento Fecha y hora de la entrada
+     * @param desde Entrada mas antigua que puede seguir abierta en ese momento (acota la busqueda en el indice)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ocupacion_horaria (fecha, hora, entradas, salidas, pico_concurrente) " +
+            "VALUES (:fecha, :hora, 1, 0, (SELECT COUNT(*) FROM asistencias a " +
+            "  WHERE a.fecha_hora_entrada >= :desde AND a.fecha_hora_entrada <= :momento " +
+            "  AND (a.fecha_hora_salida IS NULL OR a.fecha_hora_salida > :momento))) " +
+            "ON CONFLICT (fecha, hora) DO UPDATE SET entradas = ocupacion_horaria.entradas + 1, " +
+            "pico_concurrente = GREATEST(ocupacion_horaria.pico_concurrente, EXCLUDED.pico_concurrente)",
+            nativeQuery = true)
+    void sumarEntrada(@Param("fecha") LocalDate fecha, @Param("hora") int hora,
+                      @Param("momento") LocalDateTime momento, @Param("desde") LocalDateTime desde);
+
+    /**
+     * Suma una salida a la hora indicada y actualiza su pico de ocupacion.
+     * Crea la fila de la hora si aun no existe. La ocupacion se cuenta en las asistencias confirmadas
+     * abiertas justo antes de la salida (incluida la que se cierra).
+     *
+     * @param fecha Fecha de la salida
+     * @param hora Hora de la salida (0-23)
+     * @param momento Fecha y hora de la salida
+     * @param desde Entrada mas antigua que puede seguir abierta en ese momento (acota la busqueda en el indice)
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ocupacion_horaria (fecha, hora, entradas, salidas, pico_concurrente) " +
+            "VALUES (:fecha, :hora, 0, 1, (SELECT COUNT(*) FROM asistencias a " +
+            "  WHERE a.fecha_hora_entrada >= :desde AND a.fecha_hora_entrada < :momento " +
+            "  AND (a.fecha_hora_salida IS NULL OR a.fecha_hora_salida >= :momento))) " +
+            "ON CONFLICT (fecha, hora) DO UPDATE SET salidas = ocupacion_horaria.salidas + 1, " +
+            "pico_concurrente = GREATEST(ocupacion_horaria.pico_concurrente, EXCLUDED.pico_concurrente)",
+            nativeQuery = true)
+    void sumarSalida(@Param("fecha") LocalDate fecha, @Param("hora") int hora,
+                     @Param("momento") LocalDateTime momento, @Param("desde") LocalDateTime desde);
+
+    /**
+     * Recalcula el resumen por hora de un periodo a partir del historial de asistencias.
+     * Recorre entradas (+1) y salidas (-1) en orden cronologico partiendo de los miembros
+     * presentes al inicio del periodo; el pico de cada hora es la maxima ocupacion alcanzada.
+     * Sobrescribe las horas del periodo que ya existan.
+     *
+     * @param desde Inicio del periodo (inclusive)
+     * @param hasta Fin del periodo (exclusivo)
+     * @return Cantidad de horas escritas
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ocupacion_horaria (fecha, hora, entradas, salidas, pico_concurrente) " +
+            "SELECT CAST(date_trunc('hour', e.t) AS date), CAST(EXTRACT(HOUR FROM e.t) AS integer), " +
+            "SUM(CASE WHEN e.delta = 1 THEN 1 ELSE 0 END), SUM(CASE WHEN e.delta = -1 THEN 1 ELSE 0 END), " +
+            "MAX(CASE WHEN e.delta = -1 THEN e.ocupacion + 1 ELSE e.ocupacion END) " +
+            "FROM (SELECT ev.t, ev.delta, " +
+            "  (SELECT COUNT(*) FROM asistencias p WHERE p.fecha_hora_entrada < :desde " +
+            "   AND (p.fecha_hora_salida IS NULL OR p.fecha_hora_salida >= :desde)) " +
+            "  + SUM(ev.delta) OVER (ORDER BY ev.t, ev.delta ROWS UNBOUNDED PRECEDING) AS ocupacion " +
+            "  FROM (SELECT fecha_hora_entrada AS t, 1 AS delta FROM asistencias " +
+            "        WHERE fecha_hora_entrada >= :desde AND fecha_hora_entrada < :hasta " +
+            "        UNION ALL " +
+            "        SELECT fecha_hora_salida, -1 FROM asistencias " +
+            "        WHERE fecha_hora_salida >= :desde AND fecha_hora_salida < :hasta) ev) e " +
+            "GROUP BY date_trunc('hour', e.t), EXTRACT(HOUR FROM e.t) " +
+            "ON CONFLICT (fecha, hora) DO UPDATE SET entradas = EXCLUDED.entradas, " +
+            "salidas = EXCLUDED.salidas, pico_concurrente = EXCLUDED.pico_concurrente",
+            nativeQuery = true)
+    int recalcularPeriodo(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Agrupa el resumen de un rango de fechas por dia de la semana y hora.
+     * Lee unicamente la tabla de resumen (a lo sumo 24 filas por dia del rango).
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (exclusiva)
+     * @return Una fila por cada combinacion de dia de la semana (1 = lunes) y hora con actividad
+     */
+    @Query(value = "SELECT CAST(EXTRACT(ISODOW FROM o.fecha) AS integer) AS \"diaSemana\", o.hora AS \"hora\", " +
+            "COUNT(*) AS \"dias\", SUM(o.entradas) AS \"entradas\", SUM(o.salidas) AS \"salidas\", " +
+            "MAX(o.pico_concurrente) AS \"picoMaximo\", " +
+            "CAST(AVG(o.pico_concurrente) AS double precision) AS \"picoPromedio\" " +
+            "FROM ocupacion_horaria o WHERE o.fecha >= :desde AND o.fecha < :hasta " +
+            "GROUP BY EXTRACT(ISODOW FROM o.fecha), o.hora ORDER BY 1, 2",
+            nativeQuery = true)
+    List<CeldaMapaCalor> findMapaCalor(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    /**
+     * Proyeccion de una celda del mapa de calor de ocupacion (dia de la semana x hora).
+     */
+    interface CeldaMapaCalor {
+        Integer getDiaSemana();
+        Integer getHora();
+        Long getDias();
+        Long getEntradas();
+        Long getSalidas();
+        Integer getPicoMaximo();
+        Double getPicoPromedio();
+    }
+}
@@ -4,6 +4,7 @@ import com.example.ProyectoGym.Model.Reserva;
 import com.example.ProyectoGym.Model.Miembro;
 import com.example.ProyectoGym.Model.ClaseGrupal;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -25,7 +26,7 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
      * Busca las reservas de un miembro filtradas por estado.
      *
      * @param miembro El miembro del cual buscar reservas
-     * @param estado Estado de la reserva ("ACTIVA", "CANCELADA")
+     * @param estado Estado de la reserva ("ACTIVA", "CANCELADA", "ASISTIO", "NO_ASISTIO")
      * @return Lista de reservas del miembro con el estado especificado
      */
     List<Reserva> findByMiembroAndEstado(Miembro miembro, String estado);
@@ -41,6 +42,16 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
      */
     Optional<Reserva> findByMiembroAndClaseGrupalAndEstado(Miembro miembro, ClaseGrupal claseGrupal, String estado);
 
+    /**
+     * Verifica si un miembro tiene una reserva con un estado determinado para una sesion específica.
+     *
+     * @param miembroId ID del miembro
+     * @param sesionId ID de la sesion
+     * @param estado Estado de la reserva a buscar
+     * @return true si existe la reserva
+     */
+    boolean existsByMiembroIdAndSesionIdAndEstado(Long miembroId, Long sesionId, String estado);
+
     /**
      * Cuenta el número de reservas activas de un miembro específico.
      * Permite controlar límites de reservas simultáneas por miembro.
@@ -61,6 +72,27 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
     @Query("SELECT COUNT(r) FROM Reserva r WHERE r.claseGrupal = :clase AND r.estado = 'ACTIVA'")
     Long countReservasActivasByClase(@Param("clase") ClaseGrupal clase);
 
+    /**
+     * Cuenta las reservas activas de todas las clases, sumando todas sus sesiones,
+     * con una sola consulta agrupada.
+     *
+     * @return Una fila por clase con al menos una reserva activa
+     */
+    @Query("SELECT r.claseGrupal.id AS claseId, COUNT(r) AS reservas FROM Reserva r " +
+            "WHERE r.estado = 'ACTIVA' GROUP BY r.claseGrupal.id")
+    List<ReservasPorClase> countReservasActivasPorClase();
+
+    /**
+     * Cancela una reserva solo si sigue activa.
+     * Evita que dos cancelaciones simultáneas de la misma reserva liberen dos cupos.
+     *
+     * @param reservaId ID de la reserva a cancelar
+     * @return 1 si la reserva se canceló, 0 si ya no estaba activa
+     */
+    @Modifying
+    @Query("UPDATE Reserva r SET r.estado = 'CANCELADA' WHERE r.id = :reservaId AND r.estado = 'ACTIVA'")
+    int cancelarSiActiva(@Param("reservaId") Long reservaId);
+
     /**
      * Cuenta el total de reservas según su estado.
      * Útil para generar estadísticas generales del sistema de reservas.
@@ -70,4 +102,12 @@ public interface ReservaRepository extends JpaRepository<Reserva, Long> {
      */
     @Query("SELECT COUNT(r) FROM Reserva r WHERE r.estado = :estado")
     Long countByEstado(@Param("estado") String estado);
-}
\ No newline at end of file
+
+    /**
+     * Proyeccion del conteo de reservas activas de una clase.
+     */
+    interface ReservasPorClase {
+        Long getClaseId();
+        Long getReservas();
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.List;
 
 /**
@@ -36,10 +37,25 @@ public interface SesionCompletadaRepository extends JpaRepository<SesionCompleta
      * @param miembro El miembro del cual contar sesiones
      * @return Cantidad de sesiones completadas en el mes actual
      */
+    default Long countSesionesEsteMes(Miembro miembro) {
+        LocalDate inicioMes = YearMonth.now().atDay(1);
+        return countSesionesEnRango(miembro, inicioMes, inicioMes.plusMonths(1));
+    }
+
+    /**
+     * Cuenta las sesiones completadas por un miembro en un rango semiabierto [inicio, fin).
+     * Se resuelve con el indice compuesto (miembro_id, fecha_completada).
+     *
+     * @param miembro El miembro del cual contar sesiones
+     * @param inicio Fecha inicial del rango (inclusive)
+     * @param fin Fecha final del rango (exclusiva)
+     * @return Cantidad de sesiones completadas en el rango
+     */
     @Query("SELECT COUNT(s) FROM SesionCompletada s WHERE s.miembro = :miembro " +
-            "AND MONTH(s.fechaCompletada) = MONTH(CURRENT_DATE) " +
-            "AND YEAR(s.fechaCompletada) = YEAR(CURRENT_DATE)")
-    Long countSesionesEsteMes(@Param("miembro") Miembro miembro);
+            "AND s.fechaCompletada >= :inicio AND s.fechaCompletada < :fin")
+    Long countSesionesEnRango(@Param("miembro") Miembro miembro,
+                              @Param("inicio") LocalDate inicio,
+                              @Param("fin") LocalDate fin);
 
     /**
      * Cuenta el total de sesiones completadas por un miembro desde su registro.
@@ -65,10 +81,10 @@ public interface SesionCompletadaRepository extends JpaRepository<SesionCompleta
      * @param miembro El miembro del cual contar sesiones
      * @return Cantidad de sesiones completadas en el mes anterior
      */
-    @Query("SELECT COUNT(s) FROM SesionCompletada s WHERE s.miembro = :miembro " +
-            "AND MONTH(s.fechaCompletada) = MONTH(CURRENT_DATE) - 1 " +
-            "AND YEAR(s.fechaCompletada) = YEAR(CURRENT_DATE)")
-    Long countSesionesMesAnterior(@Param("miembro") Miembro miembro);
+    default Long countSesionesMesAnterior(Miembro miembro) {
+        LocalDate inicioMesAnterior = YearMonth.now().minusMonths(1).atDay(1);
+        return countSesionesEnRango(miembro, inicioMesAnterior, inicioMesAnterior.plusMonths(1));
+    }
 
     /**
      * Cuenta las sesiones completadas en una fecha especifica.
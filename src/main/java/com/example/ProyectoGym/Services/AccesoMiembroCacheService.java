@@ -0,0 +1,161 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache acotada en memoria que resuelve un DNI a los datos de acceso del miembro
+ * (ID, estado activo y fecha de vencimiento) para el check-in del kiosco.
+ * Se descartan primero las entradas menos usadas al alcanzar el maximo configurado.
+ * MiembroService invalida la entrada de un DNI cada vez que modifica esos datos.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class AccesoMiembroCacheService {
+
+    @Autowired
+    private MiembroRepository miembroRepository;
+
+    private final Map<String, AccesoMiembro> cache;
+
+    // Se incrementa en cada invalidacion; una carga iniciada antes de una invalidacion no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+
+    private final Counter aciertos;
+    private final Counter fallos;
+
+    public AccesoMiembroCacheService(@Value("${gym.kiosco.cache.maximo:10000}") int maximo,
+                                     MeterRegistry registry) {
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AccesoMiembro> mayor) {
+                return size() > maximo;
+            }
+        };
+        this.aciertos = Counter.builder("gym.kiosco.cache.consultas")
+                .tag("resultado", "acierto")
+                .description("Consultas de DNI resueltas desde la cache")
+                .register(registry);
+        this.fallos = Counter.builder("gym.kiosco.cache.consultas")
+                .tag("resultado", "fallo")
+                .description("Consultas de DNI resueltas desde la base de datos")
+                .register(registry);
+        Gauge.builder("gym.kiosco.cache.tamano", this, servicio -> servicio.tamano())
+                .description("DNIs almacenados en la cache del kiosco")
+                .register(registry);
+    }
+
+    /**
+     * Obtiene los datos de acceso de un miembro por DNI, consultando la base de datos
+     * solo si el DNI no esta en cache.
+     *
+     * @param dni DNI ingresado en el kiosco
+     * @return Datos de acceso del miembro o null si el DNI no esta registrado
+     */
+    public AccesoMiembro obtener(String dni) {
+        AccesoMiembro acceso;
+        synchronized (cache) {
+            acceso = cache.get(dni);
+        }
+        if (acceso != null) {
+            aciertos.increment();
+            return acceso;
+        }
+
+        fallos.increment();
+        long generacionInicial = generacion.get();
+        acceso = miembroRepository.findDatosAccesoByDni(dni)
+                .map(datos -> new AccesoMiembro(datos.getId(), Boolean.TRUE.equals(datos.getActivo()),
+                        datos.getFechaVencimiento()))
+                .orElse(null);
+
+        // Los DNI inexistentes no se guardan para que un registro nuevo sea visible de inmediato
+        if (acceso != null) {
+            synchronized (cache) {
+                if (generacion.get() == generacionInicial) {
+                    cache.put(dni, acceso);
+                }
+            }
+        }
+        return acceso;
+    }
+
+    /**
+     * Obtiene los datos de acceso de un miembro por DNI solo desde la cache, sin consultar
+     * la base de datos (por ejemplo, cuando no esta disponible).
+     *
+     * @param dni DNI ingresado en el kiosco
+     * @return Datos de acceso en cache o null si el DNI no esta en cache
+     */
+    public AccesoMiembro obtenerDeCache(String dni) {
+        synchronized (cache) {
+            return cache.get(dni);
+        }
+    }
+
+    /**
+     * Descarta los datos en cache de un DNI tras modificar el miembro.
+     *
+     * @param dni DNI del miembro modificado
+     */
+    public void invalidar(String dni) {
+        synchronized (cache) {
+            generacion.incrementAndGet();
+            cache.remove(dni);
+        }
+    }
+
+    /**
+     * Descarta todos los datos en cache (por ejemplo, tras una actualizacion masiva de estados).
+     */
+    public void invalidarTodo() {
+        synchronized (cache) {
+            generacion.incrementAndGet();
+            cache.clear();
+        }
+    }
+
+    private int tamano() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Datos de acceso de un miembro almacenados en la cache.
+     */
+    public static class AccesoMiembro {
+        private final Long miembroId;
+        private final boolean activo;
+        private final LocalDate fechaVencimiento;
+
+        AccesoMiembro(Long miembroId, boolean activo, LocalDate fechaVencimiento) {
+            this.miembroId = miembroId;
+            this.activo = activo;
+            this.fechaVencimiento = fechaVencimiento;
+        }
+
+        public Long getMiembroId() {
+            return miembroId;
+        }
+
+        /**
+         * Misma regla que registrarEntrada: activo y con membresia no vencida a la fecha de hoy.
+         */
+        public boolean puedeIngresar() {
+            return activo && fechaVencimiento != null && !LocalDate.now().isAfter(fechaVencimiento);
+        }
+    }
+}
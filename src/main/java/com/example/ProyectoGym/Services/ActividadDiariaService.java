@@ -0,0 +1,146 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Model.ActividadDiaria;
+import com.example.ProyectoGym.Repository.ActividadDiariaRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+/**
+ * Servicio de contadores de actividad diaria del gimnasio: entradas, salidas, sesiones de
+ * rutina completadas y reservas de clases por dia, en una sola tabla compacta.
+ * Las entradas y salidas se cuentan dentro de la transaccion que las registra; las sesiones
+ * y reservas, junto a la escritura que las crea. Cada noche se recalcula el dia anterior
+ * desde las tablas de origen para corregir cualquier diferencia.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class ActividadDiariaService {
+
+    @Autowired
+    private ActividadDiariaRepository actividadDiariaRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Cuenta cada entrada o salida antes de confirmar la transaccion que la registra.
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void registrarAsistencia(EventoAsistencia evento) {
+        if (evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+            actividadDiariaRepository.sumar(evento.getFechaHoraEntrada().toLocalDate(), 1, 0, 0, 0);
+        } else {
+            actividadDiariaRepository.sumar(evento.getFechaHoraSalida().toLocalDate(), 0, 1, 0, 0);
+        }
+    }
+
+    /**
+     * Suma (o resta, si la sesion se elimino) una sesion de rutina completada.
+     *
+     * @param fecha Fecha de la sesion
+     * @param cantidad 1 al registrarla, -1 al eliminarla
+     */
+    public void registrarSesionCompletada(LocalDate fecha, int cantidad) {
+        actividadDiariaRepository.sumar(fecha, 0, 0, cantidad, 0);
+    }
+
+    /**
+     * Suma una reserva de clase realizada.
+     *
+     * @param fecha Fecha en que se realizo la reserva
+     */
+    public void registrarReserva(LocalDate fecha) {
+        actividadDiariaRepository.sumar(fecha, 0, 0, 0, 1);
+    }
+
+    /**
+     * Calcula los contadores del dia actual desde las tablas de origen si aun no existen,
+     * por ejemplo la primera vez que se inicia la aplicacion con datos previos.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (!actividadDiariaRepository.existsById(LocalDate.now())) {
+            recalcular(LocalDate.now());
+        }
+    }
+
+    /**
+     * Recalcula los contadores del dia anterior una vez cerrado.
+     */
+    @Scheduled(cron = "${gym.actividad.recalculo-cron:0 5 0 * * *}")
+    public void recalcularDiaAnterior() {
+        recalcular(LocalDate.now().minusDays(1));
+    }
+
+    /**
+     * Recalcula los contadores de una fecha desde las tablas de origen.
+     * Bloquea la tabla de contadores durante el recalculo para que los incrementos
+     * concurrentes se apliquen sobre el resultado y no se pierdan.
+     *
+     * @param fecha Fecha a recalcular
+     */
+    public void recalcular(LocalDate fecha) {
+        transactionTemplate.executeWithoutResult(estado -> {
+            jdbcTemplate.execute("LOCK TABLE actividad_diaria IN SHARE ROW EXCLUSIVE MODE");
+            actividadDiariaRepository.recalcularDia(fecha);
+        });
+    }
+
+    /**
+     * Obtiene los contadores de una fecha.
+     *
+     * @param fecha Fecha a consultar
+     * @return Contadores del dia, en cero si no hubo actividad
+     */
+    public ActividadDiaria obtenerDia(LocalDate fecha) {
+        return actividadDiariaRepository.findById(fecha).orElseGet(() -> new ActividadDiaria(fecha));
+    }
+
+    /**
+     * Obtiene los contadores del dia actual.
+     *
+     * @return Contadores de hoy
+     */
+    public ActividadDiaria obtenerHoy() {
+        return obtenerDia(LocalDate.now());
+    }
+
+    /**
+     * Suma las entradas al gimnasio registradas en un rango de fechas.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @return Total de entradas
+     */
+    public long contarEntradas(LocalDate desde, LocalDate hasta) {
+        return actividadDiariaRepository.sumEntradasEntre(desde, hasta);
+    }
+
+    /**
+     * Suma las sesiones de rutina completadas en un rango de fechas.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @return Total de sesiones completadas
+     */
+    public long contarSesionesCompletadas(LocalDate desde, LocalDate hasta) {
+        return actividadDiariaRepository.sumSesionesCompletadasEntre(desde, hasta);
+    }
+}
@@ -41,7 +41,10 @@ public class AdminService {
     private AsignacionRutinaRepository asignacionRutinaRepository;
 
     @Autowired
-    private SesionCompletadaRepository sesionCompletadaRepository;
+    private ActividadDiariaService actividadDiariaService;
+
+    @Autowired
+    private ClaseOcupacionSnapshotService claseOcupacionSnapshotService;
 
     /**
      * Obtiene el numero de miembros activos en el gimnasio.
@@ -64,13 +67,12 @@ public class AdminService {
 
     /**
      * Cuenta las asistencias registradas en el dia actual.
-     * Se basa en sesiones completadas en la fecha de hoy.
+     * Se basa en las entradas al gimnasio del contador de actividad diaria.
      *
      * @return Cantidad de asistencias del dia
      */
     public long obtenerAsistenciasHoy() {
-        LocalDate hoy = LocalDate.now();
-        return sesionCompletadaRepository.countByFechaCompletada(hoy);
+        return actividadDiariaService.obtenerHoy().getEntradas();
     }
 
     /**
@@ -155,12 +157,13 @@ public class AdminService {
 
     /**
      * Obtiene un resumen de todas las clases grupales con informacion relevante.
-     * Incluye nombre, instructor, horario, cantidad de inscritos y capacidad.
+     * Incluye nombre, instructor, horario, inscritos en la proxima sesion y capacidad.
      *
      * @return Lista de mapas con informacion resumida de cada clase
      */
     public List<Map<String, Object>> obtenerResumenClases() {
-        List<com.example.ProyectoGym.Model.ClaseGrupal> clases = claseGrupalRepository.findAll();
+        List<com.example.ProyectoGym.Model.ClaseGrupal> clases = claseGrupalRepository.findAllConInstructor();
+        Map<Long, Long> inscritos = claseOcupacionSnapshotService.obtenerInscritosProximaSesion();
 
         return clases.stream().map(clase -> {
             Map<String, Object> resumen = new HashMap<>();
@@ -170,7 +173,7 @@ public class AdminService {
                     clase.getInstructor().getNombre() : "Sin asignar");
             resumen.put("diaSemana", clase.getDiaSemana());
             resumen.put("horaInicio", clase.getHoraInicio());
-            resumen.put("inscritos", reservaRepository.countReservasActivasByClase(clase));
+            resumen.put("inscritos", inscritos.getOrDefault(clase.getId(), 0L));
             resumen.put("capacidad", clase.getCapacidad());
             return resumen;
         }).toList();
@@ -253,8 +256,7 @@ public class AdminService {
         reporte.put("ingresosMes", calcularIngresosMes());
         reporte.put("miembrosActivos", obtenerMiembrosActivos());
 
-        long asistenciasMes = sesionCompletadaRepository
-                .countByFechaCompletadaBetween(inicioMes, finMes);
+        long asistenciasMes = actividadDiariaService.contarEntradas(inicioMes, finMes);
         reporte.put("asistenciasMes", asistenciasMes);
 
         reporte.put("clasesPopulares", obtenerClasesPopulares(5));
@@ -263,7 +265,8 @@ public class AdminService {
     }
 
     /**
-     * Obtiene las clases mas populares ordenadas por numero de reservas.
+     * Obtiene las clases mas populares ordenadas por numero de reservas activas
+     * en todas sus sesiones programadas.
      *
      * @param limite Cantidad maxima de clases a retornar
      * @return Lista de clases con su cantidad de reservas, ordenadas descendentemente
@@ -271,12 +274,16 @@ public class AdminService {
     public List<Map<String, Object>> obtenerClasesPopulares(int limite) {
         List<com.example.ProyectoGym.Model.ClaseGrupal> clases = claseGrupalRepository
                 .findByActivaTrue();
+        Map<Long, Long> reservasActivas = new HashMap<>();
+        for (ReservaRepository.ReservasPorClase fila : reservaRepository.countReservasActivasPorClase()) {
+            reservasActivas.put(fila.getClaseId(), fila.getReservas());
+        }
 
         return clases.stream()
                 .map(clase -> {
                     Map<String, Object> info = new HashMap<>();
                     info.put("nombre", clase.getNombre());
-                    info.put("reservas", reservaRepository.countReservasActivasByClase(clase));
+                    info.put("reservas", reservasActivas.getOrDefault(clase.getId(), 0L));
                     return info;
                 })
                 .sorted((a, b) -> Long.compare(
@@ -0,0 +1,310 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.TicketAdmision;
+import com.example.ProyectoGym.Model.ClaseSesion;
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Modo opcional de admision para las reservas de clases en momentos de alta demanda.
+ * Cada solicitud se encola en una cola acotada en memoria de su sesion y recibe un ticket
+ * que el cliente consulta. Un unico hilo admite las solicitudes en orden de llegada a una tasa
+ * fija y las reserva con ClaseService, por lo que la base de datos recibe una carga constante
+ * sin importar el tamaño de la rafaga. El cupo lo sigue controlando el contador de la sesion;
+ * cuando la sesion se llena, el resto de la cola se rechaza sin consultar la base de datos.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class AdmisionReservasService {
+
+    private static final Logger log = LoggerFactory.getLogger(AdmisionReservasService.class);
+
+    @Autowired
+    private ClaseService claseService;
+
+    @Autowired
+    private ClaseSesionRepository claseSesionRepository;
+
+    @Value("${gym.clases.admision.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${gym.clases.admision.capacidad-cola:5000}")
+    private int capacidadCola;
+
+    @Value("${gym.clases.admision.tasa-por-segundo:50}")
+    private int tasaPorSegundo;
+
+    @Value("${gym.clases.admision.intervalo-ms:20}")
+    private long intervaloMs;
+
+    @Value("${gym.clases.admision.vigencia-ticket-ms:600000}")
+    private long vigenciaTicketMs;
+
+    // Tiempo minimo entre dos comprobaciones de cupo de una sesion que se lleno
+    private static final long REVISION_SESION_LLENA_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<Long, ColaSesion> colas = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TicketAdmision> tickets = new ConcurrentHashMap<>();
+
+    private volatile boolean activo;
+    private Thread admisor;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        activo = true;
+        admisor = new Thread(this::admitirContinuamente, "clases-admision-reservas");
+        admisor.setDaemon(true);
+        admisor.start();
+    }
+
+    /**
+     * Detiene el hilo admisor despues de atender las solicitudes que quedaban en las colas.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (admisor == null) {
+            return;
+        }
+        activo = false;
+        LockSupport.unpark(admisor);
+        admisor.join(TimeUnit.SECONDS.toMillis(30));
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    /**
+     * Encola la solicitud de reserva de un miembro para una sesion.
+     * Si el miembro ya tiene una solicitud pendiente para la sesion, devuelve el mismo ticket.
+     *
+     * @param miembro Miembro que desea reservar
+     * @param sesionId ID de la sesion a reservar
+     * @return Ticket en cola, o ticket ya rechazado si la solicitud no pudo encolarse
+     */
+    public TicketAdmision solicitar(Miembro miembro, Long sesionId) {
+        if (!activo) {
+            return TicketAdmision.rechazado(miembro.getId(), sesionId, "ERROR: Admisión de reservas deshabilitada");
+        }
+        if (!claseService.puedeReservar(miembro)) {
+            return TicketAdmision.rechazado(miembro.getId(), sesionId,
+                    "ERROR: Solo los miembros Premium pueden reservar clases");
+        }
+
+        while (true) {
+            ColaSesion cola = colas.computeIfAbsent(sesionId, id -> new ColaSesion());
+            synchronized (cola) {
+                if (cola.retirada) {
+                    continue; // el admisor la descarto por inactiva: se usa una nueva
+                }
+                TicketAdmision existente = cola.porMiembro.get(miembro.getId());
+                if (existente != null) {
+                    return existente;
+                }
+                if (cola.pendientes.size() >= capacidadCola) {
+                    return TicketAdmision.rechazado(miembro.getId(), sesionId,
+                            "ERROR: Demasiadas solicitudes para esta clase, intenta nuevamente en unos minutos");
+                }
+
+                TicketAdmision ticket = new TicketAdmision(UUID.randomUUID().toString(), miembro.getId(),
+                        sesionId, cola.siguienteNumero++);
+                cola.pendientes.addLast(new Solicitud(ticket, miembro));
+                cola.porMiembro.put(miembro.getId(), ticket);
+                tickets.put(ticket.getId(), ticket);
+                return ticket;
+            }
+        }
+    }
+
+    /**
+     * Consulta un ticket de un miembro.
+     *
+     * @param ticketId ID del ticket
+     * @param miembroId ID del miembro que lo consulta
+     * @return El ticket, o null si no existe, vencio o pertenece a otro miembro
+     */
+    public TicketAdmision consultar(String ticketId, Long miembroId) {
+        TicketAdmision ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.getMiembroId().equals(miembroId)) {
+            return null;
+        }
+        return ticket;
+    }
+
+    /**
+     * Calcula la posicion de un ticket en la cola de su sesion.
+     *
+     * @param ticket Ticket a consultar
+     * @return Posicion (1 = siguiente en ser admitido), o null si ya fue resuelto
+     */
+    public Long obtenerPosicion(TicketAdmision ticket) {
+        if (ticket.isResuelto()) {
+            return null;
+        }
+        ColaSesion cola = colas.get(ticket.getSesionId());
+        if (cola == null) {
+            return null;
+        }
+        synchronized (cola) {
+            return ticket.getNumero() - cola.atendidos + 1;
+        }
+    }
+
+    private void admitirContinuamente() {
+        long intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        double maximoPorIntervalo = Math.max(1.0, tasaPorSegundo * intervaloMs / 1000.0);
+        double disponibles = 0;
+        long ultimo = System.nanoTime();
+
+        while (activo || hayPendientes()) {
+            LockSupport.parkNanos(this, intervaloNanos);
+
+            long ahora = System.nanoTime();
+            disponibles = Math.min(maximoPorIntervalo, disponibles + (ahora - ultimo) * tasaPorSegundo / 1e9);
+            ultimo = ahora;
+
+            // Un fallo de la base de datos no debe detener al unico hilo admisor: la sesion se reintenta
+            // en la siguiente vuelta y las demas colas se siguen atendiendo
+            for (Map.Entry<Long, ColaSesion> entrada : colas.entrySet()) {
+                try {
+                    disponibles = atender(entrada.getKey(), entrada.getValue(), disponibles);
+                } catch (RuntimeException e) {
+                    log.warn("Error al atender la cola de admision de la sesion {}", entrada.getKey(), e);
+                }
+            }
+            try {
+                limpiar(ahora);
+            } catch (RuntimeException e) {
+                log.warn("Error al limpiar las colas de admision", e);
+            }
+        }
+    }
+
+    /**
+     * Atiende en orden de llegada las solicitudes de una sesion mientras quede tasa disponible.
+     * Solo las reservas intentadas consumen tasa; los rechazos de una sesion llena no van a la base de datos.
+     *
+     * @return Tasa disponible restante
+     */
+    private double atender(Long sesionId, ColaSesion cola, double disponibles) {
+        while (true) {
+            if (cola.llena && System.nanoTime() - cola.revisarLlenaNanos >= 0) {
+                // Se reprograma antes de consultar para que una falla no repita la consulta en cada vuelta
+                cola.revisarLlenaNanos = System.nanoTime() + REVISION_SESION_LLENA_NANOS;
+                cola.llena = !tieneCupo(sesionId);
+            }
+            if (!cola.llena && disponibles < 1) {
+                return disponibles;
+            }
+
+            Solicitud solicitud;
+            synchronized (cola) {
+                solicitud = cola.pendientes.pollFirst();
+            }
+            if (solicitud == null) {
+                return disponibles;
+            }
+
+            String resultado;
+            if (cola.llena) {
+                resultado = ClaseService.ERROR_SESION_LLENA;
+            } else {
+                disponibles--;
+                try {
+                    resultado = claseService.reservarSesion(solicitud.miembro, sesionId);
+                } catch (RuntimeException e) {
+                    resultado = "ERROR: No se pudo completar la reserva";
+                }
+                if (ClaseService.ERROR_SESION_LLENA.equals(resultado)) {
+                    cola.llena = true;
+                    cola.revisarLlenaNanos = System.nanoTime() + REVISION_SESION_LLENA_NANOS;
+                }
+            }
+
+            solicitud.ticket.resolver(resultado);
+            synchronized (cola) {
+                cola.atendidos++;
+                cola.porMiembro.remove(solicitud.ticket.getMiembroId());
+                cola.ultimaActividadNanos = System.nanoTime();
+            }
+        }
+    }
+
+    private boolean tieneCupo(Long sesionId) {
+        Integer cupos = claseSesionRepository.findById(sesionId).map(ClaseSesion::getCuposDisponibles).orElse(0);
+        return cupos == null || cupos > 0;
+    }
+
+    private boolean hayPendientes() {
+        for (ColaSesion cola : colas.values()) {
+            synchronized (cola) {
+                if (!cola.pendientes.isEmpty()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Descarta los tickets resueltos vencidos y las colas vacias sin actividad reciente
+    private void limpiar(long ahora) {
+        long vigenciaNanos = TimeUnit.MILLISECONDS.toNanos(vigenciaTicketMs);
+        tickets.values().removeIf(t -> t.isResuelto() && ahora - t.getResueltoNanos() > vigenciaNanos);
+        colas.forEach((sesionId, cola) -> {
+            synchronized (cola) {
+                if (cola.pendientes.isEmpty() && ahora - cola.ultimaActividadNanos > vigenciaNanos) {
+                    cola.retirada = true;
+                    colas.remove(sesionId, cola);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cola FIFO de solicitudes de una sesion. Los campos de la cola se protegen con su monitor;
+     * llena y revisarLlenaNanos solo los usa el hilo admisor.
+     */
+    private static class ColaSesion {
+        private final ArrayDeque<Solicitud> pendientes = new ArrayDeque<>();
+        private final Map<Long, TicketAdmision> porMiembro = new HashMap<>();
+        private long siguienteNumero;
+        private long atendidos;
+        private long ultimaActividadNanos = System.nanoTime();
+        private boolean retirada;
+        private boolean llena;
+        private long revisarLlenaNanos;
+    }
+
+    /**
+     * Solicitud encolada con el miembro que la realizo.
+     */
+    private static class Solicitud {
+        private final TicketAdmision ticket;
+        private final Miembro miembro;
+
+        Solicitud(TicketAdmision ticket, Miembro miembro) {
+            this.ticket = ticket;
+            this.miembro = miembro;
+        }
+    }
+}
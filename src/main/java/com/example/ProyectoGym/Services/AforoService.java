@@ -0,0 +1,284 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servicio que controla el aforo maximo permitido dentro del gimnasio.
+ * Mantiene un contador atomico de personas dentro que las entradas reservan antes de
+ * escribir (compare-and-set contra la capacidad vigente) y que las salidas liberan al
+ * confirmarse. La capacidad es general y puede reducirse o ampliarse por franjas horarias.
+ * El contador se inicializa con las asistencias abiertas mas las reservas aun no escritas
+ * (escritura diferida, diario local) y se reconcilia periodicamente con la misma suma.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class AforoService {
+
+    private static final Logger log = LoggerFactory.getLogger(AforoService.class);
+
+    @Autowired
+    private AsistenciaRepository asistenciaRepository;
+
+    // Capacidad general; 0 deshabilita el control de aforo
+    @Value("${gym.aforo.capacidad:0}")
+    private int capacidadGeneral;
+
+    // Franjas con capacidad propia, formato HH:mm-HH:mm=N separadas por comas
+    @Value("${gym.aforo.franjas:}")
+    private String franjasConfiguradas;
+
+    private final List<Franja> franjas = new ArrayList<>();
+
+    private final AtomicInteger ocupados = new AtomicInteger();
+
+    // Lugares reservados cuya entrada aun no esta confirmada en la base de datos; ya se cuentan en ocupados
+    private final AtomicInteger enCurso = new AtomicInteger();
+
+    // Cambios aplicados al contador, para descartar una reconciliacion concurrente con entradas o salidas
+    private final AtomicLong cambios = new AtomicLong();
+
+    private final Counter rechazadas;
+
+    public AforoService(MeterRegistry registry) {
+        this.rechazadas = Counter.builder("gym.aforo.rechazadas")
+                .description("Entradas rechazadas por aforo maximo alcanzado")
+                .register(registry);
+        Gauge.builder("gym.aforo.ocupacion", ocupados, AtomicInteger::get)
+                .description("Personas dentro del gimnasio segun el control de aforo")
+                .register(registry);
+        Gauge.builder("gym.aforo.capacidad", this, servicio -> servicio.capacidadVigente())
+                .description("Capacidad maxima vigente (0 = sin limite)")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void cargarFranjas() {
+        if (franjasConfiguradas == null || franjasConfiguradas.isBlank()) {
+            return;
+        }
+        for (String definicion : franjasConfiguradas.split(",")) {
+            String[] partes = definicion.trim().split("[-=]");
+            if (partes.length != 3) {
+                throw new IllegalStateException("Franja de aforo invalida: " + definicion);
+            }
+            LocalTime inicio = LocalTime.parse(partes[0].trim());
+            LocalTime fin = LocalTime.parse(partes[1].trim());
+            if (inicio.equals(fin)) {
+                throw new IllegalStateException("Franja de aforo vacia: " + definicion);
+            }
+            franjas.add(new Franja(inicio, fin, Integer.parseInt(partes[2].trim())));
+        }
+    }
+
+    /**
+     * Inicializa el contador con las asistencias abiertas al iniciar la aplicacion,
+     * mas las entradas pendientes de aplicar que el diario local registro al abrirse.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        ocupados.set((int) asistenciaRepository.countMiembrosEnGimnasio() + enCurso.get());
+        cambios.incrementAndGet();
+    }
+
+    /**
+     * Reserva un lugar para una entrada si no se alcanzo la capacidad vigente.
+     * Si hay una transaccion activa, la reserva termina con ella: se confirma con el commit
+     * y el lugar se libera si se revierte. Fuera de una transaccion, quien reserva debe llamar
+     * a confirmarReserva o cancelarReserva cuando sepa si la entrada se escribio.
+     *
+     * @return true si se reservo el lugar, false si el aforo esta completo
+     */
+    public boolean reservar() {
+        int capacidad = capacidadVigente();
+        int actual;
+        do {
+            actual = ocupados.get();
+            if (capacidad > 0 && actual >= capacidad) {
+                rechazadas.increment();
+                return false;
+            }
+        } while (!ocupados.compareAndSet(actual, actual + 1));
+        enCurso.incrementAndGet();
+        cambios.incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    if (estado == STATUS_ROLLED_BACK) {
+                        cancelarReserva();
+                    } else {
+                        confirmarReserva();
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Marca como escrita en la base de datos una entrada reservada fuera de una transaccion
+     * (escritura diferida o diario local). Desde ese momento la cuenta la reconciliacion.
+     */
+    public void confirmarReserva() {
+        enCurso.decrementAndGet();
+        cambios.incrementAndGet();
+    }
+
+    /**
+     * Devuelve el lugar de una entrada reservada fuera de una transaccion que finalmente no se escribio.
+     */
+    public void cancelarReserva() {
+        enCurso.decrementAndGet();
+        liberar();
+    }
+
+    /**
+     * Registra como reservadas, sin controlar la capacidad, entradas ya aceptadas antes de un reinicio
+     * que aun no llegaron a la base de datos (las pendientes del diario local).
+     * Se confirman o cancelan igual que las reservas hechas fuera de una transaccion.
+     *
+     * @param cantidad Cantidad de entradas pendientes
+     */
+    public void registrarPendientes(int cantidad) {
+        ocupados.addAndGet(cantidad);
+        enCurso.addAndGet(cantidad);
+        cambios.incrementAndGet();
+    }
+
+    /**
+     * Libera un lugar: una salida confirmada, o una entrada reservada dentro de la transaccion
+     * actual que finalmente no se registro.
+     */
+    public void liberar() {
+        ocupados.decrementAndGet();
+        cambios.incrementAndGet();
+    }
+
+    /**
+     * Suma al contador entradas ya ocurridas que no pasan por el control de aforo
+     * (por ejemplo, eventos de torniquete enviados por lotes), al confirmarse la transaccion.
+     *
+     * @param cantidad Cantidad de entradas registradas
+     */
+    public void ocuparAlConfirmar(int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ocupados.addAndGet(cantidad);
+            cambios.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ocupados.addAndGet(cantidad);
+                cambios.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Libera el lugar de cada salida confirmada, cualquiera sea su origen
+     * (registro manual, lote de torniquetes, cierre automatico o diario local).
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @Order(0)
+    @TransactionalEventListener
+    public void aplicarEvento(EventoAsistencia evento) {
+        if (evento.getTipo() == EventoAsistencia.Tipo.SALIDA) {
+            liberar();
+        }
+    }
+
+    /**
+     * Corrige periodicamente el contador con la cantidad de asistencias abiertas mas las reservas
+     * en curso, que ya ocupan un lugar pero aun no estan en la base de datos.
+     * Si hubo entradas o salidas mientras se consultaba la base de datos, la correccion
+     * se descarta y se repite en la siguiente ejecucion.
+     */
+    @Scheduled(initialDelayString = "${gym.aforo.reconciliacion-ms:60000}",
+            fixedDelayString = "${gym.aforo.reconciliacion-ms:60000}")
+    public void reconciliar() {
+        long cambiosAntes = cambios.get();
+        int reservadas = enCurso.get();
+        int esperado = (int) asistenciaRepository.countMiembrosEnGimnasio() + reservadas;
+        int actual = ocupados.get();
+
+        if (cambios.get() == cambiosAntes && actual != esperado && ocupados.compareAndSet(actual, esperado)) {
+            log.warn("Contador de aforo desincronizado: {} en memoria, {} segun la base de datos ({} en curso). Se corrige.",
+                    actual, esperado, reservadas);
+        }
+    }
+
+    /**
+     * Obtiene la capacidad que aplica en este momento: la de la franja horaria vigente
+     * o, si ninguna aplica, la capacidad general. Una franja cuyo fin es anterior a su inicio
+     * cruza la medianoche (por ejemplo 22:00-06:00).
+     *
+     * @return Capacidad maxima vigente (0 = sin limite)
+     */
+    public int capacidadVigente() {
+        LocalTime ahora = LocalTime.now();
+        for (Franja franja : franjas) {
+            if (franja.contiene(ahora)) {
+                return franja.capacidad;
+            }
+        }
+        return capacidadGeneral;
+    }
+
+    public int contarOcupados() {
+        return ocupados.get();
+    }
+
+    public int contarReservasEnCurso() {
+        return enCurso.get();
+    }
+
+    private static class Franja {
+        private final LocalTime inicio;
+        private final LocalTime fin;
+        private final int capacidad;
+
+        Franja(LocalTime inicio, LocalTime fin, int capacidad) {
+            this.inicio = inicio;
+            this.fin = fin;
+            this.capacidad = capacidad;
+        }
+
+        boolean contiene(LocalTime hora) {
+            if (inicio.isBefore(fin)) {
+                return !hora.isBefore(inicio) && hora.isBefore(fin);
+            }
+            return !hora.isBefore(inicio) || hora.isBefore(fin);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Model.ClaseGrupal;
+import com.example.ProyectoGym.Model.Instructor;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.InstructorRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Indice en memoria de los horarios semanales de cada instructor.
+ * Cada clase activa con instructor ocupa intervalos en minutos de la semana (lunes 00:00 = 0),
+ * guardados por instructor en un mapa ordenado por minuto de inicio. Para saber si un horario
+ * se solapa solo se revisan los intervalos que empiezan entre el inicio menos la duracion mas
+ * larga del instructor y el fin, una busqueda O(log n) en el mapa.
+ * ClaseService lo actualiza al crear, editar, activar o desactivar clases y al asignar instructores.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class AgendaInstructoresService {
+
+    private static final Logger log = LoggerFactory.getLogger(AgendaInstructoresService.class);
+
+    private static final int MINUTOS_SEMANA = 7 * 24 * 60;
+
+    private static final Map<DayOfWeek, String> NOMBRES_DIAS = Map.of(
+            DayOfWeek.MONDAY, "Lunes", DayOfWeek.TUESDAY, "Martes", DayOfWeek.WEDNESDAY, "Miércoles",
+            DayOfWeek.THURSDAY, "Jueves", DayOfWeek.FRIDAY, "Viernes", DayOfWeek.SATURDAY, "Sábado",
+            DayOfWeek.SUNDAY, "Domingo");
+
+    @Autowired
+    private ClaseGrupalRepository claseGrupalRepository;
+
+    @Autowired
+    private InstructorRepository instructorRepository;
+
+    // ID de instructor -> su agenda semanal
+    private final Map<Long, Agenda> agendas = new HashMap<>();
+
+    // ID de clase -> instructor e intervalos con que esta indexada, para quitarla sin recorrer la agenda
+    private final Map<Long, Asignacion> asignaciones = new HashMap<>();
+
+    /**
+     * Reconstruye el indice desde las clases activas al iniciar la aplicacion.
+     * Los solapamientos que ya existian se registran en el log y se mantienen en el indice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reconstruir() {
+        agendas.clear();
+        asignaciones.clear();
+        for (ClaseGrupal clase : claseGrupalRepository.findAllConInstructor()) {
+            if (!indexable(clase)) {
+                continue;
+            }
+            List<Intervalo> intervalos = intervalos(clase.getId(), clase.getNombre(),
+                    clase.getDias(), clase.getHora(), clase.getDuracion());
+            Long instructorId = clase.getInstructor().getId();
+            Intervalo conflicto = buscarConflicto(instructorId, intervalos, clase.getId());
+            if (conflicto != null) {
+                log.warn("La clase '{}' se superpone con '{}' para el instructor {}",
+                        clase.getNombre(), conflicto.nombreClase, instructorId);
+            }
+            agregar(instructorId, clase.getId(), intervalos);
+        }
+    }
+
+    /**
+     * Indexa el horario actual de una clase en la agenda de su instructor, reemplazando el anterior.
+     * Si el instructor ya dicta otra clase en un horario superpuesto, no modifica el indice.
+     * Una clase inactiva, sin instructor o sin horario se quita del indice.
+     *
+     * @param clase Clase creada o actualizada
+     * @return Mensaje de error con la clase en conflicto, o null si el horario quedo indexado
+     */
+    public synchronized String asignar(ClaseGrupal clase) {
+        if (!indexable(clase)) {
+            quitar(clase.getId());
+            return null;
+        }
+
+        Long instructorId = clase.getInstructor().getId();
+        List<Intervalo> intervalos = intervalos(clase.getId(), clase.getNombre(),
+                clase.getDias(), clase.getHora(), clase.getDuracion());
+        Intervalo conflicto = buscarConflicto(instructorId, intervalos, clase.getId());
+        if (conflicto != null) {
+            return "ERROR: El instructor ya dicta '" + conflicto.nombreClase + "' en un horario superpuesto ("
+                    + describir(conflicto) + ")";
+        }
+
+        quitar(clase.getId());
+        agregar(instructorId, clase.getId(), intervalos);
+        return null;
+    }
+
+    /**
+     * Quita una clase del indice, por ejemplo al desactivarla.
+     *
+     * @param claseId ID de la clase
+     */
+    public synchronized void retirar(Long claseId) {
+        quitar(claseId);
+    }
+
+    /**
+     * Verifica si un instructor esta libre en un horario semanal.
+     *
+     * @param instructorId ID del instructor
+     * @param dias Dias de la semana del horario
+     * @param hora Hora de inicio
+     * @param duracion Duracion en minutos
+     * @param excluirClaseId Clase cuyo horario actual no se considera (la que se esta editando), o null
+     * @return true si el instructor no tiene clases superpuestas
+     */
+    public synchronized boolean estaLibre(Long instructorId, Set<DayOfWeek> dias, LocalTime hora,
+                                          Integer duracion, Long excluirClaseId) {
+        return buscarConflicto(instructorId, intervalos(null, null, dias, hora, duracion), excluirClaseId) == null;
+    }
+
+    /**
+     * Obtiene los instructores activos sin clases superpuestas con un horario semanal.
+     *
+     * @param dias Dias de la semana del horario
+     * @param hora Hora de inicio
+     * @param duracion Duracion en minutos
+     * @param excluirClaseId Clase cuyo horario actual no se considera, o null
+     * @return Instructores activos libres en ese horario
+     */
+    public List<Instructor> obtenerInstructoresLibres(Set<DayOfWeek> dias, LocalTime hora,
+                                                      Integer duracion, Long excluirClaseId) {
+        List<Instructor> libres = new ArrayList<>();
+        for (Instructor instructor : instructorRepository.findByActivoTrue()) {
+            if (estaLibre(instructor.getId(), dias, hora, duracion, excluirClaseId)) {
+                libres.add(instructor);
+            }
+        }
+        return libres;
+    }
+
+    private boolean indexable(ClaseGrupal clase) {
+        return clase.getId() != null && Boolean.TRUE.equals(clase.getActiva())
+                && clase.getInstructor() != null && clase.tieneHorario();
+    }
+
+    private Intervalo buscarConflicto(Long instructorId, List<Intervalo> intervalos, Long excluirClaseId) {
+        Agenda agenda = agendas.get(instructorId);
+        if (agenda == null) {
+            return null;
+        }
+        for (Intervalo intervalo : intervalos) {
+            // Un intervalo superpuesto empieza antes del fin y despues de (inicio - duracion maxima)
+            NavigableMap<Integer, List<Intervalo>> candidatos = agenda.porInicio.subMap(
+                    intervalo.inicio - agenda.duracionMaxima, false, intervalo.fin, false);
+            for (List<Intervalo> mismosInicio : candidatos.values()) {
+                for (Intervalo existente : mismosInicio) {
+                    if (!existente.claseId.equals(excluirClaseId) && existente.fin > intervalo.inicio) {
+                        return existente;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private void agregar(Long instructorId, Long claseId, List<Intervalo> intervalos) {
+        Agenda agenda = agendas.computeIfAbsent(instructorId, id -> new Agenda());
+        for (Intervalo intervalo : intervalos) {
+            agenda.porInicio.computeIfAbsent(intervalo.inicio, inicio -> new ArrayList<>(1)).add(intervalo);
+            agenda.duracionMaxima = Math.max(agenda.duracionMaxima, intervalo.fin - intervalo.inicio);
+        }
+        asignaciones.put(claseId, new Asignacion(instructorId, intervalos));
+    }
+
+    private void quitar(Long claseId) {
+        Asignacion asignacion = asignaciones.remove(claseId);
+        if (asignacion == null) {
+            return;
+        }
+        Agenda agenda = agendas.get(asignacion.instructorId);
+        for (Intervalo intervalo : asignacion.intervalos) {
+            List<Intervalo> mismosInicio = agenda.porInicio.get(intervalo.inicio);
+            mismosInicio.remove(intervalo);
+            if (mismosInicio.isEmpty()) {
+                agenda.porInicio.remove(intervalo.inicio);
+            }
+        }
+        if (agenda.porInicio.isEmpty()) {
+            agendas.remove(asignacion.instructorId);
+        }
+    }
+
+    // Convierte un horario semanal en intervalos [inicio, fin) en minutos de la semana;
+    // una clase que termina despues del domingo a medianoche se divide en dos intervalos
+    private static List<Intervalo> intervalos(Long claseId, String nombreClase, Set<DayOfWeek> dias,
+                                              LocalTime hora, Integer duracion) {
+        List<Intervalo> intervalos = new ArrayList<>();
+        if (dias == null || hora == null) {
+            return intervalos;
+        }
+        int minutos = duracion != null && duracion > 0 ? duracion : 60;
+        for (DayOfWeek dia : dias) {
+            int inicio = (dia.getValue() - 1) * 24 * 60 + hora.getHour() * 60 + hora.getMinute();
+            int fin = inicio + minutos;
+            if (fin > MINUTOS_SEMANA) {
+                intervalos.add(new Intervalo(claseId, nombreClase, inicio, MINUTOS_SEMANA));
+                intervalos.add(new Intervalo(claseId, nombreClase, 0, fin - MINUTOS_SEMANA));
+            } else {
+                intervalos.add(new Intervalo(claseId, nombreClase, inicio, fin));
+            }
+        }
+        return intervalos;
+    }
+
+    private static String describir(Intervalo intervalo) {
+        DayOfWeek dia = DayOfWeek.of(intervalo.inicio / (24 * 60) + 1);
+        int minutoDelDia = intervalo.inicio % (24 * 60);
+        return NOMBRES_DIAS.get(dia) + " " + LocalTime.of(minutoDelDia / 60, minutoDelDia % 60);
+    }
+
+    /**
+     * Intervalos de un instructor ordenados por minuto de inicio.
+     */
+    private static class Agenda {
+        private final TreeMap<Integer, List<Intervalo>> porInicio = new TreeMap<>();
+        private int duracionMaxima; // solo crece; acota la busqueda hacia atras
+    }
+
+    /**
+     * Instructor e intervalos con que una clase esta indexada.
+     */
+    private static class Asignacion {
+        private final Long instructorId;
+        private final List<Intervalo> intervalos;
+
+        Asignacion(Long instructorId, List<Intervalo> intervalos) {
+            this.instructorId = instructorId;
+            this.intervalos = intervalos;
+        }
+    }
+
+    /**
+     * Intervalo [inicio, fin) en minutos de la semana ocupado por una clase.
+     */
+    private static class Intervalo {
+        private final Long claseId;
+        private final String nombreClase;
+        private final int inicio;
+        private final int fin;
+
+        Intervalo(Long claseId, String nombreClase, int inicio, int fin) {
+            this.claseId = claseId;
+            this.nombreClase = nombreClase;
+            this.inicio = inicio;
+            this.fin = fin;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Model.Asistencia;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import com.example.ProyectoGym.Repository.EstadisticaMiembroRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Servicio de archivado en frio de la tabla de asistencias.
+ * Cada mes, las asistencias cerradas mas antiguas que la ventana de retencion se exportan
+ * a un archivo CSV comprimido por mes en disco local y se eliminan de la tabla, de modo que
+ * las consultas del dia y del mes recorren solo los datos recientes. Un mes archivado
+ * puede restaurarse a la tabla para auditorias; el siguiente archivado lo vuelve a retirar.
+ * Los meses archivados ya no estan en la tabla, por lo que los recalculos que leen el historial
+ * de asistencias deben limitarse a inicioHistorialCompleto() o conservar lo archivado.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class ArchivoAsistenciasService {
+
+    private static final String CABECERA = "id,miembro_id,fecha_hora_entrada,fecha_hora_salida,duracion_minutos,auto_cerrada";
+
+    private static final String SQL_EXPORTAR_MES =
+            "SELECT id, miembro_id, fecha_hora_entrada, fecha_hora_salida, duracion_minutos, auto_cerrada " +
+            "FROM asistencias WHERE fecha_hora_entrada >= ? AND fecha_hora_entrada < ? " +
+            "AND fecha_hora_salida IS NOT NULL ORDER BY id";
+
+    private static final String SQL_ELIMINAR_MES =
+            "DELETE FROM asistencias WHERE fecha_hora_entrada >= ? AND fecha_hora_entrada < ? " +
+            "AND fecha_hora_salida IS NOT NULL";
+
+    // INSERT ... SELECT y no VALUES: reWriteBatchedInserts no lo reescribe y el driver informa el conteo de cada fila
+    private static final String SQL_RESTAURAR =
+            "INSERT INTO asistencias (id, miembro_id, fecha_hora_entrada, fecha_hora_salida, duracion_minutos, auto_cerrada) " +
+            "SELECT ?, ?, ?, ?, ?, ? ON CONFLICT (id) DO NOTHING";
+
+    private static final int[] TIPOS_RESTAURAR = {
+            Types.BIGINT, Types.BIGINT, Types.TIMESTAMP, Types.TIMESTAMP, Types.INTEGER, Types.BOOLEAN};
+
+    private static final int TAMANO_LOTE_RESTAURACION = 1000;
+
+    @Autowired
+    private AsistenciaRepository asistenciaRepository;
+
+    @Autowired
+    private EstadisticaMiembroRepository estadisticaMiembroRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gym.asistencia.archivo.meses-retencion:24}")
+    private int mesesRetencion;
+
+    @Value("${gym.asistencia.archivo.directorio:archivo/asistencias}")
+    private String directorio;
+
+    // Lectura por cursor: el driver de PostgreSQL solo respeta el fetch size dentro de una transaccion
+    private final JdbcTemplate jdbcTemplateCursor;
+
+    private final Counter archivadas;
+    private final Counter restauradas;
+
+    public ArchivoAsistenciasService(DataSource dataSource, MeterRegistry registry) {
+        this.jdbcTemplateCursor = new JdbcTemplate(dataSource);
+        this.jdbcTemplateCursor.setFetchSize(1000);
+        this.archivadas = Counter.builder("gym.asistencias.archivo.archivadas")
+                .description("Asistencias exportadas a archivo y eliminadas de la tabla")
+                .register(registry);
+        this.restauradas = Counter.builder("gym.asistencias.archivo.restauradas")
+                .description("Asistencias reinsertadas desde archivo para auditoria")
+                .register(registry);
+    }
+
+    /**
+     * Archiva todos los meses completos anteriores a la ventana de retencion.
+     * Cada mes se procesa en su propia transaccion: primero se escribe el archivo comprimido
+     * y solo despues se eliminan las filas, por lo que un fallo nunca pierde asistencias.
+     *
+     * @return Cantidad de asistencias archivadas en la ejecucion
+     */
+    @Scheduled(cron = "${gym.asistencia.archivo.cron:0 30 3 1 * *}")
+    public int archivarMesesAntiguos() {
+        Optional<Asistencia> primera = asistenciaRepository.findFirstByOrderByFechaHoraEntradaAsc();
+        if (primera.isEmpty()) {
+            return 0;
+        }
+
+        YearMonth limite = YearMonth.now().minusMonths(mesesRetencion);
+        int total = 0;
+        YearMonth mes = YearMonth.from(primera.get().getFechaHoraEntrada());
+        for (; mes.isBefore(limite); mes = mes.plusMonths(1)) {
+            YearMonth mesActual = mes;
+            Integer archivadasMes = transactionTemplate.execute(estado -> archivarMes(mesActual));
+            total += archivadasMes != null ? archivadasMes : 0;
+        }
+
+        archivadas.increment(total);
+        return total;
+    }
+
+    /**
+     * Reinserta en la tabla las asistencias de un mes archivado para consultarlas en una auditoria.
+     * El archivo se conserva; las filas ya presentes se ignoran. Las filas restauradas se descuentan
+     * de la parte archivada de las estadisticas por miembro, ya que vuelven a estar en la tabla.
+     *
+     * @param mes Mes a restaurar
+     * @return Mensaje de exito con la cantidad restaurada o mensaje de error
+     */
+    public String restaurarMes(YearMonth mes) {
+        Path archivo = archivoDe(mes);
+        if (!Files.exists(archivo)) {
+            return "ERROR: No existe archivo para " + mes;
+        }
+
+        Integer restauradasMes = transactionTemplate.execute(estado -> {
+            List<Object[]> lote = new ArrayList<>(TAMANO_LOTE_RESTAURACION);
+            // Visitas y minutos restaurados por miembro
+            Map<Long, long[]> porMiembro = new HashMap<>();
+            int[] insertadas = {0};
+            leerArchivo(archivo, campos -> {
+                lote.add(new Object[]{
+                        Long.parseLong(campos[0]),
+                        Long.parseLong(campos[1]),
+                        LocalDateTime.parse(campos[2]),
+                        LocalDateTime.parse(campos[3]),
+                        campos[4].isEmpty() ? null : Integer.parseInt(campos[4]),
+                        campos[5].isEmpty() ? null : Boolean.parseBoolean(campos[5])
+                });
+                if (lote.size() == TAMANO_LOTE_RESTAURACION) {
+                    insertadas[0] += insertarLote(lote, porMiembro);
+                }
+            });
+            insertadas[0] += insertarLote(lote, porMiembro);
+            porMiembro.forEach((miembroId, totales) ->
+                    estadisticaMiembroRepository.descontarArchivadas(miembroId, totales[0], totales[1]));
+            return insertadas[0];
+        });
+
+        int cantidad = restauradasMes != null ? restauradasMes : 0;
+        restauradas.increment(cantidad);
+        return "SUCCESS: Asistencias restauradas de " + mes + ": " + cantidad;
+    }
+
+    /**
+     * Primer dia desde el cual la tabla de asistencias tiene el historial completo: el dia
+     * siguiente al ultimo mes archivado. Un mes restaurado para auditoria sigue contando como
+     * archivado, ya que el siguiente archivado lo vuelve a retirar.
+     *
+     * @return Primer dia con historial completo, o null si no hay meses archivados
+     */
+    public LocalDate inicioHistorialCompleto() {
+        List<Map<String, Object>> meses = obtenerMesesArchivados();
+        if (meses.isEmpty()) {
+            return null;
+        }
+        YearMonth ultimo = YearMonth.parse((String) meses.get(meses.size() - 1).get("mes"));
+        return ultimo.plusMonths(1).atDay(1);
+    }
+
+    /**
+     * Lista los meses archivados disponibles en disco con el tamano de su archivo.
+     *
+     * @return Lista de mapas con el mes (yyyy-MM) y el tamano en bytes, ordenada por mes
+     */
+    public List<Map<String, Object>> obtenerMesesArchivados() {
+        Path carpeta = Paths.get(directorio);
+        if (!Files.isDirectory(carpeta)) {
+            return List.of();
+        }
+
+        try (Stream<Path> archivos = Files.list(carpeta)) {
+            return archivos
+                    .map(archivo -> archivo.getFileName().toString())
+                    .filter(nombre -> nombre.startsWith("asistencias-") && nombre.endsWith(".csv.gz"))
+                    .sorted()
+                    .map(nombre -> {
+                        Map<String, Object> info = new HashMap<>();
+                        info.put("mes", nombre.substring("asistencias-".length(), nombre.length() - ".csv.gz".length()));
+                        info.put("bytes", carpeta.resolve(nombre).toFile().length());
+                        return info;
+                    })
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int archivarMes(YearMonth mes) {
+        LocalDateTime inicio = mes.atDay(1).atStartOfDay();
+        LocalDateTime fin = inicio.plusMonths(1);
+        Path archivo = archivoDe(mes);
+
+        try {
+            Files.createDirectories(archivo.getParent());
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            int[] exportadas = {0};
+
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temporal)), StandardCharsets.UTF_8))) {
+                writer.write(CABECERA);
+                writer.newLine();
+
+                // Un mes ya archivado (p. ej. restaurado para auditoria) se reescribe sin duplicar filas
+                Set<Long> idsExistentes = new HashSet<>();
+                if (Files.exists(archivo)) {
+                    leerArchivo(archivo, campos -> {
+                        idsExistentes.add(Long.parseLong(campos[0]));
+                        escribirLinea(writer, String.join(",", campos));
+                    });
+                }
+
+                jdbcTemplateCursor.query(SQL_EXPORTAR_MES, rs -> {
+                    long id = rs.getLong("id");
+                    exportadas[0]++;
+                    if (idsExistentes.contains(id)) {
+                        return;
+                    }
+                    Integer duracion = (Integer) rs.getObject("duracion_minutos");
+                    Boolean autoCerrada = (Boolean) rs.getObject("auto_cerrada");
+                    escribirLinea(writer, id + "," + rs.getLong("miembro_id") + ","
+                            + rs.getObject("fecha_hora_entrada", LocalDateTime.class) + ","
+                            + rs.getObject("fecha_hora_salida", LocalDateTime.class) + ","
+                            + (duracion != null ? duracion : "") + ","
+                            + (autoCerrada != null ? autoCerrada : ""));
+                }, inicio, fin);
+            }
+
+            if (exportadas[0] == 0) {
+                Files.delete(temporal);
+                return 0;
+            }
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo archivar el mes " + mes, e);
+        }
+
+        // Las estadisticas por miembro conservan lo archivado para poder reconstruirse sin estas filas
+        estadisticaMiembroRepository.sumarArchivadas(inicio, fin, mes.atDay(1));
+        return jdbcTemplate.update(SQL_ELIMINAR_MES, inicio, fin);
+    }
+
+    private int insertarLote(List<Object[]> lote, Map<Long, long[]> porMiembro) {
+        if (lote.isEmpty()) {
+            return 0;
+        }
+        int insertadas = 0;
+        int[] filas = jdbcTemplate.batchUpdate(SQL_RESTAURAR, lote, TIPOS_RESTAURAR);
+        for (int i = 0; i < filas.length; i++) {
+            // Las filas ya presentes en la tabla informan 0
+            if (filas[i] > 0) {
+                Object[] fila = lote.get(i);
+                long[] totales = porMiembro.computeIfAbsent((Long) fila[1], id -> new long[2]);
+                totales[0]++;
+                totales[1] += fila[4] != null ? (Integer) fila[4] : 0;
+                insertadas++;
+            }
+        }
+        lote.clear();
+        return insertadas;
+    }
+
+    private void leerArchivo(Path archivo, Consumer<String[]> procesarFila) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archivo)), StandardCharsets.UTF_8))) {
+            reader.readLine(); // cabecera
+            String linea;
+            while ((linea = reader.readLine()) != null) {
+                if (!linea.isBlank()) {
+                    procesarFila.accept(linea.split(",", -1));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el archivo " + archivo, e);
+        }
+    }
+
+    private static void escribirLinea(BufferedWriter writer, String linea) {
+        try {
+            writer.write(linea);
+            writer.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path archivoDe(YearMonth mes) {
+        return Paths.get(directorio, "asistencias-" + mes + ".csv.gz");
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Servicio que difunde en vivo las entradas y salidas al panel de asistencias
+ * mediante Server-Sent Events.
+ * Cada navegador conectado tiene un buffer acotado de eventos pendientes que se envia
+ * desde un hilo de despacho, de modo que un cliente lento nunca bloquea la confirmacion
+ * de una asistencia. Si el buffer de un cliente se llena, se descartan sus eventos
+ * pendientes y se le indica que recargue la pagina.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class AsistenciaEnVivoService {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    private static final long TIMEOUT_MS = Duration.ofMinutes(30).toMillis();
+
+    @Autowired
+    private OcupacionService ocupacionService;
+
+    @Value("${gym.asistencia.en-vivo.buffer:100}")
+    private int capacidadBuffer;
+
+    private final Set<Suscriptor> suscriptores = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService despachador = Executors.newFixedThreadPool(2);
+
+    /**
+     * Registra un nuevo navegador suscrito al flujo de asistencias.
+     *
+     * @return Emisor SSE asociado a la conexion
+     */
+    public SseEmitter suscribir() {
+        SseEmitter emitter = new SseEmitter(TIMEOUT_MS);
+        Suscriptor suscriptor = new Suscriptor(emitter, capacidadBuffer);
+        suscriptores.add(suscriptor);
+        emitter.onCompletion(() -> suscriptores.remove(suscriptor));
+        emitter.onTimeout(() -> suscriptores.remove(suscriptor));
+        emitter.onError(error -> suscriptores.remove(suscriptor));
+        return emitter;
+    }
+
+    /**
+     * Publica a todos los navegadores conectados la entrada o salida confirmada,
+     * junto con la cantidad actual de miembros en el gimnasio. Las salidas indican si
+     * las registro el cierre automatico, igual que el historial del dia.
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @Order(20)
+    @TransactionalEventListener
+    public void publicar(EventoAsistencia evento) {
+        Map<String, Object> datos = new HashMap<>();
+        datos.put("tipo", evento.getTipo().name());
+        datos.put("miembroId", evento.getMiembroId());
+        datos.put("horaEntrada", evento.getFechaHoraEntrada().toLocalTime().format(TIME_FORMATTER));
+        if (evento.getFechaHoraSalida() != null) {
+            datos.put("horaSalida", evento.getFechaHoraSalida().toLocalTime().format(TIME_FORMATTER));
+            datos.put("duracion",
+                    Duration.between(evento.getFechaHoraEntrada(), evento.getFechaHoraSalida()).toMinutes() + " min");
+            datos.put("autoCerrada", evento.isAutoCerrada());
+        }
+        datos.put("miembrosEnGimnasio", ocupacionService.contarPresentes());
+
+        Set<ResponseBodyEmitter.DataWithMediaType> mensaje = construir(SseEmitter.event().name("asistencia").data(datos));
+        suscriptores.forEach(suscriptor -> encolar(suscriptor, mensaje));
+    }
+
+    /**
+     * Envia periodicamente un comentario a cada navegador para mantener viva la conexion
+     * y detectar clientes desconectados.
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void latido() {
+        Set<ResponseBodyEmitter.DataWithMediaType> latido = construir(SseEmitter.event().comment("latido"));
+        suscriptores.forEach(suscriptor -> encolar(suscriptor, latido));
+    }
+
+    @PreDestroy
+    public void detener() {
+        despachador.shutdownNow();
+        suscriptores.forEach(suscriptor -> suscriptor.emitter.complete());
+    }
+
+    /**
+     * Serializa el evento una sola vez para todos los suscriptores.
+     * El builder de SseEmitter no es seguro entre hilos y agrega datos cada vez que se construye,
+     * por lo que se comparte solo su resultado, que no se modifica.
+     */
+    private static Set<ResponseBodyEmitter.DataWithMediaType> construir(SseEmitter.SseEventBuilder evento) {
+        return Collections.unmodifiableSet(evento.build());
+    }
+
+    private void encolar(Suscriptor suscriptor, Set<ResponseBodyEmitter.DataWithMediaType> mensaje) {
+        if (!suscriptor.pendientes.offer(mensaje)) {
+            // Cliente demasiado lento: se descartan sus deltas y se le pide recargar el estado completo
+            suscriptor.pendientes.clear();
+            suscriptor.pendientes.offer(construir(SseEmitter.event().name("resync").data("buffer lleno")));
+        }
+        if (suscriptor.enviando.compareAndSet(false, true)) {
+            despachador.execute(() -> vaciar(suscriptor));
+        }
+    }
+
+    private void vaciar(Suscriptor suscriptor) {
+        try {
+            Set<ResponseBodyEmitter.DataWithMediaType> mensaje;
+            while ((mensaje = suscriptor.pendientes.poll()) != null) {
+                suscriptor.emitter.send(mensaje);
+            }
+        } catch (IOException | IllegalStateException e) {
+            suscriptores.remove(suscriptor);
+            suscriptor.emitter.completeWithError(e);
+            return;
+        } finally {
+            suscriptor.enviando.set(false);
+        }
+        // Un evento pudo encolarse entre el ultimo poll y la liberacion del indicador
+        if (!suscriptor.pendientes.isEmpty() && suscriptor.enviando.compareAndSet(false, true)) {
+            despachador.execute(() -> vaciar(suscriptor));
+        }
+    }
+
+    /**
+     * Navegador conectado con su buffer acotado de eventos pendientes.
+     */
+    private static class Suscriptor {
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pendientes;
+        private final AtomicBoolean enviando = new AtomicBoolean(false);
+
+        Suscriptor(SseEmitter emitter, int capacidad) {
+            this.emitter = emitter;
+            this.pendientes = new ArrayBlockingQueue<>(capacidad);
+        }
+    }
+}
@@ -1,20 +1,44 @@
 package com.example.ProyectoGym.Services;
 
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Dto.EventoTorniquete;
+import com.example.ProyectoGym.Dto.FilaAsistenciaMiembro;
+import com.example.ProyectoGym.Dto.PaginaHistorial;
 import com.example.ProyectoGym.Model.Asistencia;
 import com.example.ProyectoGym.Model.Miembro;
 import com.example.ProyectoGym.Repository.AsistenciaRepository;
 import com.example.ProyectoGym.Repository.MiembroRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Servicio para la gestion de asistencias al gimnasio.
@@ -33,18 +57,133 @@ public class AsistenciaService {
     @Autowired
     private MiembroRepository miembroRepository;
 
+    @Autowired
+    private OcupacionService ocupacionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EscrituraDiferidaService escrituraDiferidaService;
+
+    @Autowired
+    private AforoService aforoService;
+
+    @Autowired
+    private EstadisticaMiembroService estadisticaMiembroService;
+
+    @Autowired
+    private ActividadDiariaService actividadDiariaService;
+
     // Formateador para mostrar horas sin segundos
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
+    private static final String ERROR_AFORO = "ERROR: Aforo máximo alcanzado. Intente nuevamente cuando salga alguien.";
+
+    // Limite de asistencias por pagina del historial de un miembro
+    public static final int TAMANO_MAXIMO_PAGINA = 100;
+
+    // Si el miembro ya tiene una asistencia abierta, el indice unico parcial descarta la insercion
+    private static final String SQL_ABRIR_ASISTENCIA =
+            "INSERT INTO asistencias (miembro_id, fecha_hora_entrada) VALUES (?, ?) " +
+            "ON CONFLICT (miembro_id) WHERE fecha_hora_salida IS NULL DO NOTHING";
+
+    // INSERT ... SELECT en lugar de VALUES: reWriteBatchedInserts no lo reescribe y el lote informa
+    // el conteo de cada fila, necesario para saber que entradas descarto el indice unico parcial
+    private static final String SQL_INSERTAR_ASISTENCIA =
+            "INSERT INTO asistencias (miembro_id, fecha_hora_entrada, fecha_hora_salida, duracion_minutos) " +
+            "SELECT ?, ?, ?, ? ON CONFLICT (miembro_id) WHERE fecha_hora_salida IS NULL DO NOTHING";
+
+    private static final String SQL_CERRAR_ASISTENCIA =
+            "UPDATE asistencias SET fecha_hora_salida = ?, duracion_minutos = ? " +
+            "WHERE id = ? AND fecha_hora_salida IS NULL";
+
+    private static final String SQL_EXPORTAR_RANGO =
+            "SELECT a.id, m.dni, m.nombre, m.plan, a.fecha_hora_entrada, a.fecha_hora_salida, " +
+            "a.duracion_minutos, a.auto_cerrada " +
+            "FROM asistencias a JOIN miembros m ON m.id = a.miembro_id " +
+            "WHERE a.fecha_hora_entrada >= ? AND a.fecha_hora_entrada < ? ORDER BY a.fecha_hora_entrada";
+
+    // Filas que el driver trae por viaje a la base de datos durante la exportacion
+    private static final int FETCH_SIZE_EXPORTACION = 1000;
+
     /**
      * Registra la entrada de un miembro al gimnasio.
-     * Valida que el miembro exista, este activo, no tenga membresia vencida
-     * y no tenga una entrada activa previa sin salida registrada.
+     * Valida que el miembro exista, este activo y no tenga membresia vencida.
+     * La unicidad de la asistencia abierta la garantiza la base de datos: la insercion
+     * se descarta si ya existe una entrada sin salida, sin bloqueos ni lectura previa,
+     * por lo que dos escaneos simultaneos nunca generan dos asistencias abiertas.
      *
      * @param miembroId ID del miembro que ingresa
      * @return Mensaje de exito con hora de entrada o mensaje de error segun corresponda
      */
+    @Transactional
     public String registrarEntrada(Long miembroId) {
+        return registrarEntrada(miembroId, LocalDateTime.now());
+    }
+
+    /**
+     * Registra la entrada de un miembro con una fecha y hora ya asignada al evento,
+     * la misma que recibe el diario local si la base de datos no responde a tiempo.
+     *
+     * @param miembroId ID del miembro que ingresa
+     * @param fechaHora Fecha y hora de la entrada
+     * @return Mensaje de exito con hora de entrada o mensaje de error segun corresponda
+     */
+    @Transactional
+    public String registrarEntrada(Long miembroId, LocalDateTime fechaHora) {
+        String error = validarAcceso(miembroId);
+        if (error != null) {
+            return error;
+        }
+
+        return abrirAsistencia(miembroId, fechaHora);
+    }
+
+    /**
+     * Registra la entrada de un miembro en modo de escritura diferida.
+     * Aplica las mismas validaciones que registrarEntrada y encola la insercion para que
+     * se escriba junto con otras entradas en un solo lote y una sola transaccion.
+     *
+     * @param miembroId ID del miembro que ingresa
+     * @return Futuro con el mensaje de exito o error, completado cuando la entrada es durable
+     */
+    public CompletableFuture<String> registrarEntradaDiferida(Long miembroId) {
+        return registrarEntradaDiferida(miembroId, LocalDateTime.now());
+    }
+
+    /**
+     * Registra en modo de escritura diferida la entrada de un miembro con una fecha y hora
+     * ya asignada al evento.
+     *
+     * @param miembroId ID del miembro que ingresa
+     * @param fechaHora Fecha y hora de la entrada
+     * @return Futuro con el mensaje de exito o error, completado cuando la entrada es durable
+     */
+    public CompletableFuture<String> registrarEntradaDiferida(Long miembroId, LocalDateTime fechaHora) {
+        String error = validarAcceso(miembroId);
+        if (error != null) {
+            return CompletableFuture.completedFuture(error);
+        }
+
+        if (!aforoService.reservar()) {
+            return CompletableFuture.completedFuture(ERROR_AFORO);
+        }
+
+        return escrituraDiferidaService.encolarEntrada(miembroId, fechaHora)
+                .whenComplete((resultado, excepcion) -> {
+                    if (excepcion != null || resultado.startsWith("ERROR")) {
+                        aforoService.cancelarReserva();
+                    } else {
+                        aforoService.confirmarReserva();
+                    }
+                });
+    }
+
+    private String validarAcceso(Long miembroId) {
         Miembro miembro = miembroRepository.findById(miembroId).orElse(null);
 
         if (miembro == null) {
@@ -55,15 +194,53 @@ public class AsistenciaService {
             return "ERROR: Membresía inactiva o vencida. Debe renovar.";
         }
 
-        if (asistenciaRepository.miembroEstaEnGimnasio(miembro)) {
+        return null;
+    }
+
+    /**
+     * Registra la entrada de un miembro cuyo acceso ya fue validado por quien llama
+     * (por ejemplo, el kiosco con los datos en cache). Cuesta una sola insercion:
+     * el indice unico parcial rechaza la entrada si el miembro ya tiene una asistencia abierta.
+     * El resumen de ocupacion por hora se actualiza despues, en segundo plano.
+     * Antes de insertar se reserva un lugar en el control de aforo.
+     *
+     * @param miembroId ID de un miembro existente con membresia vigente
+     * @return Mensaje de exito con hora de entrada o mensaje de error si ya tiene una entrada activa
+     *         o se alcanzo el aforo maximo
+     */
+    @Transactional
+    public String abrirAsistencia(Long miembroId) {
+        return abrirAsistencia(miembroId, LocalDateTime.now());
+    }
+
+    /**
+     * Registra con una fecha y hora ya asignada al evento la entrada de un miembro cuyo acceso
+     * ya fue validado por quien llama.
+     *
+     * @param miembroId ID de un miembro existente con membresia vigente
+     * @param entrada Fecha y hora de la entrada
+     * @return Mensaje de exito con hora de entrada o mensaje de error segun corresponda
+     */
+    @Transactional
+    public String abrirAsistencia(Long miembroId, LocalDateTime entrada) {
+        if (ocupacionService.estaEnGimnasio(miembroId)) {
+            return "ERROR: El miembro ya tiene una entrada activa";
+        }
+
+        if (!aforoService.reservar()) {
+            return ERROR_AFORO;
+        }
+
+        int insertadas = jdbcTemplate.update(SQL_ABRIR_ASISTENCIA, miembroId, entrada);
+
+        if (insertadas == 0) {
+            aforoService.liberar();
             return "ERROR: El miembro ya tiene una entrada activa";
         }
 
-        Asistencia asistencia = new Asistencia(miembro);
-        asistenciaRepository.save(asistencia);
+        eventPublisher.publishEvent(EventoAsistencia.entrada(miembroId, entrada));
 
-        return "SUCCESS: Entrada registrada a las " +
-                asistencia.getFechaHoraEntrada().toLocalTime().format(TIME_FORMATTER);
+        return "SUCCESS: Entrada registrada a las " + entrada.toLocalTime().format(TIME_FORMATTER);
     }
 
     /**
@@ -74,7 +251,21 @@ public class AsistenciaService {
      * @param miembroId ID del miembro que sale
      * @return Mensaje de exito con duracion de la visita o mensaje de error si no hay entrada registrada
      */
+    @Transactional
     public String registrarSalida(Long miembroId) {
+        return registrarSalida(miembroId, LocalDateTime.now());
+    }
+
+    /**
+     * Registra la salida de un miembro con una fecha y hora ya asignada al evento,
+     * la misma que recibe el diario local si la base de datos no responde a tiempo.
+     *
+     * @param miembroId ID del miembro que sale
+     * @param fechaHora Fecha y hora de la salida
+     * @return Mensaje de exito con duracion de la visita o mensaje de error si no hay entrada registrada
+     */
+    @Transactional
+    public String registrarSalida(Long miembroId, LocalDateTime fechaHora) {
         Miembro miembro = miembroRepository.findById(miembroId).orElse(null);
 
         if (miembro == null) {
@@ -88,13 +279,143 @@ public class AsistenciaService {
         }
 
         Asistencia asistencia = asistenciaOpt.get();
-        asistencia.registrarSalida();
+        asistencia.registrarSalida(fechaHora);
         asistenciaRepository.save(asistencia);
+        eventPublisher.publishEvent(EventoAsistencia.salida(miembroId,
+                asistencia.getFechaHoraEntrada(), asistencia.getFechaHoraSalida()));
 
         return "SUCCESS: Salida registrada. Duración: " +
                 asistencia.getDuracionMinutos() + " minutos";
     }
 
+    /**
+     * Registra en orden un lote de entradas y salidas enviadas por los torniquetes.
+     * Aplica las mismas reglas que registrarEntrada y registrarSalida, pero resuelve todos
+     * los miembros y sus asistencias abiertas con una consulta cada uno y escribe los
+     * resultados con inserciones y actualizaciones JDBC por lotes en una sola transaccion.
+     *
+     * @param eventos Eventos de entrada/salida en el orden en que ocurrieron
+     * @return Resultado de cada evento, en el mismo orden, con prefijo SUCCESS o ERROR
+     */
+    @Transactional
+    public List<String> registrarLote(List<EventoTorniquete> eventos) {
+        Set<Long> miembroIds = new HashSet<>();
+        for (EventoTorniquete evento : eventos) {
+            if (evento.getMiembroId() != null) {
+                miembroIds.add(evento.getMiembroId());
+            }
+        }
+
+        Map<Long, Miembro> miembros = new HashMap<>();
+        // Asistencia abierta de cada miembro, incluidas las abiertas dentro del mismo lote
+        Map<Long, AsistenciaLote> abiertas = new HashMap<>();
+        if (!miembroIds.isEmpty()) {
+            for (Miembro miembro : miembroRepository.findAllById(miembroIds)) {
+                miembros.put(miembro.getId(), miembro);
+            }
+            for (AsistenciaRepository.AsistenciaAbierta abierta :
+                    asistenciaRepository.findAsistenciasAbiertasByMiembroIds(miembroIds)) {
+                abiertas.put(abierta.getMiembroId(), new AsistenciaLote(abierta.getId(),
+                        abierta.getMiembroId(), abierta.getFechaHoraEntrada()));
+            }
+        }
+
+        List<AsistenciaLote> nuevas = new ArrayList<>();
+        List<AsistenciaLote> cerradas = new ArrayList<>();
+        List<EventoLote> aplicados = new ArrayList<>();
+        List<String> resultados = new ArrayList<>(eventos.size());
+
+        for (EventoTorniquete evento : eventos) {
+            Long miembroId = evento.getMiembroId();
+            Miembro miembro = miembroId != null ? miembros.get(miembroId) : null;
+            LocalDateTime fechaHora = evento.getFechaHora() != null ? evento.getFechaHora() : LocalDateTime.now();
+
+            if (miembro == null) {
+                resultados.add("ERROR: Miembro no encontrado");
+            } else if (evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+                if (!miembro.getActivo() || miembro.estaVencida()) {
+                    resultados.add("ERROR: Membresía inactiva o vencida. Debe renovar.");
+                } else if (abiertas.containsKey(miembroId)) {
+                    resultados.add("ERROR: El miembro ya tiene una entrada activa");
+                } else {
+                    AsistenciaLote nueva = new AsistenciaLote(null, miembroId, fechaHora);
+                    nuevas.add(nueva);
+                    abiertas.put(miembroId, nueva);
+                    aplicados.add(new EventoLote(EventoAsistencia.entrada(miembroId, fechaHora), nueva,
+                            resultados.size()));
+                    resultados.add("SUCCESS: Entrada registrada a las " +
+                            fechaHora.toLocalTime().format(TIME_FORMATTER));
+                }
+            } else if (evento.getTipo() == EventoAsistencia.Tipo.SALIDA) {
+                AsistenciaLote abierta = abiertas.get(miembroId);
+                if (abierta == null) {
+                    resultados.add("ERROR: No hay entrada registrada para este miembro");
+                } else if (fechaHora.isBefore(abierta.entrada)) {
+                    resultados.add("ERROR: La salida es anterior a la entrada registrada");
+                } else {
+                    abierta.cerrar(fechaHora);
+                    abiertas.remove(miembroId);
+                    // Las asistencias abiertas en este mismo lote se insertan ya cerradas
+                    if (abierta.id != null) {
+                        cerradas.add(abierta);
+                    }
+                    aplicados.add(new EventoLote(EventoAsistencia.salida(miembroId, abierta.entrada, fechaHora),
+                            abierta, resultados.size()));
+                    resultados.add("SUCCESS: Salida registrada. Duración: " +
+                            abierta.duracionMinutos + " minutos");
+                }
+            } else {
+                resultados.add("ERROR: Tipo de evento no válido");
+            }
+        }
+
+        // Las salidas se aplican primero: una entrada posterior del mismo miembro en el lote
+        // chocaria con el indice unico parcial mientras su asistencia anterior siga abierta
+        marcarEscritas(cerradas, jdbcTemplate.batchUpdate(SQL_CERRAR_ASISTENCIA, cerradas, cerradas.size(),
+                (ps, asistencia) -> {
+                    ps.setObject(1, asistencia.salida);
+                    ps.setInt(2, asistencia.duracionMinutos);
+                    ps.setLong(3, asistencia.id);
+                }));
+        marcarEscritas(nuevas, jdbcTemplate.batchUpdate(SQL_INSERTAR_ASISTENCIA, nuevas, nuevas.size(),
+                (ps, asistencia) -> {
+                    ps.setLong(1, asistencia.miembroId);
+                    ps.setObject(2, asistencia.entrada);
+                    ps.setObject(3, asistencia.salida, Types.TIMESTAMP);
+                    ps.setObject(4, asistencia.duracionMinutos, Types.INTEGER);
+                }));
+
+        // Otra transaccion pudo abrir o cerrar la asistencia despues de la lectura inicial: los eventos
+        // cuya fila no se escribio se informan como error y no se publican ni ocupan aforo
+        int entradasEscritas = 0;
+        for (EventoLote aplicado : aplicados) {
+            if (!aplicado.asistencia.escrita) {
+                resultados.set(aplicado.indiceResultado, aplicado.evento.getTipo() == EventoAsistencia.Tipo.ENTRADA
+                        ? "ERROR: El miembro ya tiene una entrada activa"
+                        : "ERROR: No hay entrada registrada para este miembro");
+                continue;
+            }
+            if (aplicado.evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+                entradasEscritas++;
+            }
+            eventPublisher.publishEvent(aplicado.evento);
+        }
+
+        // Los eventos de torniquete ya ocurrieron: se suman al aforo sin poder rechazarse
+        aforoService.ocuparAlConfirmar(entradasEscritas);
+        return resultados;
+    }
+
+    // Marca las asistencias cuya fila afecto el lote; batchUpdate devuelve un arreglo por sub-lote
+    private static void marcarEscritas(List<AsistenciaLote> asistencias, int[][] filas) {
+        int i = 0;
+        for (int[] subLote : filas) {
+            for (int afectadas : subLote) {
+                asistencias.get(i++).escrita = afectadas > 0;
+            }
+        }
+    }
+
     /**
      * Obtiene todas las asistencias registradas en el dia actual.
      *
@@ -114,16 +435,25 @@ public class AsistenciaService {
         return asistenciaRepository.findMiembrosEnGimnasio();
     }
 
+    /**
+     * Obtiene los IDs de los miembros que estan actualmente en el gimnasio
+     * junto con su hora de entrada, desde el indice de ocupacion en memoria.
+     *
+     * @return Mapa de ID de miembro a hora de entrada
+     */
+    public Map<Long, LocalDateTime> obtenerPresentes() {
+        return ocupacionService.obtenerPresentes();
+    }
+
     /**
      * Verifica si un miembro especifico esta actualmente en el gimnasio.
+     * Consulta el indice de ocupacion en memoria, sin acceder a la base de datos.
      *
      * @param miembroId ID del miembro a verificar
      * @return true si el miembro esta en el gimnasio, false en caso contrario
      */
     public boolean miembroEstaEnGimnasio(Long miembroId) {
-        Miembro miembro = miembroRepository.findById(miembroId).orElse(null);
-        if (miembro == null) return false;
-        return asistenciaRepository.miembroEstaEnGimnasio(miembro);
+        return ocupacionService.estaEnGimnasio(miembroId);
     }
 
     /**
@@ -139,6 +469,99 @@ public class AsistenciaService {
         return asistenciaRepository.findByMiembroOrderByFechaHoraEntradaDesc(miembro);
     }
 
+    /**
+     * Obtiene una pagina del historial de asistencias de un miembro usando paginacion por cursor.
+     * Cada pagina es una busqueda acotada en el indice (miembro, fecha de entrada, id),
+     * sin importar cuantas paginas anteriores existan. Un cursor invalido devuelve la primera pagina.
+     *
+     * @param miembroId ID del miembro
+     * @param cursor Cursor de la pagina a obtener, null para la primera
+     * @param tamano Cantidad de asistencias por pagina (entre 1 y TAMANO_MAXIMO_PAGINA)
+     * @return Pagina con las asistencias y el cursor de la pagina siguiente
+     */
+    public PaginaHistorial obtenerPaginaHistorial(Long miembroId, String cursor, int tamano) {
+        int limite = Math.max(1, Math.min(tamano, TAMANO_MAXIMO_PAGINA));
+        // Se pide una fila extra para saber si existe una pagina siguiente sin contar el total
+        Pageable pagina = PageRequest.of(0, limite + 1);
+
+        LocalDateTime fecha = PaginaHistorial.fechaDelCursor(cursor);
+        Long id = PaginaHistorial.idDelCursor(cursor);
+        List<Asistencia> asistencias;
+        if (fecha == null || id == null) {
+            cursor = null;
+            asistencias = asistenciaRepository.findPaginaHistorial(miembroId, pagina);
+        } else {
+            asistencias = asistenciaRepository.findPaginaHistorialAntesDe(miembroId, fecha, id, pagina);
+        }
+
+        if (asistencias.size() <= limite) {
+            return new PaginaHistorial(asistencias, cursor, null);
+        }
+        List<Asistencia> contenido = asistencias.subList(0, limite);
+        return new PaginaHistorial(contenido, cursor, PaginaHistorial.codificarCursor(contenido.get(limite - 1)));
+    }
+
+    /**
+     * Exporta en formato CSV las asistencias con entrada dentro de un rango de fechas.
+     * Las filas se leen con un cursor de solo avance y se escriben en el flujo a medida
+     * que llegan, por lo que la memoria usada no depende del tamano del rango. Los datos
+     * del miembro se obtienen con un JOIN en la misma consulta.
+     * Debe ejecutarse dentro de una transaccion: el driver de PostgreSQL solo usa el
+     * fetch size (cursor) cuando la conexion no esta en autocommit.
+     *
+     * @param inicio Fecha de inicio del rango (inclusive)
+     * @param fin Fecha de fin del rango (inclusive)
+     * @param salida Flujo donde se escribe el CSV
+     * @throws IOException si falla la escritura en el flujo
+     */
+    @Transactional(readOnly = true)
+    public void exportarAsistenciasCsv(LocalDate inicio, LocalDate fin, OutputStream salida) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write("id,dni,nombre,plan,entrada,salida,duracion_minutos,cierre_automatico");
+        writer.newLine();
+
+        try {
+            jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SQL_EXPORTAR_RANGO,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                ps.setFetchSize(FETCH_SIZE_EXPORTACION);
+                ps.setObject(1, inicio.atStartOfDay());
+                ps.setObject(2, fin.plusDays(1).atStartOfDay());
+                return ps;
+            }, (ResultSet rs) -> {
+                LocalDateTime salidaRegistrada = rs.getObject("fecha_hora_salida", LocalDateTime.class);
+                Integer duracion = (Integer) rs.getObject("duracion_minutos");
+                try {
+                    writer.write(rs.getLong("id") + ","
+                            + campoCsv(rs.getString("dni")) + ","
+                            + campoCsv(rs.getString("nombre")) + ","
+                            + campoCsv(rs.getString("plan")) + ","
+                            + rs.getObject("fecha_hora_entrada", LocalDateTime.class) + ","
+                            + (salidaRegistrada != null ? salidaRegistrada : "") + ","
+                            + (duracion != null ? duracion : "") + ","
+                            + rs.getBoolean("auto_cerrada"));
+                    writer.newLine();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            // El cliente cerro la conexion: se propaga para cancelar la respuesta
+            throw e.getCause();
+        }
+
+        writer.flush();
+    }
+
+    // Escapa un valor de texto segun RFC 4180 (comillas dobles si contiene separadores)
+    private static String campoCsv(String valor) {
+        if (valor == null) return "";
+        if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
     /**
      * Obtiene las asistencias registradas dentro de un rango de fechas.
      *
@@ -154,20 +577,22 @@ public class AsistenciaService {
 
     /**
      * Cuenta el numero total de asistencias registradas en el dia actual.
+     * Lee el contador de entradas del dia en lugar de contar las asistencias.
      *
      * @return Cantidad de asistencias del dia
      */
     public long contarAsistenciasHoy() {
-        return asistenciaRepository.countAsistenciasHoy();
+        return actividadDiariaService.obtenerHoy().getEntradas();
     }
 
     /**
      * Cuenta cuantos miembros estan actualmente en el gimnasio.
+     * Consulta el indice de ocupacion en memoria, sin acceder a la base de datos.
      *
      * @return Cantidad de miembros presentes
      */
     public long contarMiembrosEnGimnasio() {
-        return asistenciaRepository.countMiembrosEnGimnasio();
+        return ocupacionService.contarPresentes();
     }
 
     /**
@@ -184,60 +609,36 @@ public class AsistenciaService {
 
     /**
      * Cuenta las asistencias de un miembro especifico en el mes actual.
-     * Util para verificar el uso del plan de membresia.
+     * Util para verificar el uso del plan de membresia. Lee la fila de estadisticas
+     * del miembro en lugar de contar sus asistencias.
      *
      * @param miembroId ID del miembro
      * @return Cantidad de asistencias del miembro en el mes
      */
     public long contarAsistenciasMiembroMes(Long miembroId) {
-        Miembro miembro = miembroRepository.findById(miembroId).orElse(null);
-        if (miembro == null) return 0;
-        return asistenciaRepository.countAsistenciasMiembroMesActual(miembro);
+        return estadisticaMiembroService.contarVisitasMesActual(miembroId);
     }
 
     /**
      * Genera una lista de todos los miembros activos con su estado de asistencia del dia.
-     * Incluye informacion de presencia, hora de entrada y si esta actualmente en el gimnasio.
+     * Obtiene el estado del dia con una unica consulta de proyeccion y agrupa las filas
+     * en un indice hash por ID de miembro, en tiempo lineal respecto al numero de filas.
      *
-     * @return Lista de mapas con informacion de cada miembro y su estado de asistencia
+     * @return Lista de filas con informacion de cada miembro y su estado de asistencia
      */
-    public List<Map<String, Object>> obtenerListaMiembrosConEstado() {
-        List<Miembro> miembrosActivos = miembroRepository.findMiembrosActivos();
-        List<Asistencia> asistenciasHoy = asistenciaRepository.findAsistenciasHoy();
-
-        return miembrosActivos.stream().map(miembro -> {
-            Map<String, Object> info = new HashMap<>();
-            info.put("id", miembro.getId());
-            info.put("nombre", miembro.getNombre());
-            info.put("dni", miembro.getDni());
-            info.put("plan", miembro.getPlan());
-
-            Optional<Asistencia> asistenciaOpt = asistenciasHoy.stream()
-                    .filter(a -> a.getMiembro().getId().equals(miembro.getId()) && a.estaEnGimnasio())
-                    .findFirst();
-
-            if (asistenciaOpt.isPresent()) {
-                Asistencia asistencia = asistenciaOpt.get();
-                info.put("estado", "Presente");
-                info.put("horaEntrada", asistencia.getFechaHoraEntrada().toLocalTime().format(TIME_FORMATTER));
-                info.put("enGimnasio", true);
-            } else {
-                boolean yaSalio = asistenciasHoy.stream()
-                        .anyMatch(a -> a.getMiembro().getId().equals(miembro.getId()) && !a.estaEnGimnasio());
-
-                if (yaSalio) {
-                    info.put("estado", "Asistió");
-                    info.put("horaEntrada", "----");
-                    info.put("enGimnasio", false);
-                } else {
-                    info.put("estado", "Ausente");
-                    info.put("horaEntrada", "----");
-                    info.put("enGimnasio", false);
-                }
-            }
+    public List<FilaAsistenciaMiembro> obtenerListaMiembrosConEstado() {
+        LocalDateTime inicioDia = LocalDate.now().atStartOfDay();
+        List<AsistenciaRepository.EstadoAsistenciaDia> estados =
+                asistenciaRepository.findEstadoAsistenciaDelDia(inicioDia, inicioDia.plusDays(1));
+
+        Map<Long, FilaAsistenciaMiembro> filasPorMiembro = new LinkedHashMap<>();
+        for (AsistenciaRepository.EstadoAsistenciaDia estado : estados) {
+            FilaAsistenciaMiembro fila = filasPorMiembro.computeIfAbsent(estado.getMiembroId(),
+                    id -> new FilaAsistenciaMiembro(id, estado.getNombre(), estado.getDni(), estado.getPlan()));
+            fila.registrar(estado.getFechaHoraEntrada(), estado.getFechaHoraSalida());
+        }
 
-            return info;
-        }).toList();
+        return new ArrayList<>(filasPorMiembro.values());
     }
 
     /**
@@ -252,6 +653,7 @@ public class AsistenciaService {
         return asistencias.stream().map(asistencia -> {
             Map<String, Object> info = new HashMap<>();
             info.put("id", asistencia.getId());
+            info.put("miembroId", asistencia.getMiembro().getId());
             info.put("nombre", asistencia.getMiembro().getNombre());
             info.put("dni", asistencia.getMiembro().getDni());
             info.put("horaEntrada", asistencia.getFechaHoraEntrada().toLocalTime().format(TIME_FORMATTER));
@@ -259,7 +661,7 @@ public class AsistenciaService {
             if (asistencia.getFechaHoraSalida() != null) {
                 info.put("horaSalida", asistencia.getFechaHoraSalida().toLocalTime().format(TIME_FORMATTER));
                 info.put("duracion", asistencia.getDuracionMinutos() + " min");
-                info.put("tipo", "Completa");
+                info.put("tipo", Boolean.TRUE.equals(asistencia.getAutoCerrada()) ? "Cierre automático" : "Completa");
             } else {
                 info.put("horaSalida", "----");
                 info.put("duracion", "En gimnasio");
@@ -269,4 +671,44 @@ public class AsistenciaService {
             return info;
         }).toList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Asistencia en curso dentro de un lote de torniquetes.
+     * El ID es null cuando la asistencia fue abierta en el mismo lote y aun no se inserto.
+     */
+    private static class AsistenciaLote {
+        private final Long id;
+        private final Long miembroId;
+        private final LocalDateTime entrada;
+        private LocalDateTime salida;
+        private Integer duracionMinutos;
+        private boolean escrita;
+
+        AsistenciaLote(Long id, Long miembroId, LocalDateTime entrada) {
+            this.id = id;
+            this.miembroId = miembroId;
+            this.entrada = entrada;
+        }
+
+        void cerrar(LocalDateTime salida) {
+            this.salida = salida;
+            this.duracionMinutos = (int) Duration.between(entrada, salida).toMinutes();
+        }
+    }
+
+    /**
+     * Evento aplicado en un lote de torniquete, con la asistencia que lo respalda
+     * y la posicion de su resultado.
+     */
+    private static class EventoLote {
+        private final EventoAsistencia evento;
+        private final AsistenciaLote asistencia;
+        private final int indiceResultado;
+
+        EventoLote(EventoAsistencia evento, AsistenciaLote asistencia, int indiceResultado) {
+            this.evento = evento;
+            this.asistencia = asistencia;
+            this.indiceResultado = indiceResultado;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Servicio que cierra automaticamente las asistencias olvidadas.
+ * Los miembros que salen sin registrar su salida mantienen una asistencia abierta
+ * que bloquea su siguiente entrada y altera el conteo de presentes; este proceso
+ * programado cierra por lotes las que superan el tiempo maximo configurado.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class CierreAsistenciasService {
+
+    // Cierra un lote de asistencias vencidas en una sola sentencia; SKIP LOCKED evita esperar
+    // a asistencias que se estan cerrando en ese momento por un escaneo de salida
+    private static final String SQL_CERRAR_LOTE =
+            "UPDATE asistencias SET fecha_hora_salida = fecha_hora_entrada + make_interval(mins => ?), " +
+            "duracion_minutos = ?, auto_cerrada = true " +
+            "WHERE id IN (SELECT id FROM asistencias WHERE fecha_hora_salida IS NULL AND fecha_hora_entrada < ? " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING miembro_id, fecha_hora_entrada, fecha_hora_salida";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${gym.asistencia.cierre-automatico.horas-maximas:12}")
+    private int horasMaximas;
+
+    @Value("${gym.asistencia.cierre-automatico.duracion-minutos:180}")
+    private int duracionMinutos;
+
+    @Value("${gym.asistencia.cierre-automatico.lote:500}")
+    private int tamanoLote;
+
+    private final Counter cerradas;
+    private final DistributionSummary cerradasPorEjecucion;
+    private final Timer duracionEjecucion;
+
+    public CierreAsistenciasService(MeterRegistry registry) {
+        this.cerradas = Counter.builder("gym.asistencias.cierre.automatico.cerradas")
+                .description("Asistencias cerradas automaticamente")
+                .register(registry);
+        this.cerradasPorEjecucion = DistributionSummary.builder("gym.asistencias.cierre.automatico.por.ejecucion")
+                .description("Asistencias cerradas en cada ejecucion del cierre automatico")
+                .register(registry);
+        this.duracionEjecucion = Timer.builder("gym.asistencias.cierre.automatico.duracion")
+                .description("Duracion de cada ejecucion del cierre automatico")
+                .register(registry);
+    }
+
+    /**
+     * Cierra las asistencias abiertas por mas tiempo del permitido.
+     * Procesa lotes de tamano fijo, cada uno con una sola sentencia UPDATE en su propia
+     * transaccion, hasta que no quedan asistencias vencidas. La salida se fija en la entrada
+     * mas la duracion maxima configurada y la asistencia queda marcada como cierre automatico.
+     *
+     * @return Cantidad de asistencias cerradas en la ejecucion
+     */
+    @Scheduled(fixedDelayString = "${gym.asistencia.cierre-automatico.intervalo-ms:900000}")
+    public int cerrarAsistenciasOlvidadas() {
+        Timer.Sample muestra = Timer.start();
+        LocalDateTime limite = LocalDateTime.now().minusHours(horasMaximas);
+        int total = 0;
+        int cerradasLote;
+
+        do {
+            Integer resultado = transactionTemplate.execute(estado -> cerrarLote(limite));
+            cerradasLote = resultado != null ? resultado : 0;
+            total += cerradasLote;
+        } while (cerradasLote == tamanoLote);
+
+        cerradas.increment(total);
+        cerradasPorEjecucion.record(total);
+        muestra.stop(duracionEjecucion);
+        return total;
+    }
+
+    private int cerrarLote(LocalDateTime limite) {
+        List<EventoAsistencia> salidas = jdbcTemplate.query(SQL_CERRAR_LOTE,
+                (rs, fila) -> EventoAsistencia.cierreAutomatico(rs.getLong("miembro_id"),
+                        rs.getObject("fecha_hora_entrada", LocalDateTime.class),
+                        rs.getObject("fecha_hora_salida", LocalDateTime.class)),
+                duracionMinutos, duracionMinutos, limite, tamanoLote);
+
+        // Los indices en memoria y el resumen horario se actualizan al confirmar el lote
+        salidas.forEach(eventPublisher::publishEvent);
+        return salidas.size();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantanea compartida de la proxima sesion de cada clase grupal y sus inscritos.
+ * Obtiene las sesiones de todas las clases con una sola consulta y las conserva
+ * como un mapa inmutable durante un tiempo corto, de modo que las paginas que listan clases
+ * no consultan la base de datos por clase. ClaseService la invalida al confirmarse cada reserva
+ * o cancelacion, y ClaseSesionService al programar sesiones.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class ClaseOcupacionSnapshotService {
+
+    @Autowired
+    private ClaseSesionRepository claseSesionRepository;
+
+    @Value("${gym.clases.ocupacion.ttl-ms:5000}")
+    private long ttlMs;
+
+    private volatile Instantanea instantanea;
+
+    // Se incrementa en cada invalidacion; una carga iniciada antes de una invalidacion no se guarda
+    private final AtomicLong generacion = new AtomicLong();
+
+    /**
+     * Obtiene la proxima sesion de cada clase. Si la instantanea vencio o fue invalidada,
+     * la recalcula con una consulta; las solicitudes concurrentes esperan esa misma carga.
+     *
+     * @return Mapa inmutable de ID de clase a su proxima sesion (las clases sin sesiones no aparecen)
+     */
+    public Map<Long, ClaseSesionRepository.ProximaSesion> obtenerProximasSesiones() {
+        return cargar().sesiones;
+    }
+
+    /**
+     * Obtiene los inscritos en la proxima sesion de cada clase.
+     *
+     * @return Mapa inmutable de ID de clase a inscritos (las clases sin sesiones no aparecen)
+     */
+    public Map<Long, Long> obtenerInscritosProximaSesion() {
+        return cargar().inscritos;
+    }
+
+    /**
+     * Obtiene la proxima sesion de una clase desde la instantanea.
+     *
+     * @param claseId ID de la clase
+     * @return Proxima sesion de la clase, o null si no tiene sesiones programadas
+     */
+    public ClaseSesionRepository.ProximaSesion obtenerProximaSesion(Long claseId) {
+        return obtenerProximasSesiones().get(claseId);
+    }
+
+    private Instantanea cargar() {
+        Instantanea actual = instantanea;
+        if (actual != null && actual.vigente()) {
+            return actual;
+        }
+
+        synchronized (this) {
+            actual = instantanea;
+            if (actual != null && actual.vigente()) {
+                return actual;
+            }
+
+            long generacionInicial = generacion.get();
+            Map<Long, ClaseSesionRepository.ProximaSesion> sesiones = new HashMap<>();
+            Map<Long, Long> inscritos = new HashMap<>();
+            for (ClaseSesionRepository.ProximaSesion fila : claseSesionRepository.findProximas(LocalDateTime.now())) {
+                sesiones.put(fila.getClaseId(), fila);
+                inscritos.put(fila.getClaseId(), fila.getInscritos().longValue());
+            }
+
+            Instantanea nueva = new Instantanea(Map.copyOf(sesiones), Map.copyOf(inscritos),
+                    System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMs));
+            if (generacion.get() == generacionInicial) {
+                instantanea = nueva;
+            }
+            return nueva;
+        }
+    }
+
+    /**
+     * Descarta la instantanea para que la siguiente lectura refleje una reserva, cancelacion
+     * o cambio en las sesiones programadas.
+     * Dentro de una transaccion, la invalidacion ocurre despues del commit; antes, una recarga
+     * concurrente todavia leeria el conteo anterior.
+     */
+    public void invalidar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    descartar();
+                }
+            });
+        } else {
+            descartar();
+        }
+    }
+
+    private void descartar() {
+        generacion.incrementAndGet();
+        instantanea = null;
+    }
+
+    private static class Instantanea {
+        private final Map<Long, ClaseSesionRepository.ProximaSesion> sesiones;
+        private final Map<Long, Long> inscritos;
+        private final long expiraNanos;
+
+        Instantanea(Map<Long, ClaseSesionRepository.ProximaSesion> sesiones, Map<Long, Long> inscritos,
+                    long expiraNanos) {
+            this.sesiones = sesiones;
+            this.inscritos = inscritos;
+            this.expiraNanos = expiraNanos;
+        }
+
+        boolean vigente() {
+            return System.nanoTime() - expiraNanos < 0;
+        }
+    }
+}
@@ -1,22 +1,33 @@
 package com.example.ProyectoGym.Services;
 
 import com.example.ProyectoGym.Model.ClaseGrupal;
+import com.example.ProyectoGym.Model.ClaseSesion;
 import com.example.ProyectoGym.Model.Instructor;
 import com.example.ProyectoGym.Model.Miembro;
 import com.example.ProyectoGym.Model.Reserva;
 import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
 import com.example.ProyectoGym.Repository.InstructorRepository;
+import com.example.ProyectoGym.Repository.ListaEsperaRepository;
 import com.example.ProyectoGym.Repository.ReservaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
  * Servicio para la gestion de clases grupales y reservas.
  * Proporciona funcionalidades de creacion, actualizacion, reserva y consulta de clases,
  * asi como la gestion de cupos y asignacion de instructores.
+ * Las reservas, los cupos y las listas de espera corresponden a una sesion fechada de la clase.
  *
  * @author Juan Quispe, Pedro Perez
  * @since 2025
@@ -24,15 +35,57 @@ import java.util.Optional;
 @Service
 public class ClaseService {
 
+    public static final String ERROR_SESION_LLENA =
+            "ERROR: La sesión ha alcanzado su capacidad máxima. Puedes unirte a la lista de espera";
+
+    // El indice unico parcial de reservas activas descarta la segunda reserva simultanea del mismo miembro
+    private static final String SQL_INSERTAR_RESERVA =
+            "INSERT INTO reserva (miembro_id, clase_id, sesion_id, fecha_reserva, estado) VALUES (?, ?, ?, ?, 'ACTIVA') " +
+            "ON CONFLICT (miembro_id, sesion_id) WHERE estado = 'ACTIVA' DO NOTHING";
+
+    // Las filas que otra transaccion tiene bloqueadas (un miembro saliendo de la lista) se saltan sin esperar
+    private static final String SQL_RETIRAR_PRIMERO_EN_ESPERA =
+            "DELETE FROM lista_espera WHERE id = (SELECT id FROM lista_espera WHERE sesion_id = ? " +
+            "ORDER BY posicion LIMIT 1 FOR UPDATE SKIP LOCKED) RETURNING miembro_id";
+
+    private static final String SQL_BLOQUEAR_SESION = "SELECT id FROM clase_sesion WHERE id = ? FOR UPDATE";
+
     @Autowired
     private ClaseGrupalRepository claseGrupalRepository;
 
+    @Autowired
+    private ClaseSesionRepository claseSesionRepository;
+
     @Autowired
     private ReservaRepository reservaRepository;
 
     @Autowired
     private InstructorRepository instructorRepository;
 
+    @Autowired
+    private ListaEsperaRepository listaEsperaRepository;
+
+    @Autowired
+    private ClaseOcupacionSnapshotService claseOcupacionSnapshotService;
+
+    @Autowired
+    private ClaseSesionService claseSesionService;
+
+    @Autowired
+    private AgendaInstructoresService agendaInstructoresService;
+
+    @Autowired
+    private InasistenciasService inasistenciasService;
+
+    @Autowired
+    private ActividadDiariaService actividadDiariaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Obtiene todas las clases grupales con estado activo.
      *
@@ -51,6 +104,16 @@ public class ClaseService {
         return claseGrupalRepository.findAll();
     }
 
+    /**
+     * Obtiene todas las clases grupales con su instructor cargado en la misma consulta.
+     * Util para listados que muestran el instructor de cada clase.
+     *
+     * @return Lista de todas las clases con su instructor
+     */
+    public List<ClaseGrupal> obtenerTodasLasClasesConInstructor() {
+        return claseGrupalRepository.findAllConInstructor();
+    }
+
     /**
      * Obtiene una clase grupal especifica por su ID.
      *
@@ -63,45 +126,80 @@ public class ClaseService {
     }
 
     /**
-     * Permite a un miembro reservar una clase grupal.
-     * Valida que el miembro tenga plan Premium, que la clase exista,
-     * que no tenga una reserva previa activa y que haya cupos disponibles.
+     * Permite a un miembro reservar la proxima sesion de una clase grupal.
      *
      * @param miembro Miembro que desea reservar
      * @param claseId ID de la clase a reservar
      * @return Mensaje de exito o error segun corresponda
      */
     public String reservarClase(Miembro miembro, Long claseId) {
-        if (miembro.getPlan() == null || !miembro.getPlan().equalsIgnoreCase("Premium")) {
+        if (!puedeReservar(miembro)) {
             return "ERROR: Solo los miembros Premium pueden reservar clases";
         }
 
-        Optional<ClaseGrupal> claseOpt = claseGrupalRepository.findById(claseId);
-        if (!claseOpt.isPresent()) {
+        if (!claseGrupalRepository.existsById(claseId)) {
             return "ERROR: Clase no encontrada";
         }
 
-        ClaseGrupal clase = claseOpt.get();
+        Optional<ClaseSesion> sesion = claseSesionService.obtenerProximaSesion(claseId);
+        if (!sesion.isPresent()) {
+            return "ERROR: La clase no tiene sesiones programadas";
+        }
 
-        Optional<Reserva> reservaExistente = reservaRepository.findByMiembroAndClaseGrupalAndEstado(
-                miembro, clase, "ACTIVA");
+        return reservarSesion(miembro, sesion.get().getId());
+    }
 
-        if (reservaExistente.isPresent()) {
-            return "ERROR: Ya tienes una reserva activa para esta clase";
+    /**
+     * Permite a un miembro reservar una sesion fechada de una clase grupal.
+     * Valida que el miembro tenga plan Premium y no este penalizado por inasistencias, que la sesion
+     * exista y no haya comenzado, que no tenga una reserva previa activa y que haya cupos disponibles.
+     * El cupo se ocupa con un UPDATE condicional sobre el contador de inscritos de la sesion
+     * en la misma transaccion que inserta la reserva, por lo que nunca se supera la capacidad.
+     *
+     * @param miembro Miembro que desea reservar
+     * @param sesionId ID de la sesion a reservar
+     * @return Mensaje de exito o error segun corresponda
+     */
+    public String reservarSesion(Miembro miembro, Long sesionId) {
+        if (!puedeReservar(miembro)) {
+            return "ERROR: Solo los miembros Premium pueden reservar clases";
         }
 
-        if (clase.getCapacidad() != null) {
-            Long reservasActivas = reservaRepository.countReservasActivasByClase(clase);
-            if (reservasActivas >= clase.getCapacidad()) {
-                return "ERROR: La clase ha alcanzado su capacidad máxima";
-            }
+        String penalizacion = inasistenciasService.verificarPenalizacion(miembro.getId());
+        if (penalizacion != null) {
+            return penalizacion;
+        }
+
+        Optional<ClaseSesion> sesionOpt = claseSesionRepository.findById(sesionId);
+        if (!sesionOpt.isPresent()) {
+            return "ERROR: Sesión no encontrada";
         }
 
+        ClaseSesion sesion = sesionOpt.get();
+
+        if (!sesion.getInicio().isAfter(LocalDateTime.now())) {
+            return "ERROR: La sesión ya comenzó";
+        }
+
+        if (reservaRepository.existsByMiembroIdAndSesionIdAndEstado(miembro.getId(), sesionId, "ACTIVA")) {
+            return "ERROR: Ya tienes una reserva activa para esta sesión";
+        }
+
+        Long claseId = sesion.getClase().getId();
         try {
-            Reserva nuevaReserva = new Reserva(miembro, clase);
-            reservaRepository.save(nuevaReserva);
-            return "SUCCESS: Reserva realizada exitosamente";
-        } catch (Exception e) {
+            return transactionTemplate.execute(estado -> {
+                if (claseSesionRepository.ocuparCupo(sesionId) == 0) {
+                    return ERROR_SESION_LLENA;
+                }
+
+                if (!insertarReserva(miembro.getId(), claseId, sesionId)) {
+                    // Otra solicitud del mismo miembro reservo primero: se revierte el cupo ocupado
+                    estado.setRollbackOnly();
+                    return "ERROR: Ya tienes una reserva activa para esta sesión";
+                }
+                return "SUCCESS: Reserva realizada exitosamente";
+            });
+        } catch (DataAccessException e) {
             return "ERROR: No se pudo completar la reserva";
         }
     }
@@ -109,6 +207,8 @@ public class ClaseService {
     /**
      * Cancela una reserva de clase grupal.
      * Valida que la reserva exista, pertenezca al miembro y este activa.
+     * Cancelar la reserva, liberar su cupo en la sesion y promover al primero de la lista
+     * de espera de esa sesion ocurren en la misma transaccion.
      *
      * @param reservaId ID de la reserva a cancelar
      * @param miembro Miembro que solicita la cancelacion
@@ -132,14 +232,168 @@ public class ClaseService {
         }
 
         try {
-            reserva.setEstado("CANCELADA");
-            reservaRepository.save(reserva);
-            return "SUCCESS: Reserva cancelada exitosamente";
-        } catch (Exception e) {
+            return transactionTemplate.execute(estado -> {
+                if (reservaRepository.cancelarSiActiva(reservaId) == 0) {
+                    return "ERROR: Esta reserva ya fue cancelada";
+                }
+                if (reserva.getSesion() != null) {
+                    Long sesionId = reserva.getSesion().getId();
+                    claseSesionRepository.liberarCupo(sesionId);
+                    promoverListaEspera(sesionId, reserva.getClaseGrupal().getId());
+                }
+                claseOcupacionSnapshotService.invalidar();
+                return "SUCCESS: Reserva cancelada exitosamente";
+            });
+        } catch (DataAccessException e) {
             return "ERROR: No se pudo cancelar la reserva";
         }
     }
 
+    /**
+     * Agrega a un miembro a la lista de espera de una sesion llena.
+     * Si al momento de unirse la sesion tiene un cupo libre, la reserva se realiza directamente.
+     * Un miembro penalizado por inasistencias no puede unirse, igual que no puede reservar.
+     * Bloquea solo la fila de la sesion, de modo que una cancelacion concurrente ve al miembro
+     * en la lista o el miembro ve el cupo liberado, nunca ninguno de los dos.
+     *
+     * @param miembro Miembro que desea esperar un cupo
+     * @param sesionId ID de la sesion
+     * @return Mensaje de exito con la posicion en la lista o mensaje de error
+     */
+    public String unirseListaEspera(Miembro miembro, Long sesionId) {
+        if (!puedeReservar(miembro)) {
+            return "ERROR: Solo los miembros Premium pueden reservar clases";
+        }
+
+        String penalizacion = inasistenciasService.verificarPenalizacion(miembro.getId());
+        if (penalizacion != null) {
+            return penalizacion;
+        }
+
+        Optional<ClaseSesion> sesionOpt = claseSesionRepository.findById(sesionId);
+        if (!sesionOpt.isPresent()) {
+            return "ERROR: Sesión no encontrada";
+        }
+
+        if (!sesionOpt.get().getInicio().isAfter(LocalDateTime.now())) {
+            return "ERROR: La sesión ya comenzó";
+        }
+
+        if (reservaRepository.existsByMiembroIdAndSesionIdAndEstado(miembro.getId(), sesionId, "ACTIVA")) {
+            return "ERROR: Ya tienes una reserva activa para esta sesión";
+        }
+
+        Long claseId = sesionOpt.get().getClase().getId();
+        try {
+            return transactionTemplate.execute(estado -> {
+                jdbcTemplate.queryForList(SQL_BLOQUEAR_SESION, Long.class, sesionId);
+
+                if (claseSesionRepository.ocuparCupo(sesionId) == 1) {
+                    if (!insertarReserva(miembro.getId(), claseId, sesionId)) {
+                        estado.setRollbackOnly();
+                        return "ERROR: Ya tienes una reserva activa para esta sesión";
+                    }
+                    return "SUCCESS: Se liberó un cupo y tu reserva fue realizada";
+                }
+
+                if (listaEsperaRepository.agregar(miembro.getId(), claseId, sesionId, LocalDateTime.now()) == 0) {
+                    return "ERROR: Ya estás en la lista de espera de esta sesión";
+                }
+                return "SUCCESS: Estás en la lista de espera en la posición "
+                        + listaEsperaRepository.findPosicion(miembro.getId(), sesionId);
+            });
+        } catch (DataAccessException e) {
+            return "ERROR: No se pudo unir a la lista de espera";
+        }
+    }
+
+    /**
+     * Quita a un miembro de la lista de espera de una sesion.
+     *
+     * @param miembro Miembro que deja de esperar
+     * @param sesionId ID de la sesion
+     * @return Mensaje de exito o error segun corresponda
+     */
+    public String salirListaEspera(Miembro miembro, Long sesionId) {
+        Integer quitadas = transactionTemplate.execute(estado -> listaEsperaRepository.quitar(miembro.getId(), sesionId));
+        if (quitadas == null || quitadas == 0) {
+            return "ERROR: No estás en la lista de espera de esta sesión";
+        }
+        return "SUCCESS: Saliste de la lista de espera";
+    }
+
+    /**
+     * Obtiene la posicion actual de un miembro en la lista de espera de una sesion.
+     *
+     * @param miembro Miembro a consultar
+     * @param sesionId ID de la sesion
+     * @return Posicion (1 = siguiente en recibir un cupo), o null si no esta en la lista
+     */
+    public Long obtenerPosicionListaEspera(Miembro miembro, Long sesionId) {
+        return listaEsperaRepository.findPosicion(miembro.getId(), sesionId);
+    }
+
+    /**
+     * Obtiene las posiciones de un miembro en todas las listas de espera en que se encuentra.
+     *
+     * @param miembro Miembro a consultar
+     * @return Mapa de ID de sesion a posicion en su lista de espera
+     */
+    public Map<Long, Long> obtenerPosicionesListaEspera(Miembro miembro) {
+        Map<Long, Long> posiciones = new HashMap<>();
+        for (ListaEsperaRepository.PosicionEspera fila : listaEsperaRepository.findPosicionesByMiembro(miembro.getId())) {
+            posiciones.put(fila.getSesionId(), fila.getPosicion());
+        }
+        return posiciones;
+    }
+
+    /**
+     * Asigna los cupos libres de una sesion a los primeros de su lista de espera, en orden de llegada.
+     * Los miembros penalizados por inasistencias se retiran de la lista sin recibir el cupo.
+     * Debe ejecutarse dentro de una transaccion que ya bloquee la fila de la sesion
+     * (liberar u ocupar un cupo la bloquea), para no competir con quienes se unen a la lista.
+     *
+     * @param sesionId ID de la sesion
+     * @param claseId ID de la clase de la sesion
+     * @return Cantidad de miembros promovidos a reserva
+     */
+    private int promoverListaEspera(Long sesionId, Long claseId) {
+        int promovidos = 0;
+        while (claseSesionRepository.ocuparCupo(sesionId) == 1) {
+            List<Long> siguiente = jdbcTemplate.queryForList(SQL_RETIRAR_PRIMERO_EN_ESPERA, Long.class, sesionId);
+            if (siguiente.isEmpty()) {
+                claseSesionRepository.liberarCupo(sesionId);
+                break;
+            }
+
+            if (inasistenciasService.verificarPenalizacion(siguiente.get(0)) != null) {
+                // Se penalizo mientras esperaba: no puede reservar, el cupo pasa al siguiente
+                claseSesionRepository.liberarCupo(sesionId);
+            } else if (insertarReserva(siguiente.get(0), claseId, sesionId)) {
+                promovidos++;
+            } else {
+                // Ya tenia una reserva activa (reservo mientras esperaba): se pasa al siguiente
+                claseSesionRepository.liberarCupo(sesionId);
+            }
+        }
+        return promovidos;
+    }
+
+    /**
+     * Inserta una reserva activa para una sesion cuyo cupo ya fue ocupado en la transaccion actual.
+     *
+     * @return true si se inserto, false si el miembro ya tenia una reserva activa en la sesion
+     */
+    private boolean insertarReserva(Long miembroId, Long claseId, Long sesionId) {
+        LocalDateTime fechaReserva = LocalDateTime.now();
+        if (jdbcTemplate.update(SQL_INSERTAR_RESERVA, miembroId, claseId, sesionId, fechaReserva) == 0) {
+            return false;
+        }
+        actividadDiariaService.registrarReserva(fechaReserva.toLocalDate());
+        claseOcupacionSnapshotService.invalidar();
+        return true;
+    }
+
     /**
      * Obtiene todas las reservas activas de un miembro.
      *
@@ -172,7 +426,8 @@ public class ClaseService {
     }
 
     /**
-     * Calcula los cupos disponibles para una clase grupal.
+     * Calcula los cupos disponibles en la proxima sesion de una clase grupal.
+     * Lee la instantanea compartida de proximas sesiones, sin consultar la base de datos por clase.
      *
      * @param clase Clase de la cual calcular cupos
      * @return Numero de cupos disponibles, o null si no hay limite de capacidad
@@ -181,13 +436,35 @@ public class ClaseService {
         if (clase.getCapacidad() == null) {
             return null;
         }
-        Long reservasActivas = reservaRepository.countReservasActivasByClase(clase);
-        return clase.getCapacidad() - reservasActivas.intValue();
+        ClaseSesionRepository.ProximaSesion sesion = claseOcupacionSnapshotService.obtenerProximaSesion(clase.getId());
+        if (sesion == null) {
+            return 0;
+        }
+        return sesion.getCapacidad() != null ? sesion.getCapacidad() - sesion.getInscritos() : null;
+    }
+
+    /**
+     * Obtiene la proxima sesion de cada clase desde la instantanea compartida.
+     *
+     * @return Mapa de ID de clase a su proxima sesion
+     */
+    public Map<Long, ClaseSesionRepository.ProximaSesion> obtenerProximasSesiones() {
+        return claseOcupacionSnapshotService.obtenerProximasSesiones();
     }
 
     /**
-     * Crea una nueva clase grupal en el sistema.
-     * Valida que no exista otra clase con el mismo nombre.
+     * Obtiene el calendario de sesiones de la semana que contiene una fecha.
+     *
+     * @param fecha Cualquier dia de la semana a consultar
+     * @return Sesiones de la semana ordenadas por hora de inicio
+     */
+    public List<ClaseSesion> obtenerCalendarioSemana(LocalDate fecha) {
+        return claseSesionService.obtenerSemana(fecha);
+    }
+
+    /**
+     * Crea una nueva clase grupal en el sistema y genera sus sesiones.
+     * Valida que no exista otra clase con el mismo nombre y que su horario sea reconocible.
      *
      * @param nombre Nombre de la clase
      * @param descripcion Descripcion de la clase
@@ -208,6 +485,11 @@ public class ClaseService {
             return "ERROR: Ya existe una clase con ese nombre";
         }
 
+        String errorHorario = validarHorario(diaSemana, horaInicio);
+        if (errorHorario != null) {
+            return errorHorario;
+        }
+
         Instructor instructor = null;
         if (instructorId != null) {
             Optional<Instructor> instructorOpt = instructorRepository.findById(instructorId);
@@ -220,16 +502,25 @@ public class ClaseService {
         try {
             ClaseGrupal clase = new ClaseGrupal(nombre, descripcion, diaSemana, horaInicio,
                     duracion, capacidad, imagenUrl, instructor);
-            claseGrupalRepository.save(clase);
-            return "SUCCESS: Clase creada exitosamente";
+            return transactionTemplate.execute(estado -> {
+                ClaseGrupal guardada = claseGrupalRepository.save(clase);
+                String conflicto = agendaInstructoresService.asignar(guardada);
+                if (conflicto != null) {
+                    estado.setRollbackOnly();
+                    return conflicto;
+                }
+                claseSesionService.programarClase(guardada);
+                return "SUCCESS: Clase creada exitosamente";
+            });
         } catch (Exception e) {
+            agendaInstructoresService.reconstruir();
             return "ERROR: No se pudo crear la clase";
         }
     }
 
     /**
-     * Actualiza los datos de una clase grupal existente.
-     * Valida que la clase exista y que no haya conflicto de nombres.
+     * Actualiza los datos de una clase grupal existente y reprograma sus sesiones futuras.
+     * Valida que la clase exista, que no haya conflicto de nombres y que el horario sea reconocible.
      *
      * @param id ID de la clase a actualizar
      * @param nombre Nuevo nombre de la clase
@@ -258,6 +549,11 @@ public class ClaseService {
             return "ERROR: Ya existe otra clase con ese nombre";
         }
 
+        String errorHorario = validarHorario(diaSemana, horaInicio);
+        if (errorHorario != null) {
+            return errorHorario;
+        }
+
         Instructor instructor = null;
         if (instructorId != null) {
             Optional<Instructor> instructorOpt = instructorRepository.findById(instructorId);
@@ -277,15 +573,29 @@ public class ClaseService {
             clase.setImagenUrl(imagenUrl);
             clase.setInstructor(instructor);
 
-            claseGrupalRepository.save(clase);
-            return "SUCCESS: Clase actualizada exitosamente";
+            return transactionTemplate.execute(estado -> {
+                ClaseGrupal guardada = claseGrupalRepository.save(clase);
+                String conflicto = agendaInstructoresService.asignar(guardada);
+                if (conflicto != null) {
+                    estado.setRollbackOnly();
+                    return conflicto;
+                }
+                claseSesionService.programarClase(guardada);
+                // Si la capacidad aumento, los nuevos cupos pasan a la lista de espera de cada sesion
+                for (Long sesionId : claseSesionRepository.findIdsConListaEspera(id, LocalDateTime.now())) {
+                    promoverListaEspera(sesionId, id);
+                }
+                return "SUCCESS: Clase actualizada exitosamente";
+            });
         } catch (Exception e) {
+            agendaInstructoresService.reconstruir();
             return "ERROR: No se pudo actualizar la clase";
         }
     }
 
     /**
      * Cambia el estado de activacion de una clase grupal.
+     * Al desactivarla se eliminan sus sesiones futuras sin reservas; al activarla se vuelven a generar.
      *
      * @param id ID de la clase
      * @param activa Nuevo estado (true para activa, false para inactiva)
@@ -301,9 +611,22 @@ public class ClaseService {
         try {
             ClaseGrupal clase = claseOpt.get();
             clase.setActiva(activa);
-            claseGrupalRepository.save(clase);
-            return "SUCCESS: Estado de clase actualizado";
+            return transactionTemplate.execute(estado -> {
+                ClaseGrupal guardada = claseGrupalRepository.save(clase);
+                String conflicto = agendaInstructoresService.asignar(guardada);
+                if (conflicto != null) {
+                    estado.setRollbackOnly();
+                    return conflicto;
+                }
+                if (Boolean.TRUE.equals(activa)) {
+                    claseSesionService.programarClase(guardada);
+                } else {
+                    claseSesionService.retirarClase(id);
+                }
+                return "SUCCESS: Estado de clase actualizado";
+            });
         } catch (Exception e) {
+            agendaInstructoresService.reconstruir();
             return "ERROR: No se pudo actualizar el estado";
         }
     }
@@ -331,13 +654,53 @@ public class ClaseService {
         try {
             ClaseGrupal clase = claseOpt.get();
             clase.setInstructor(instructorOpt.get());
-            claseGrupalRepository.save(clase);
-            return "SUCCESS: Instructor asignado a la clase";
+            return transactionTemplate.execute(estado -> {
+                String conflicto = agendaInstructoresService.asignar(claseGrupalRepository.save(clase));
+                if (conflicto != null) {
+                    estado.setRollbackOnly();
+                    return conflicto;
+                }
+                return "SUCCESS: Instructor asignado a la clase";
+            });
         } catch (Exception e) {
+            agendaInstructoresService.reconstruir();
             return "ERROR: No se pudo asignar el instructor";
         }
     }
 
+    /**
+     * Obtiene los instructores activos que no dictan otra clase en un horario semanal.
+     *
+     * @param diaSemana Dias de la clase (ej: Lunes a Viernes)
+     * @param horaInicio Hora de inicio (HH:mm)
+     * @param duracion Duracion en minutos
+     * @param claseId Clase que se esta editando, cuyo horario actual no se considera (opcional)
+     * @return Instructores libres, vacia si el horario no es valido
+     */
+    public List<Instructor> obtenerInstructoresLibres(String diaSemana, String horaInicio,
+                                                      Integer duracion, Long claseId) {
+        if (validarHorario(diaSemana, horaInicio) != null) {
+            return List.of();
+        }
+        return agendaInstructoresService.obtenerInstructoresLibres(ClaseGrupal.interpretarDias(diaSemana),
+                ClaseGrupal.interpretarHora(horaInicio), duracion, claseId);
+    }
+
+    /**
+     * Verifica que los dias y la hora de una clase se puedan convertir en sesiones fechadas.
+     *
+     * @return Mensaje de error, o null si el horario es valido
+     */
+    private String validarHorario(String diaSemana, String horaInicio) {
+        if (ClaseGrupal.interpretarDias(diaSemana).isEmpty()) {
+            return "ERROR: No se reconocen los días de la clase (ej: Lunes y Miércoles, Lunes a Viernes)";
+        }
+        if (ClaseGrupal.interpretarHora(horaInicio) == null) {
+            return "ERROR: La hora de inicio no es válida (formato HH:mm)";
+        }
+        return null;
+    }
+
     /**
      * Cuenta el numero total de clases activas en el gimnasio.
      *
@@ -0,0 +1,191 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Model.ClaseGrupal;
+import com.example.ProyectoGym.Model.ClaseSesion;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Servicio que programa las sesiones fechadas de las clases grupales.
+ * A partir de los dias y la hora de cada clase activa genera por adelantado sus sesiones
+ * de los proximos dias, cada una con su propia capacidad, reservas y lista de espera.
+ * La generacion es idempotente: el indice unico (clase_id, inicio) descarta las sesiones ya creadas.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class ClaseSesionService {
+
+    // INSERT ... SELECT y no VALUES: reWriteBatchedInserts no lo reescribe y el driver informa el conteo de cada fila
+    private static final String SQL_INSERTAR_SESION =
+            "INSERT INTO clase_sesion (clase_id, inicio, fin, capacidad) SELECT ?, ?, ?, ? " +
+            "ON CONFLICT (clase_id, inicio) DO NOTHING";
+
+    // Las reservas y esperas anteriores a las sesiones pasan a la proxima sesion de su clase
+    private static final String SQL_ASIGNAR_RESERVAS_SIN_SESION =
+            "UPDATE reserva r SET sesion_id = (SELECT s.id FROM clase_sesion s WHERE s.clase_id = r.clase_id " +
+            "AND s.inicio > ? ORDER BY s.inicio LIMIT 1) WHERE r.sesion_id IS NULL AND r.estado = 'ACTIVA'";
+
+    private static final String SQL_ASIGNAR_ESPERAS_SIN_SESION =
+            "UPDATE lista_espera e SET sesion_id = (SELECT s.id FROM clase_sesion s WHERE s.clase_id = e.clase_id " +
+            "AND s.inicio > ? ORDER BY s.inicio LIMIT 1) WHERE e.sesion_id IS NULL";
+
+    private static final String SQL_SINCRONIZAR_INSCRITOS =
+            "UPDATE clase_sesion s SET inscritos = c.total FROM (SELECT s2.id, " +
+            "(SELECT COUNT(*) FROM reserva r WHERE r.sesion_id = s2.id AND r.estado = 'ACTIVA') AS total " +
+            "FROM clase_sesion s2 WHERE s2.inicio > ?) c WHERE s.id = c.id AND s.inscritos <> c.total";
+
+    @Autowired
+    private ClaseGrupalRepository claseGrupalRepository;
+
+    @Autowired
+    private ClaseSesionRepository claseSesionRepository;
+
+    @Autowired
+    private ClaseOcupacionSnapshotService claseOcupacionSnapshotService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gym.clases.sesiones.dias-adelanto:28}")
+    private int diasAdelanto;
+
+    /**
+     * Al iniciar la aplicacion completa la plantilla tipada de las clases que aun no la tienen,
+     * genera las sesiones pendientes y asigna a una sesion las reservas y esperas previas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        for (ClaseGrupal clase : claseGrupalRepository.findAll()) {
+            if (clase.getDias() == null || clase.getHora() == null) {
+                clase.setDiaSemana(clase.getDiaSemana());
+                clase.setHoraInicio(clase.getHoraInicio());
+                claseGrupalRepository.save(clase);
+            }
+        }
+        generar();
+
+        LocalDateTime ahora = LocalDateTime.now();
+        transactionTemplate.executeWithoutResult(estado -> {
+            jdbcTemplate.execute("LOCK TABLE clase_sesion IN SHARE ROW EXCLUSIVE MODE");
+            jdbcTemplate.update(SQL_ASIGNAR_RESERVAS_SIN_SESION, ahora);
+            jdbcTemplate.update(SQL_ASIGNAR_ESPERAS_SIN_SESION, ahora);
+            jdbcTemplate.update("DELETE FROM lista_espera WHERE sesion_id IS NULL");
+            jdbcTemplate.update(SQL_SINCRONIZAR_INSCRITOS, ahora);
+        });
+        claseOcupacionSnapshotService.invalidar();
+    }
+
+    /**
+     * Genera las sesiones de todas las clases activas hasta gym.clases.sesiones.dias-adelanto dias.
+     * Se ejecuta cada noche para mantener la ventana de sesiones completa.
+     *
+     * @return Cantidad de sesiones nuevas
+     */
+    @Scheduled(cron = "${gym.clases.sesiones.generacion-cron:0 15 0 * * *}")
+    public int generar() {
+        int creadas = 0;
+        for (ClaseGrupal clase : claseGrupalRepository.findByActivaTrue()) {
+            creadas += generar(clase);
+        }
+        if (creadas > 0) {
+            claseOcupacionSnapshotService.invalidar();
+        }
+        return creadas;
+    }
+
+    /**
+     * Ajusta las sesiones futuras de una clase a su horario y capacidad actuales.
+     * Las sesiones que nadie reservo se eliminan y se vuelven a generar; las que tienen
+     * reservas se conservan con la nueva capacidad. Debe ejecutarse en la transaccion
+     * que guarda la clase.
+     *
+     * @param clase Clase creada o actualizada
+     */
+    public void programarClase(ClaseGrupal clase) {
+        LocalDateTime ahora = LocalDateTime.now();
+        claseSesionRepository.eliminarFuturasSinReservas(clase.getId(), ahora);
+        claseSesionRepository.actualizarCapacidadFuturas(clase.getId(), ahora, clase.getCapacidad());
+        if (Boolean.TRUE.equals(clase.getActiva())) {
+            generar(clase);
+        }
+        claseOcupacionSnapshotService.invalidar();
+    }
+
+    /**
+     * Elimina las sesiones futuras sin reservas de una clase desactivada.
+     * Las sesiones ya reservadas se mantienen.
+     *
+     * @param claseId ID de la clase
+     */
+    public void retirarClase(Long claseId) {
+        claseSesionRepository.eliminarFuturasSinReservas(claseId, LocalDateTime.now());
+        claseOcupacionSnapshotService.invalidar();
+    }
+
+    /**
+     * Obtiene la proxima sesion de una clase que aun no comienza.
+     *
+     * @param claseId ID de la clase
+     * @return Optional con la proxima sesion
+     */
+    public Optional<ClaseSesion> obtenerProximaSesion(Long claseId) {
+        return claseSesionRepository.findFirstByClaseIdAndInicioAfterOrderByInicioAsc(claseId, LocalDateTime.now());
+    }
+
+    /**
+     * Obtiene las sesiones de la semana (lunes a domingo) que contiene una fecha.
+     *
+     * @param fecha Cualquier dia de la semana a consultar
+     * @return Sesiones de clases activas de esa semana, ordenadas por hora de inicio
+     */
+    public List<ClaseSesion> obtenerSemana(LocalDate fecha) {
+        LocalDate lunes = fecha.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return claseSesionRepository.findEntre(lunes.atStartOfDay(), lunes.plusWeeks(1).atStartOfDay());
+    }
+
+    private int generar(ClaseGrupal clase) {
+        if (!clase.tieneHorario()) {
+            return 0;
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        int duracion = clase.getDuracion() != null ? clase.getDuracion() : 60;
+        List<Object[]> sesiones = new ArrayList<>();
+        LocalDate hoy = ahora.toLocalDate();
+        for (LocalDate dia = hoy; dia.isBefore(hoy.plusDays(diasAdelanto)); dia = dia.plusDays(1)) {
+            if (!clase.getDias().contains(dia.getDayOfWeek())) {
+                continue;
+            }
+            LocalDateTime inicio = dia.atTime(clase.getHora());
+            if (inicio.isAfter(ahora)) {
+                sesiones.add(new Object[]{clase.getId(), inicio, inicio.plusMinutes(duracion), clase.getCapacidad()});
+            }
+        }
+        int creadas = 0;
+        for (int filas : jdbcTemplate.batchUpdate(SQL_INSERTAR_SESION, sesiones)) {
+            // Las sesiones que ya existian informan 0
+            creadas += filas;
+        }
+        return creadas;
+    }
+}
@@ -0,0 +1,514 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Dto.EventoTorniquete;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de entradas y salidas para seguir registrando asistencias cuando
+ * PostgreSQL esta lento o no disponible.
+ * Los eventos se anexan a un archivo mapeado en memoria con registros de tamano fijo,
+ * usado como buffer circular, y un proceso en segundo plano los aplica en orden y por
+ * lotes a la tabla de asistencias. Cada aplicacion es idempotente, y la posicion aplicada
+ * se guarda en la cabecera del archivo, por lo que el diario se retoma tras un reinicio.
+ * Los registros se intentan primero en la base de datos con un tiempo maximo de espera;
+ * si no responde a tiempo o no esta disponible, el evento se anota en el diario con la misma
+ * fecha y hora que recibio el intento.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class DiarioAsistenciasService {
+
+    // Cabecera: numero magico (int), capacidad en registros (int), ultima secuencia aplicada (long)
+    private static final int MAGICO = 0x47594D4A;
+    private static final int TAMANO_CABECERA = 64;
+    private static final int POS_CAPACIDAD = 4;
+    private static final int POS_APLICADA = 8;
+
+    // Registro: secuencia (long), miembro (long), fecha en microsegundos (long), tipo (byte), CRC32 (int)
+    private static final int TAMANO_REGISTRO = 32;
+    private static final int POS_MIEMBRO = 8;
+    private static final int POS_FECHA = 16;
+    private static final int POS_TIPO = 24;
+    private static final int POS_CRC = 28;
+    private static final int BYTES_CON_CRC = 25;
+
+    private static final byte TIPO_ENTRADA = 1;
+    private static final byte TIPO_SALIDA = 2;
+
+    // Inserta la entrada solo si el miembro puede ingresar y no fue aplicada antes (idempotencia): una entrada
+    // escrita por un intento en la base de datos que termino tarde tiene la misma fecha y hora que su registro
+    private static final String SQL_APLICAR_ENTRADA =
+            "INSERT INTO asistencias (miembro_id, fecha_hora_entrada) " +
+            "SELECT m.id, ? FROM miembros m WHERE m.id = ? AND m.activo = true AND m.fecha_vencimiento >= ? " +
+            "AND NOT EXISTS (SELECT 1 FROM asistencias a WHERE a.miembro_id = m.id AND a.fecha_hora_entrada = ?) " +
+            "ON CONFLICT (miembro_id) WHERE fecha_hora_salida IS NULL DO NOTHING";
+
+    // Cierra la asistencia abierta anterior a la salida; si ya se aplico no queda asistencia que cerrar
+    private static final String SQL_APLICAR_SALIDA =
+            "UPDATE asistencias SET fecha_hora_salida = ?, " +
+            "duracion_minutos = CAST(EXTRACT(EPOCH FROM (CAST(? AS timestamp) - fecha_hora_entrada)) / 60 AS integer) " +
+            "WHERE miembro_id = ? AND fecha_hora_salida IS NULL AND fecha_hora_entrada <= ? " +
+            "RETURNING fecha_hora_entrada";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AforoService aforoService;
+
+    @Value("${gym.diario.habilitado:true}")
+    private boolean habilitado;
+
+    @Value("${gym.diario.archivo:diario/asistencias.journal}")
+    private String rutaArchivo;
+
+    @Value("${gym.diario.capacidad:1048576}")
+    private int capacidadConfigurada;
+
+    @Value("${gym.diario.lote:500}")
+    private int tamanoLote;
+
+    // Espera maxima de un registro en la base de datos antes de anotarlo en el diario;
+    // sin ella, con la base de datos caida cada registro esperaria el timeout de conexion del pool
+    @Value("${gym.diario.espera-base-datos-ms:1500}")
+    private long esperaBaseDatosMs;
+
+    // Registros que pueden estar esperando a la base de datos a la vez; los siguientes van directo al diario
+    @Value("${gym.diario.intentos-concurrentes:32}")
+    private int intentosConcurrentes;
+
+    private final MeterRegistry registry;
+    private final Counter reproducidos;
+
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private int capacidad;
+
+    private ThreadPoolExecutor intentos;
+
+    // Ultima secuencia anexada (escrita bajo el candado del diario) y ultima aplicada a la base de datos
+    private volatile long ultimaSecuencia;
+    private volatile long secuenciaAplicada;
+
+    public DiarioAsistenciasService(MeterRegistry registry) {
+        this.registry = registry;
+        this.reproducidos = Counter.builder("gym.diario.reproducidos")
+                .description("Eventos del diario aplicados a la tabla de asistencias")
+                .register(registry);
+    }
+
+    /**
+     * Abre o crea el archivo del diario y recupera la ultima secuencia anexada
+     * recorriendo los registros validos posteriores a la posicion aplicada.
+     */
+    @PostConstruct
+    public void abrir() {
+        if (!habilitado) {
+            return;
+        }
+
+        try {
+            Path archivo = Paths.get(rutaArchivo);
+            if (archivo.getParent() != null) {
+                Files.createDirectories(archivo.getParent());
+            }
+            boolean nuevo = !Files.exists(archivo);
+            canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            capacidad = capacidadConfigurada;
+            if (!nuevo) {
+                MappedByteBuffer cabecera = canal.map(FileChannel.MapMode.READ_ONLY, 0, TAMANO_CABECERA);
+                if (cabecera.getInt(0) == MAGICO) {
+                    // Se respeta la capacidad con la que se creo el archivo
+                    capacidad = cabecera.getInt(POS_CAPACIDAD);
+                } else {
+                    nuevo = true;
+                }
+            }
+
+            buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, TAMANO_CABECERA + (long) capacidad * TAMANO_REGISTRO);
+            if (nuevo) {
+                buffer.putInt(0, MAGICO);
+                buffer.putInt(POS_CAPACIDAD, capacidad);
+                buffer.putLong(POS_APLICADA, 0L);
+                buffer.force();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de asistencias " + rutaArchivo, e);
+        }
+
+        secuenciaAplicada = buffer.getLong(POS_APLICADA);
+        long secuencia = secuenciaAplicada;
+        while (secuencia - secuenciaAplicada < capacidad && registroValido(secuencia + 1)) {
+            secuencia++;
+        }
+        ultimaSecuencia = secuencia;
+
+        // Las entradas aceptadas antes del reinicio que aun no se aplicaron siguen ocupando su lugar
+        int entradasPendientes = 0;
+        for (long pendiente = secuenciaAplicada + 1; pendiente <= ultimaSecuencia; pendiente++) {
+            if (buffer.get(posicionRegistro(pendiente) + POS_TIPO) == TIPO_ENTRADA) {
+                entradasPendientes++;
+            }
+        }
+        aforoService.registrarPendientes(entradasPendientes);
+
+        AtomicInteger numeroHilo = new AtomicInteger();
+        intentos = new ThreadPoolExecutor(intentosConcurrentes, intentosConcurrentes, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(intentosConcurrentes), tarea -> {
+                    Thread hilo = new Thread(tarea, "diario-intento-bd-" + numeroHilo.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                });
+        intentos.allowCoreThreadTimeOut(true);
+
+        Gauge.builder("gym.diario.retraso", this, diario -> diario.ultimaSecuencia - diario.secuenciaAplicada)
+                .description("Eventos anexados al diario pendientes de aplicar")
+                .register(registry);
+        Gauge.builder("gym.diario.pendiente.mas.antiguo.segundos", this, DiarioAsistenciasService::antiguedadPendiente)
+                .description("Antiguedad del evento pendiente mas antiguo del diario")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void cerrar() throws IOException {
+        if (intentos != null) {
+            intentos.shutdownNow();
+        }
+        if (canal != null) {
+            buffer.force();
+            canal.close();
+        }
+    }
+
+    public boolean isHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Fecha y hora para un evento que se intenta en la base de datos y, como respaldo, en el diario.
+     * Se crea una sola vez y se pasa a ambos registros; se trunca a microsegundos, la precision
+     * del diario y de la columna, para que la aplicacion del diario reconozca la entrada que el
+     * intento haya escrito.
+     *
+     * @return Fecha y hora actual en microsegundos
+     */
+    public static LocalDateTime marcaDeTiempo() {
+        return LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Ejecuta un registro en la base de datos esperando como maximo el tiempo configurado.
+     * Si la base de datos no esta disponible o no responde a tiempo, ejecuta el respaldo,
+     * que anota el evento en el diario. Un registro que no respondio a tiempo puede terminar
+     * despues: ambos registros deben usar la misma fecha y hora, creada con marcaDeTiempo(),
+     * para que al aplicar el diario se descarte la entrada que el intento ya escribio. Una salida
+     * repetida no encuentra asistencia abierta anterior a ella y tampoco se aplica dos veces.
+     * Con el diario deshabilitado, el registro se ejecuta directamente.
+     *
+     * @param registro Registro en la base de datos
+     * @param respaldo Registro en el diario
+     * @return Resultado del registro o del respaldo
+     */
+    public <T> T registrarConRespaldo(Supplier<T> registro, Supplier<T> respaldo) {
+        if (intentos == null) {
+            return registro.get();
+        }
+
+        Future<T> intento;
+        try {
+            intento = intentos.submit(registro::get);
+        } catch (RejectedExecutionException e) {
+            // Todos los intentos estan esperando a la base de datos: no tiene sentido sumar otro
+            return respaldo.get();
+        }
+
+        try {
+            return intento.get(esperaBaseDatosMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Si aun no empezo, no se ejecuta; si ya empezo, termina por su cuenta
+            intento.cancel(false);
+            return respaldo.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            intento.cancel(false);
+            return respaldo.get();
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof TransientDataAccessException || causa instanceof DataAccessResourceFailureException
+                    || causa instanceof CannotCreateTransactionException) {
+                return respaldo.get();
+            }
+            if (causa instanceof RuntimeException excepcion) {
+                throw excepcion;
+            }
+            if (causa instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(causa);
+        }
+    }
+
+    /**
+     * Anexa una entrada al diario para aplicarla en segundo plano.
+     * Las reglas de membresia y de asistencia abierta se verifican al aplicarla.
+     *
+     * @param miembroId ID del miembro que ingresa
+     * @param fechaHora Fecha y hora de la entrada, la misma del intento en la base de datos
+     * @return Mensaje de exito o de error si el diario esta lleno o deshabilitado
+     */
+    public String registrarEntrada(Long miembroId, LocalDateTime fechaHora) {
+        // El aforo se controla en memoria, por lo que se aplica aunque la base de datos no responda
+        if (!aforoService.reservar()) {
+            return "ERROR: Aforo máximo alcanzado. Intente nuevamente cuando salga alguien.";
+        }
+        String resultado = anexar(TIPO_ENTRADA, miembroId, fechaHora);
+        if (resultado.startsWith("ERROR")) {
+            aforoService.cancelarReserva();
+        }
+        return resultado;
+    }
+
+    /**
+     * Anexa una salida al diario para aplicarla en segundo plano.
+     *
+     * @param miembroId ID del miembro que sale
+     * @param fechaHora Fecha y hora de la salida, la misma del intento en la base de datos
+     * @return Mensaje de exito o de error si el diario esta lleno o deshabilitado
+     */
+    public String registrarSalida(Long miembroId, LocalDateTime fechaHora) {
+        return anexar(TIPO_SALIDA, miembroId, fechaHora);
+    }
+
+    /**
+     * Anexa al diario un lote de eventos de torniquete, con la fecha y hora de cada dispositivo.
+     * Las entradas ya ocurrieron, por lo que ocupan su lugar en el aforo sin control de capacidad,
+     * igual que al registrarse en la base de datos. Los eventos sin fecha y hora deben recibirla
+     * antes del intento en la base de datos, para que ambos registros usen la misma.
+     *
+     * @param eventos Lista ordenada de eventos
+     * @return Mensaje de exito o error de cada evento, en el mismo orden
+     */
+    public List<String> registrarLote(List<EventoTorniquete> eventos) {
+        List<String> resultados = new ArrayList<>(eventos.size());
+        for (EventoTorniquete evento : eventos) {
+            LocalDateTime fechaHora = evento.getFechaHora() != null ? evento.getFechaHora() : LocalDateTime.now();
+            if (evento.getMiembroId() == null) {
+                resultados.add("ERROR: Miembro no encontrado");
+            } else if (evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+                aforoService.registrarPendientes(1);
+                String resultado = anexar(TIPO_ENTRADA, evento.getMiembroId(), fechaHora);
+                if (resultado.startsWith("ERROR")) {
+                    aforoService.cancelarReserva();
+                }
+                resultados.add(resultado);
+            } else if (evento.getTipo() == EventoAsistencia.Tipo.SALIDA) {
+                resultados.add(anexar(TIPO_SALIDA, evento.getMiembroId(), fechaHora));
+            } else {
+                resultados.add("ERROR: Tipo de evento no válido");
+            }
+        }
+        return resultados;
+    }
+
+    private synchronized String anexar(byte tipo, Long miembroId, LocalDateTime fechaHora) {
+        if (buffer == null) {
+            return "ERROR: Diario de asistencias deshabilitado";
+        }
+
+        long secuencia = ultimaSecuencia + 1;
+        if (secuencia - secuenciaAplicada > capacidad) {
+            return "ERROR: Diario de asistencias lleno, intente nuevamente";
+        }
+
+        int posicion = posicionRegistro(secuencia);
+        buffer.putLong(posicion, secuencia);
+        buffer.putLong(posicion + POS_MIEMBRO, miembroId);
+        buffer.putLong(posicion + POS_FECHA, aMicros(fechaHora));
+        buffer.put(posicion + POS_TIPO, tipo);
+        buffer.putInt(posicion + POS_CRC, crc(posicion));
+
+        // La escritura volatil publica el registro completo al hilo que reproduce el diario
+        ultimaSecuencia = secuencia;
+
+        String hora = String.format("%02d:%02d", fechaHora.getHour(), fechaHora.getMinute());
+        return tipo == TIPO_ENTRADA
+                ? "SUCCESS: Entrada recibida a las " + hora + ". Se registrará en cuanto haya conexión."
+                : "SUCCESS: Salida recibida a las " + hora + ". Se registrará en cuanto haya conexión.";
+    }
+
+    /**
+     * Aplica a la base de datos los eventos pendientes del diario, en orden y por lotes.
+     * Cada lote se aplica en una transaccion; la posicion aplicada se guarda despues del
+     * commit, y si el proceso se detiene en medio, el lote se vuelve a aplicar sin duplicar.
+     * Si la base de datos no esta disponible, el lote se reintenta en la siguiente ejecucion.
+     */
+    @Scheduled(fixedDelayString = "${gym.diario.intervalo-ms:200}")
+    public void reproducir() {
+        if (buffer == null) {
+            return;
+        }
+
+        while (ultimaSecuencia > secuenciaAplicada) {
+            long desde = secuenciaAplicada + 1;
+            long hasta = Math.min(ultimaSecuencia, secuenciaAplicada + tamanoLote);
+
+            // Los eventos se publican dentro de la transaccion para que los oyentes transaccionales los reciban
+            transactionTemplate.executeWithoutResult(estado ->
+                    aplicarLote(desde, hasta).forEach(eventPublisher::publishEvent));
+
+            buffer.putLong(POS_APLICADA, hasta);
+            buffer.force();
+            secuenciaAplicada = hasta;
+            reproducidos.increment(hasta - desde + 1);
+        }
+    }
+
+    private List<EventoAsistencia> aplicarLote(long desde, long hasta) {
+        List<EventoAsistencia> aplicados = new ArrayList<>();
+        List<Object[]> entradas = new ArrayList<>();
+        List<EventoAsistencia> eventosEntradas = new ArrayList<>();
+
+        for (long secuencia = desde; secuencia <= hasta; secuencia++) {
+            int posicion = posicionRegistro(secuencia);
+            long miembroId = buffer.getLong(posicion + POS_MIEMBRO);
+            LocalDateTime fechaHora = deMicros(buffer.getLong(posicion + POS_FECHA));
+
+            if (buffer.get(posicion + POS_TIPO) == TIPO_ENTRADA) {
+                entradas.add(new Object[]{fechaHora, miembroId, fechaHora.toLocalDate(), fechaHora});
+                eventosEntradas.add(EventoAsistencia.entrada(miembroId, fechaHora));
+                continue;
+            }
+
+            // Las entradas consecutivas se envian en un solo lote JDBC antes de aplicar la salida
+            aplicarEntradas(entradas, eventosEntradas, aplicados);
+            List<LocalDateTime> cerradas = jdbcTemplate.query(SQL_APLICAR_SALIDA,
+                    (rs, fila) -> rs.getObject("fecha_hora_entrada", LocalDateTime.class),
+                    fechaHora, fechaHora, miembroId, fechaHora);
+            for (LocalDateTime entrada : cerradas) {
+                aplicados.add(EventoAsistencia.salida(miembroId, entrada, fechaHora));
+            }
+        }
+        aplicarEntradas(entradas, eventosEntradas, aplicados);
+        return aplicados;
+    }
+
+    private void aplicarEntradas(List<Object[]> entradas, List<EventoAsistencia> eventos,
+                                 List<EventoAsistencia> aplicados) {
+        if (entradas.isEmpty()) {
+            return;
+        }
+        int[] filas = jdbcTemplate.batchUpdate(SQL_APLICAR_ENTRADA, entradas);
+        int escritas = 0;
+        int descartadas = 0;
+        for (int i = 0; i < filas.length; i++) {
+            if (filas[i] > 0) {
+                aplicados.add(eventos.get(i));
+                escritas++;
+            } else {
+                descartadas++;
+            }
+        }
+        // Al confirmarse el lote, el lugar reservado al anexar cada entrada pasa a contarse desde la
+        // base de datos, o se devuelve si la entrada fue rechazada al aplicarse
+        int confirmar = escritas;
+        int cancelar = descartadas;
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (int i = 0; i < confirmar; i++) {
+                    aforoService.confirmarReserva();
+                }
+                for (int i = 0; i < cancelar; i++) {
+                    aforoService.cancelarReserva();
+                }
+            }
+        });
+        entradas.clear();
+        eventos.clear();
+    }
+
+    private boolean registroValido(long secuencia) {
+        int posicion = posicionRegistro(secuencia);
+        return buffer.getLong(posicion) == secuencia && buffer.getInt(posicion + POS_CRC) == crc(posicion);
+    }
+
+    private double antiguedadPendiente() {
+        if (buffer == null || ultimaSecuencia <= secuenciaAplicada) {
+            return 0;
+        }
+        LocalDateTime fecha = deMicros(buffer.getLong(posicionRegistro(secuenciaAplicada + 1) + POS_FECHA));
+        return Math.max(0, Duration.between(fecha, LocalDateTime.now()).toMillis() / 1000.0);
+    }
+
+    private int posicionRegistro(long secuencia) {
+        return TAMANO_CABECERA + (int) ((secuencia - 1) % capacidad) * TAMANO_REGISTRO;
+    }
+
+    private int crc(int posicion) {
+        CRC32 crc = new CRC32();
+        for (int i = 0; i < BYTES_CON_CRC; i++) {
+            crc.update(buffer.get(posicion + i));
+        }
+        return (int) crc.getValue();
+    }
+
+    private static long aMicros(LocalDateTime fechaHora) {
+        return ChronoUnit.MICROS.between(LocalDateTime.of(1970, 1, 1, 0, 0), fechaHora);
+    }
+
+    private static LocalDateTime deMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Modo opcional de escritura diferida (write-behind) para las entradas al gimnasio.
+ * Las entradas se encolan en una cola acotada sin bloqueos y un unico hilo escritor
+ * las inserta por lotes JDBC en una sola transaccion (group commit), cada pocos
+ * milisegundos o al juntar un lote completo, lo que ocurra primero. Cada llamada
+ * recibe un futuro que se completa cuando su entrada ya fue confirmada en la base de datos.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class EscrituraDiferidaService {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    // INSERT ... SELECT no lo reescribe reWriteBatchedInserts, asi el driver informa el resultado de cada fila
+    private static final String SQL_ABRIR_ASISTENCIA =
+            "INSERT INTO asistencias (miembro_id, fecha_hora_entrada) SELECT ?, ? " +
+            "ON CONFLICT (miembro_id) WHERE fecha_hora_salida IS NULL DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${gym.asistencia.escritura-diferida.habilitada:false}")
+    private boolean habilitada;
+
+    @Value("${gym.asistencia.escritura-diferida.capacidad:10000}")
+    private int capacidad;
+
+    @Value("${gym.asistencia.escritura-diferida.lote:200}")
+    private int tamanoLote;
+
+    @Value("${gym.asistencia.escritura-diferida.intervalo-ms:5}")
+    private long intervaloMs;
+
+    // Tiempo que una peticion espera la confirmacion de su lote antes de responder
+    @Value("${gym.asistencia.escritura-diferida.espera-maxima-ms:2000}")
+    private long esperaMaximaMs;
+
+    private final ConcurrentLinkedQueue<EntradaPendiente> cola = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendientes = new AtomicInteger();
+
+    private volatile boolean activo;
+    private Thread escritor;
+
+    @PostConstruct
+    public void iniciar() {
+        if (!habilitada) {
+            return;
+        }
+        activo = true;
+        escritor = new Thread(this::escribirContinuamente, "asistencias-escritura-diferida");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    /**
+     * Detiene el hilo escritor despues de escribir las entradas que quedaban en la cola.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        if (escritor == null) {
+            return;
+        }
+        activo = false;
+        LockSupport.unpark(escritor);
+        escritor.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public boolean isHabilitada() {
+        return habilitada;
+    }
+
+    public long getEsperaMaximaMs() {
+        return esperaMaximaMs;
+    }
+
+    /**
+     * Encola la entrada de un miembro ya validado para escribirla en el siguiente lote.
+     *
+     * @param miembroId ID del miembro que ingresa
+     * @param fechaHora Fecha y hora de la entrada
+     * @return Futuro con el mensaje de exito o de error (entrada activa, cola llena) una vez
+     *         confirmado el lote; se completa con excepcion si el lote no pudo escribirse
+     */
+    public CompletableFuture<String> encolarEntrada(Long miembroId, LocalDateTime fechaHora) {
+        if (!activo) {
+            return CompletableFuture.completedFuture("ERROR: Escritura diferida deshabilitada");
+        }
+        if (pendientes.incrementAndGet() > capacidad) {
+            pendientes.decrementAndGet();
+            return CompletableFuture.completedFuture("ERROR: Sistema ocupado, intente nuevamente");
+        }
+
+        EntradaPendiente entrada = new EntradaPendiente(miembroId, fechaHora);
+        cola.offer(entrada);
+        if (pendientes.get() >= tamanoLote) {
+            LockSupport.unpark(escritor);
+        }
+        return entrada.resultado;
+    }
+
+    private void escribirContinuamente() {
+        long intervaloNanos = TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        List<EntradaPendiente> lote = new ArrayList<>(tamanoLote);
+
+        while (activo || !cola.isEmpty()) {
+            if (activo && pendientes.get() < tamanoLote) {
+                LockSupport.parkNanos(this, intervaloNanos);
+            }
+
+            EntradaPendiente entrada;
+            while (lote.size() < tamanoLote && (entrada = cola.poll()) != null) {
+                lote.add(entrada);
+            }
+            if (lote.isEmpty()) {
+                continue;
+            }
+            pendientes.addAndGet(-lote.size());
+
+            try {
+                escribirLote(lote);
+            } catch (Throwable e) {
+                // Un Error no debe terminar el unico hilo escritor: las entradas siguientes no se escribirian
+                // y sus futuros nunca se completarian
+                lote.forEach(pendiente -> pendiente.resultado.completeExceptionally(e));
+            }
+            lote.clear();
+        }
+    }
+
+    private void escribirLote(List<EntradaPendiente> lote) {
+        List<Object[]> filas = new ArrayList<>(lote.size());
+        for (EntradaPendiente entrada : lote) {
+            filas.add(new Object[]{entrada.miembroId, entrada.fechaHora});
+        }
+
+        int[] insertadas;
+        try {
+            insertadas = transactionTemplate.execute(estado -> {
+                int[] resultado = jdbcTemplate.batchUpdate(SQL_ABRIR_ASISTENCIA, filas);
+                // Los indices en memoria se actualizan al confirmar el lote
+                for (int i = 0; i < resultado.length; i++) {
+                    if (resultado[i] > 0) {
+                        EntradaPendiente entrada = lote.get(i);
+                        eventPublisher.publishEvent(EventoAsistencia.entrada(entrada.miembroId, entrada.fechaHora));
+                    }
+                }
+                return resultado;
+            });
+        } catch (RuntimeException e) {
+            lote.forEach(entrada -> entrada.resultado.completeExceptionally(e));
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            EntradaPendiente entrada = lote.get(i);
+            if (insertadas != null && insertadas[i] > 0) {
+                entrada.resultado.complete("SUCCESS: Entrada registrada a las "
+                        + entrada.fechaHora.toLocalTime().format(TIME_FORMATTER));
+            } else {
+                entrada.resultado.complete("ERROR: El miembro ya tiene una entrada activa");
+            }
+        }
+    }
+
+    /**
+     * Entrada encolada a la espera de ser escrita, con el futuro que recibe quien la registro.
+     */
+    private static class EntradaPendiente {
+        private final Long miembroId;
+        private final LocalDateTime fechaHora;
+        private final CompletableFuture<String> resultado = new CompletableFuture<>();
+
+        EntradaPendiente(Long miembroId, LocalDateTime fechaHora) {
+            this.miembroId = miembroId;
+            this.fechaHora = fechaHora;
+        }
+    }
+}
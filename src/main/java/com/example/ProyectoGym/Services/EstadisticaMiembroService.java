@@ -0,0 +1,127 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Model.EstadisticaMiembro;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import com.example.ProyectoGym.Repository.EstadisticaMiembroRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Optional;
+
+/**
+ * Servicio de estadisticas de visitas por miembro (cantidad, permanencia y ultima visita).
+ * Cada salida suma su visita a la fila del miembro dentro de la misma transaccion que la
+ * registra, cualquiera sea su origen, por lo que las consultas leen una sola fila por clave.
+ * Las estadisticas pueden reconstruirse desde el historial de asistencias; la parte de las
+ * asistencias ya archivadas se guarda aparte al archivarlas y se conserva en la reconstruccion.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class EstadisticaMiembroService {
+
+    @Autowired
+    private EstadisticaMiembroRepository estadisticaMiembroRepository;
+
+    @Autowired
+    private AsistenciaRepository asistenciaRepository;
+
+    @Autowired
+    private OcupacionService ocupacionService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Suma la visita de cada salida antes de confirmar la transaccion que la registra,
+     * de modo que la salida y sus estadisticas se confirman o se revierten juntas.
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void registrarSalida(EventoAsistencia evento) {
+        if (evento.getTipo() != EventoAsistencia.Tipo.SALIDA) {
+            return;
+        }
+        LocalDateTime entrada = evento.getFechaHoraEntrada();
+        long minutos = Duration.between(entrada, evento.getFechaHoraSalida()).toMinutes();
+        estadisticaMiembroRepository.sumarVisita(evento.getMiembroId(),
+                YearMonth.from(entrada).atDay(1), minutos, entrada);
+    }
+
+    /**
+     * Construye las estadisticas desde el historial la primera vez que se inicia la aplicacion
+     * con asistencias registradas y sin estadisticas previas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (estadisticaMiembroRepository.count() == 0 && asistenciaRepository.count() > 0) {
+            reconstruir();
+        }
+    }
+
+    /**
+     * Recalcula las estadisticas de todos los miembros desde las asistencias cerradas.
+     * Bloquea la tabla de estadisticas durante el recalculo: las salidas concurrentes esperan
+     * y suman su visita sobre el resultado, sin perderse ni contarse dos veces.
+     * Las asistencias archivadas ya no estan en la tabla: sus visitas y minutos se conservan
+     * desde la parte archivada de cada miembro, que el archivado y la restauracion mantienen.
+     * Deshabilitado por defecto; se programa con gym.estadisticas.reconstruccion-cron.
+     *
+     * @return Cantidad de miembros con estadisticas
+     */
+    @Scheduled(cron = "${gym.estadisticas.reconstruccion-cron:-}")
+    public int reconstruir() {
+        YearMonth mes = YearMonth.now();
+        Integer miembros = transactionTemplate.execute(estado -> {
+            jdbcTemplate.execute("LOCK TABLE estadisticas_miembro IN SHARE ROW EXCLUSIVE MODE");
+            estadisticaMiembroRepository.eliminarSinArchivadas();
+            estadisticaMiembroRepository.reiniciarConArchivadas(mes.atDay(1));
+            return estadisticaMiembroRepository.recalcularTodas(mes.atDay(1),
+                    mes.atDay(1).atStartOfDay(), mes.minusMonths(1).atDay(1).atStartOfDay());
+        });
+        return miembros != null ? miembros : 0;
+    }
+
+    /**
+     * Obtiene las estadisticas de visitas de un miembro.
+     *
+     * @param miembroId ID del miembro
+     * @return Estadisticas del miembro, vacio si aun no tiene visitas cerradas
+     */
+    public Optional<EstadisticaMiembro> obtenerEstadisticas(Long miembroId) {
+        return estadisticaMiembroRepository.findById(miembroId);
+    }
+
+    /**
+     * Cuenta las visitas del miembro en el mes actual, incluida la visita en curso
+     * si entro este mes y todavia no registro su salida.
+     *
+     * @param miembroId ID del miembro
+     * @return Cantidad de visitas del mes actual
+     */
+    public long contarVisitasMesActual(Long miembroId) {
+        YearMonth mes = YearMonth.now();
+        long visitas = obtenerEstadisticas(miembroId).map(e -> e.visitasEn(mes)).orElse(0);
+        LocalDateTime entradaEnCurso = ocupacionService.obtenerHoraEntrada(miembroId);
+        if (entradaEnCurso != null && YearMonth.from(entradaEnCurso).equals(mes)) {
+            visitas++;
+        }
+        return visitas;
+    }
+}
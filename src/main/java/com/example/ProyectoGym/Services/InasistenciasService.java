@@ -0,0 +1,141 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Repository.InasistenciaMiembroRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Servicio que registra las inasistencias a clases reservadas.
+ * Un proceso programado concilia cada sesion terminada con las asistencias registradas en su
+ * horario: las reservas activas quedan como ASISTIO o NO_ASISTIO y se actualiza el contador de
+ * inasistencias de cada miembro, que ClaseService consulta al reservar para aplicar la penalizacion.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class InasistenciasService {
+
+    // Concilia una sesion terminada en una sola sentencia: la marca como conciliada (SKIP LOCKED evita
+    // que dos ejecuciones tomen la misma), cruza sus reservas activas con las asistencias que se
+    // superponen a su horario y suma los resultados a los contadores de cada miembro.
+    // La entrada se acota hacia atras con la duracion maxima de una visita para usar el indice
+    // (miembro_id, fecha_hora_entrada) de asistencias.
+    private static final String SQL_CONCILIAR_SESION =
+            "WITH sesion AS (" +
+            "  UPDATE clase_sesion SET asistencia_conciliada = true " +
+            "  WHERE id = (SELECT id FROM clase_sesion WHERE asistencia_conciliada = false AND fin <= ? " +
+            "              ORDER BY fin LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "  RETURNING id, inicio, fin" +
+            "), marcadas AS (" +
+            "  UPDATE reserva r SET estado = CASE WHEN EXISTS (" +
+            "      SELECT 1 FROM asistencias a WHERE a.miembro_id = r.miembro_id " +
+            "        AND a.fecha_hora_entrada >= s.inicio - make_interval(hours => ?) " +
+            "        AND a.fecha_hora_entrada < s.fin " +
+            "        AND (a.fecha_hora_salida IS NULL OR a.fecha_hora_salida > s.inicio)) " +
+            "    THEN 'ASISTIO' ELSE 'NO_ASISTIO' END " +
+            "  FROM sesion s WHERE r.sesion_id = s.id AND r.estado = 'ACTIVA' " +
+            "  RETURNING r.miembro_id, r.estado, s.inicio" +
+            "), contadores AS (" +
+            "  INSERT INTO inasistencias_miembro AS i (miembro_id, consecutivas, total, ultima_inasistencia) " +
+            "  SELECT miembro_id, CASE WHEN estado = 'NO_ASISTIO' THEN 1 ELSE 0 END, " +
+            "         CASE WHEN estado = 'NO_ASISTIO' THEN 1 ELSE 0 END, " +
+            "         CASE WHEN estado = 'NO_ASISTIO' THEN inicio END " +
+            "  FROM marcadas " +
+            "  ON CONFLICT (miembro_id) DO UPDATE SET " +
+            "    consecutivas = CASE WHEN EXCLUDED.total = 0 THEN 0 ELSE i.consecutivas + 1 END, " +
+            "    total = i.total + EXCLUDED.total, " +
+            "    ultima_inasistencia = GREATEST(i.ultima_inasistencia, EXCLUDED.ultima_inasistencia)" +
+            ") " +
+            "SELECT (SELECT COUNT(*) FROM sesion) AS sesiones, " +
+            "       (SELECT COUNT(*) FROM marcadas WHERE estado = 'NO_ASISTIO') AS inasistencias";
+
+    private static final DateTimeFormatter FECHA_HORA_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
+    @Autowired
+    private InasistenciaMiembroRepository inasistenciaMiembroRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${gym.clases.inasistencias.limite:3}")
+    private int limite;
+
+    @Value("${gym.clases.inasistencias.dias-penalizacion:7}")
+    private int diasPenalizacion;
+
+    // Espera tras el fin de la sesion para que las entradas diferidas lleguen a la base de datos
+    @Value("${gym.clases.inasistencias.margen-minutos:30}")
+    private int margenMinutos;
+
+    @Value("${gym.asistencia.cierre-automatico.horas-maximas:12}")
+    private int horasMaximasVisita;
+
+    private final Counter sesionesConciliadas;
+    private final Counter inasistenciasRegistradas;
+
+    public InasistenciasService(MeterRegistry registry) {
+        this.sesionesConciliadas = Counter.builder("gym.clases.inasistencias.sesiones")
+                .description("Sesiones de clases conciliadas con las asistencias")
+                .register(registry);
+        this.inasistenciasRegistradas = Counter.builder("gym.clases.inasistencias.registradas")
+                .description("Reservas marcadas como no asistidas")
+                .register(registry);
+    }
+
+    /**
+     * Concilia las sesiones terminadas que aun no se procesaron, una por transaccion,
+     * en orden de finalizacion para que los contadores consecutivos respeten la cronologia.
+     *
+     * @return Cantidad de sesiones conciliadas en la ejecucion
+     */
+    @Scheduled(fixedDelayString = "${gym.clases.inasistencias.intervalo-ms:300000}")
+    public int conciliarSesionesTerminadas() {
+        LocalDateTime limiteFin = LocalDateTime.now().minusMinutes(margenMinutos);
+        int total = 0;
+
+        while (true) {
+            int[] resultado = transactionTemplate.execute(estado -> jdbcTemplate.queryForObject(SQL_CONCILIAR_SESION,
+                    (rs, fila) -> new int[]{rs.getInt("sesiones"), rs.getInt("inasistencias")},
+                    limiteFin, horasMaximasVisita));
+            if (resultado == null || resultado[0] == 0) {
+                break;
+            }
+            total++;
+            sesionesConciliadas.increment();
+            inasistenciasRegistradas.increment(resultado[1]);
+        }
+        return total;
+    }
+
+    /**
+     * Verifica si un miembro esta penalizado por inasistencias consecutivas a clases reservadas.
+     * La penalizacion dura los dias configurados desde la ultima inasistencia; asistir a una
+     * clase reservada reinicia el contador.
+     *
+     * @param miembroId ID del miembro
+     * @return Mensaje de error con la fecha de fin de la penalizacion, o null si puede reservar
+     */
+    public String verificarPenalizacion(Long miembroId) {
+        LocalDateTime hasta = inasistenciaMiembroRepository.findById(miembroId)
+                .map(inasistencias -> inasistencias.penalizadoHasta(limite, diasPenalizacion))
+                .orElse(null);
+        if (hasta == null) {
+            return null;
+        }
+        return "ERROR: No asististe a tus últimas " + limite + " clases reservadas. Podrás reservar nuevamente desde el "
+                + hasta.format(FECHA_HORA_FORMATTER);
+    }
+}
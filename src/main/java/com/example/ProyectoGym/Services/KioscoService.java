@@ -0,0 +1,90 @@
+package com.example.ProyectoGym.Services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Servicio para el check-in de miembros en el kiosco de recepcion mediante su DNI.
+ * Valida el acceso con los datos en cache de AccesoMiembroCacheService, por lo que
+ * en el caso habitual el registro cuesta una sola insercion en la base de datos.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class KioscoService {
+
+    @Autowired
+    private AccesoMiembroCacheService accesoMiembroCache;
+
+    @Autowired
+    private AsistenciaService asistenciaService;
+
+    @Autowired
+    private DiarioAsistenciasService diarioAsistenciasService;
+
+    private final Timer duracionCheckIn;
+
+    public KioscoService(MeterRegistry registry) {
+        this.duracionCheckIn = Timer.builder("gym.kiosco.checkin.duracion")
+                .description("Duracion del check-in por DNI en el kiosco")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry);
+    }
+
+    /**
+     * Registra la entrada del miembro con el DNI ingresado en el kiosco.
+     *
+     * @param dni DNI ingresado por el miembro
+     * @param fechaHora Fecha y hora de la entrada
+     * @return Mensaje de exito con hora de entrada o mensaje de error segun corresponda
+     */
+    public String registrarEntrada(String dni, LocalDateTime fechaHora) {
+        return duracionCheckIn.record(() -> {
+            if (dni == null || dni.isBlank()) {
+                return "ERROR: Ingrese su DNI";
+            }
+
+            AccesoMiembroCacheService.AccesoMiembro acceso = accesoMiembroCache.obtener(dni.trim());
+
+            if (acceso == null) {
+                return "ERROR: DNI no registrado";
+            }
+
+            if (!acceso.puedeIngresar()) {
+                return "ERROR: Membresía inactiva o vencida. Debe renovar.";
+            }
+
+            return asistenciaService.abrirAsistencia(acceso.getMiembroId(), fechaHora);
+        });
+    }
+
+    /**
+     * Registra en el diario local la entrada del miembro con el DNI ingresado, cuando la base
+     * de datos no esta disponible. Solo se aceptan los DNI que estan en cache.
+     *
+     * @param dni DNI ingresado por el miembro
+     * @param fechaHora Fecha y hora de la entrada, la misma del intento en la base de datos
+     * @return Mensaje de exito o de error segun corresponda
+     */
+    public String registrarEntradaSinConexion(String dni, LocalDateTime fechaHora) {
+        if (dni == null || dni.isBlank()) {
+            return "ERROR: Ingrese su DNI";
+        }
+
+        AccesoMiembroCacheService.AccesoMiembro acceso = accesoMiembroCache.obtenerDeCache(dni.trim());
+        if (acceso == null) {
+            return "ERROR: Sin conexión con la base de datos. Registre la entrada en recepción.";
+        }
+
+        if (!acceso.puedeIngresar()) {
+            return "ERROR: Membresía inactiva o vencida. Debe renovar.";
+        }
+
+        return diarioAsistenciasService.registrarEntrada(acceso.getMiembroId(), fechaHora);
+    }
+}
@@ -27,6 +27,9 @@ public class MiembroService {
     @Autowired
     private PlanRepository planRepository;
 
+    @Autowired
+    private AccesoMiembroCacheService accesoMiembroCache;
+
     /**
      * Registra un nuevo miembro en el sistema.
      * Valida que el email y DNI no existan previamente, normaliza el nombre del plan,
@@ -78,6 +81,7 @@ public class MiembroService {
         miembro.setFechaVencimiento(LocalDate.now().plusMonths(1));
 
         miembroRepository.save(miembro);
+        accesoMiembroCache.invalidar(dni);
 
         return "SUCCESS: Registro exitoso. Plan: " + plan.getNombre() + " - Precio: S/ " + plan.getPrecio();
     }
@@ -189,6 +193,7 @@ public class MiembroService {
 
         miembro.renovarMembresia(meses);
         miembroRepository.save(miembro);
+        accesoMiembroCache.invalidar(miembro.getDni());
 
         return "SUCCESS: Membresía renovada por " + meses + " mes(es)";
     }
@@ -205,6 +210,7 @@ public class MiembroService {
             if (miembro.estaVencida() && miembro.getActivo()) {
                 miembro.setActivo(false);
                 miembroRepository.save(miembro);
+                accesoMiembroCache.invalidar(miembro.getDni());
             }
         }
     }
@@ -225,6 +231,7 @@ public class MiembroService {
 
         miembro.setActivo(activo);
         miembroRepository.save(miembro);
+        accesoMiembroCache.invalidar(miembro.getDni());
 
         return "SUCCESS: Estado actualizado";
     }
@@ -0,0 +1,195 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import com.example.ProyectoGym.Repository.OcupacionHorariaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servicio para el resumen de ocupacion por hora del gimnasio.
+ * Actualiza el resumen de forma incremental con cada entrada y salida confirmada,
+ * permite reconstruirlo desde el historial de asistencias y lo expone agrupado
+ * por dia de la semana y hora para el mapa de calor del panel administrativo.
+ * Los eventos confirmados se encolan en memoria y se aplican por lotes en segundo plano,
+ * por lo que el registro de una entrada o salida no espera la actualizacion del resumen.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class OcupacionHorariaService {
+
+    private static final Logger log = LoggerFactory.getLogger(OcupacionHorariaService.class);
+
+    @Autowired
+    private OcupacionHorariaRepository ocupacionHorariaRepository;
+
+    @Autowired
+    private AsistenciaRepository asistenciaRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ArchivoAsistenciasService archivoAsistenciasService;
+
+    // Ninguna visita supera este tiempo abierta: el cierre automatico cierra las olvidadas
+    @Value("${gym.asistencia.cierre-automatico.horas-maximas:12}")
+    private int horasMaximasVisita;
+
+    @Value("${gym.ocupacion-horaria.lote:500}")
+    private int tamanoLote;
+
+    // Eventos en espera como maximo; si el resumen no puede escribirse por mucho tiempo, los siguientes se descartan
+    @Value("${gym.ocupacion-horaria.capacidad:100000}")
+    private int capacidad;
+
+    private final Queue<EventoAsistencia> pendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger cantidadPendientes = new AtomicInteger();
+    private final Counter descartados;
+
+    public OcupacionHorariaService(MeterRegistry registry) {
+        this.descartados = Counter.builder("gym.ocupacion.horaria.descartados")
+                .description("Eventos de asistencia no sumados al resumen horario por cola llena")
+                .register(registry);
+        Gauge.builder("gym.ocupacion.horaria.pendientes", cantidadPendientes, AtomicInteger::get)
+                .description("Eventos de asistencia confirmados pendientes de sumar al resumen horario")
+                .register(registry);
+    }
+
+    /**
+     * Encola la entrada o salida confirmada para sumarla al resumen en el siguiente lote.
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @TransactionalEventListener
+    public void registrarEvento(EventoAsistencia evento) {
+        if (cantidadPendientes.incrementAndGet() > capacidad) {
+            cantidadPendientes.decrementAndGet();
+            descartados.increment();
+            return;
+        }
+        pendientes.offer(evento);
+    }
+
+    /**
+     * Suma al resumen los eventos encolados, en una transaccion por lote.
+     * El pico se calcula con la ocupacion en el momento del evento segun las asistencias confirmadas,
+     * no con los presentes al procesarlo, por lo que el resultado no depende de cuando ni en que
+     * orden se apliquen los eventos. Si el lote falla, sus eventos vuelven a la cola.
+     */
+    @Scheduled(fixedDelayString = "${gym.ocupacion-horaria.intervalo-ms:1000}")
+    public void aplicarPendientes() {
+        List<EventoAsistencia> lote = new ArrayList<>(tamanoLote);
+        EventoAsistencia evento;
+        while (lote.size() < tamanoLote && (evento = pendientes.poll()) != null) {
+            lote.add(evento);
+        }
+        while (!lote.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(estado -> lote.forEach(this::sumar));
+            } catch (RuntimeException e) {
+                log.warn("No se pudo actualizar el resumen de ocupacion horaria; se reintentara", e);
+                pendientes.addAll(lote);
+                return;
+            }
+            cantidadPendientes.addAndGet(-lote.size());
+            lote.clear();
+            while (lote.size() < tamanoLote && (evento = pendientes.poll()) != null) {
+                lote.add(evento);
+            }
+        }
+    }
+
+    private void sumar(EventoAsistencia evento) {
+        if (evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+            LocalDateTime entrada = evento.getFechaHoraEntrada();
+            ocupacionHorariaRepository.sumarEntrada(entrada.toLocalDate(), entrada.getHour(),
+                    entrada, entrada.minusHours(horasMaximasVisita));
+        } else {
+            LocalDateTime salida = evento.getFechaHoraSalida();
+            ocupacionHorariaRepository.sumarSalida(salida.toLocalDate(), salida.getHour(),
+                    salida, salida.minusHours(horasMaximasVisita));
+        }
+    }
+
+    /**
+     * Construye el resumen desde el historial la primera vez que se inicia la aplicacion
+     * con asistencias registradas y sin resumen previo.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void inicializar() {
+        if (ocupacionHorariaRepository.count() > 0) {
+            return;
+        }
+        asistenciaRepository.findFirstByOrderByFechaHoraEntradaAsc()
+                .ifPresent(primera -> recalcular(primera.getFechaHoraEntrada().toLocalDate(), LocalDate.now()));
+    }
+
+    /**
+     * Recalcula el resumen de un rango de fechas desde el historial de asistencias.
+     * Procesa un mes por transaccion para no mantener bloqueos largos sobre el resumen.
+     * Los meses archivados ya no estan en la tabla de asistencias: el rango empieza despues
+     * de ellos y las horas archivadas conservan el resumen que tenian.
+     *
+     * @param desde Fecha inicial (inclusive)
+     * @param hasta Fecha final (inclusive)
+     * @return Cantidad de horas recalculadas
+     */
+    public int recalcular(LocalDate desde, LocalDate hasta) {
+        LocalDate inicioHistorial = archivoAsistenciasService.inicioHistorialCompleto();
+        if (inicioHistorial != null) {
+            // Las salidas de las primeras horas pueden ser de visitas cuya entrada ya se archivo
+            LocalDate primerDiaCompleto = inicioHistorial.atStartOfDay().plusHours(horasMaximasVisita)
+                    .toLocalDate().plusDays(1);
+            if (desde.isBefore(primerDiaCompleto)) {
+                desde = primerDiaCompleto;
+            }
+        }
+
+        int horas = 0;
+        YearMonth mes = YearMonth.from(desde);
+        while (!mes.atDay(1).isAfter(hasta)) {
+            LocalDate inicio = mes.atDay(1).isBefore(desde) ? desde : mes.atDay(1);
+            LocalDate fin = mes.plusMonths(1).atDay(1).isAfter(hasta) ? hasta.plusDays(1) : mes.plusMonths(1).atDay(1);
+            Integer escritas = transactionTemplate.execute(estado ->
+                    ocupacionHorariaRepository.recalcularPeriodo(inicio.atStartOfDay(), fin.atStartOfDay()));
+            horas += escritas != null ? escritas : 0;
+            mes = mes.plusMonths(1);
+        }
+        return horas;
+    }
+
+    /**
+     * Obtiene el mapa de calor de ocupacion (dia de la semana x hora) de los ultimos meses.
+     * Solo lee la tabla de resumen.
+     *
+     * @param meses Cantidad de meses hacia atras a incluir
+     * @return Celdas con entradas, salidas y pico de ocupacion por dia de la semana y hora
+     */
+    public List<OcupacionHorariaRepository.CeldaMapaCalor> obtenerMapaCalor(int meses) {
+        LocalDate hasta = LocalDate.now().plusDays(1);
+        return ocupacionHorariaRepository.findMapaCalor(hasta.minusMonths(meses), hasta);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.ProyectoGym.Services;
+
+import com.example.ProyectoGym.Dto.EventoAsistencia;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Servicio que mantiene en memoria la ocupacion actual del gimnasio.
+ * Indexa por ID de miembro la hora de entrada de cada asistencia abierta, de modo que
+ * las consultas de presencia no requieren acceder a la base de datos.
+ * Se reconstruye al iniciar la aplicacion y se reconcilia periodicamente con las
+ * asistencias abiertas persistidas.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class OcupacionService {
+
+    private static final Logger log = LoggerFactory.getLogger(OcupacionService.class);
+
+    @Autowired
+    private AsistenciaRepository asistenciaRepository;
+
+    // ID de miembro -> hora de entrada de su asistencia abierta
+    private final ConcurrentHashMap<Long, LocalDateTime> presentes = new ConcurrentHashMap<>();
+
+    // Cantidad de eventos aplicados, para detectar cambios durante una reconciliacion
+    private final AtomicLong eventosAplicados = new AtomicLong();
+
+    // Los eventos se aplican en paralelo (lectura); la reconciliacion los excluye (escritura)
+    private final ReadWriteLock bloqueo = new ReentrantReadWriteLock();
+
+    /**
+     * Aplica al indice una entrada o salida una vez confirmada su transaccion.
+     *
+     * @param evento Evento de asistencia registrado
+     */
+    @Order(0)
+    @TransactionalEventListener
+    public void aplicarEvento(EventoAsistencia evento) {
+        bloqueo.readLock().lock();
+        try {
+            if (evento.getTipo() == EventoAsistencia.Tipo.ENTRADA) {
+                presentes.put(evento.getMiembroId(), evento.getFechaHoraEntrada());
+            } else {
+                presentes.remove(evento.getMiembroId());
+            }
+            eventosAplicados.incrementAndGet();
+        } finally {
+            bloqueo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reconstruye el indice al iniciar la aplicacion a partir de las asistencias abiertas.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruir() {
+        bloqueo.writeLock().lock();
+        try {
+            presentes.clear();
+            presentes.putAll(cargarAsistenciasAbiertas());
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compara periodicamente el indice con las asistencias abiertas de la base de datos
+     * y corrige las diferencias. Si se aplicaron eventos mientras se leia la base de datos
+     * la comparacion se descarta y se repite en la siguiente ejecucion.
+     */
+    @Scheduled(initialDelayString = "${gym.ocupacion.reconciliacion-ms:300000}",
+            fixedDelayString = "${gym.ocupacion.reconciliacion-ms:300000}")
+    public void reconciliar() {
+        long eventosAntes = eventosAplicados.get();
+        Map<Long, LocalDateTime> abiertas = cargarAsistenciasAbiertas();
+
+        bloqueo.writeLock().lock();
+        try {
+            if (eventosAplicados.get() != eventosAntes) {
+                return;
+            }
+            if (!abiertas.keySet().equals(presentes.keySet())) {
+                log.warn("Indice de ocupacion desincronizado: {} en memoria, {} en base de datos. Se corrige.",
+                        presentes.size(), abiertas.size());
+                presentes.clear();
+                presentes.putAll(abiertas);
+            }
+        } finally {
+            bloqueo.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Verifica si un miembro esta actualmente en el gimnasio.
+     *
+     * @param miembroId ID del miembro
+     * @return true si tiene una asistencia abierta
+     */
+    public boolean estaEnGimnasio(Long miembroId) {
+        return presentes.containsKey(miembroId);
+    }
+
+    /**
+     * Obtiene la hora de entrada de la asistencia abierta de un miembro.
+     *
+     * @param miembroId ID del miembro
+     * @return Hora de entrada, o null si no esta en el gimnasio
+     */
+    public LocalDateTime obtenerHoraEntrada(Long miembroId) {
+        return presentes.get(miembroId);
+    }
+
+    /**
+     * Cuenta los miembros que estan actualmente en el gimnasio.
+     *
+     * @return Cantidad de miembros presentes
+     */
+    public long contarPresentes() {
+        return presentes.size();
+    }
+
+    /**
+     * Obtiene una copia de los miembros presentes con su hora de entrada.
+     *
+     * @return Mapa de ID de miembro a hora de entrada
+     */
+    public Map<Long, LocalDateTime> obtenerPresentes() {
+        return Map.copyOf(presentes);
+    }
+
+    private Map<Long, LocalDateTime> cargarAsistenciasAbiertas() {
+        Map<Long, LocalDateTime> abiertas = new HashMap<>();
+        for (AsistenciaRepository.AsistenciaAbierta abierta : asistenciaRepository.findAsistenciasAbiertas()) {
+            abiertas.put(abierta.getMiembroId(), abierta.getFechaHoraEntrada());
+        }
+        return abiertas;
+    }
+}
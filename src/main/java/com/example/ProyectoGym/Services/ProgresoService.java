@@ -4,6 +4,7 @@ import com.example.ProyectoGym.Model.*;
 import com.example.ProyectoGym.Repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.*;
@@ -28,6 +29,12 @@ public class ProgresoService {
     @Autowired
     private SesionCompletadaRepository sesionCompletadaRepository;
 
+    @Autowired
+    private ActividadDiariaService actividadDiariaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Obtiene la lista de miembros activos que tienen rutinas asignadas con su progreso mensual.
      * Incluye informacion de sesiones completadas, meta mensual y porcentaje de cumplimiento.
@@ -160,6 +167,7 @@ public class ProgresoService {
      * Registra la completacion de una sesion de entrenamiento para un miembro.
      * Valida que el miembro exista y tenga una rutina asignada activa.
      * Siempre crea una nueva sesion sin importar si ya hay una registrada en el dia.
+     * La sesion y el contador de actividad del dia se guardan en la misma transaccion.
      *
      * @param miembroId ID del miembro que completo la sesion
      * @param observaciones Notas u observaciones sobre la sesion (opcional)
@@ -183,7 +191,10 @@ public class ProgresoService {
             AsignacionRutina asignacion = asignacionOpt.get();
 
             SesionCompletada sesion = new SesionCompletada(asignacion, miembro, observaciones);
-            sesionCompletadaRepository.save(sesion);
+            transactionTemplate.executeWithoutResult(estado -> {
+                sesionCompletadaRepository.save(sesion);
+                actividadDiariaService.registrarSesionCompletada(sesion.getFechaCompletada(), 1);
+            });
 
             return "SUCCESS: Sesión completada registrada exitosamente";
         } catch (Exception e) {
@@ -208,13 +219,12 @@ public class ProgresoService {
         stats.put("miembrosConRutina", miembrosConRutina);
 
         LocalDate hoy = LocalDate.now();
-        long sesionesHoy = sesionCompletadaRepository.countByFechaCompletada(hoy);
+        long sesionesHoy = actividadDiariaService.obtenerHoy().getSesionesCompletadas();
         stats.put("sesionesHoy", sesionesHoy);
 
         LocalDate inicioMes = hoy.withDayOfMonth(1);
         LocalDate finMes = hoy.withDayOfMonth(hoy.lengthOfMonth());
-        long sesionesMes = sesionCompletadaRepository
-                .countByFechaCompletadaBetween(inicioMes, finMes);
+        long sesionesMes = actividadDiariaService.contarSesionesCompletadas(inicioMes, finMes);
         stats.put("sesionesMes", sesionesMes);
 
         return stats;
@@ -222,7 +232,8 @@ public class ProgresoService {
 
     /**
      * Elimina una sesion completada del sistema.
-     * Util para corregir registros erroneos.
+     * Util para corregir registros erroneos. El borrado y el descuento en el contador
+     * de actividad del dia se aplican en la misma transaccion.
      *
      * @param sesionId ID de la sesion a eliminar
      * @return Mensaje de exito o error segun corresponda
@@ -235,7 +246,10 @@ public class ProgresoService {
         }
 
         try {
-            sesionCompletadaRepository.deleteById(sesionId);
+            transactionTemplate.executeWithoutResult(estado -> {
+                sesionCompletadaRepository.deleteById(sesionId);
+                actividadDiariaService.registrarSesionCompletada(sesionOpt.get().getFechaCompletada(), -1);
+            });
             return "SUCCESS: Sesión eliminada correctamente";
         } catch (Exception e) {
             return "ERROR: No se pudo eliminar la sesión";
@@ -4,6 +4,7 @@ import com.example.ProyectoGym.Model.*;
 import com.example.ProyectoGym.Repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -32,6 +33,12 @@ public class RutinaService {
     @Autowired
     private SesionCompletadaRepository sesionCompletadaRepository;
 
+    @Autowired
+    private ActividadDiariaService actividadDiariaService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
      * Verifica si un miembro tiene una rutina activa asignada.
      *
@@ -192,7 +199,8 @@ public class RutinaService {
 
     /**
      * Registra una nueva sesion completada por un miembro.
-     * Valida que el miembro tenga una rutina asignada activa.
+     * Valida que el miembro tenga una rutina asignada activa. La sesion y el contador
+     * de actividad del dia se guardan en la misma transaccion.
      *
      * @param miembro Miembro que completo la sesion
      * @param observaciones Notas u observaciones sobre la sesion
@@ -207,7 +215,10 @@ public class RutinaService {
 
         try {
             SesionCompletada sesion = new SesionCompletada(asignacion, miembro, observaciones);
-            sesionCompletadaRepository.save(sesion);
+            transactionTemplate.executeWithoutResult(estado -> {
+                sesionCompletadaRepository.save(sesion);
+                actividadDiariaService.registrarSesionCompletada(sesion.getFechaCompletada(), 1);
+            });
             return "SUCCESS: Sesión registrada exitosamente";
         } catch (Exception e) {
             return "ERROR: No se pudo registrar la sesión";
@@ -0,0 +1,196 @@
+package com.example.ProyectoGym.Services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Servicio que emite y verifica los tokens QR de check-in de los miembros.
+ * Cada token contiene el ID del miembro, la fecha de vencimiento de su membresia,
+ * el instante en que expira y un nonce, firmados con HMAC-SHA256. La verificacion
+ * (firma, expiracion del token y vigencia de la membresia) no consulta la base de datos;
+ * una cache acotada de nonces ya usados rechaza los tokens reutilizados.
+ *
+ * @author Juan Quispe, Pedro Perez
+ * @since 2025
+ */
+@Service
+public class TokenQrService {
+
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private static final Base64.Encoder BASE64 = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec clave;
+    private final long validezSegundos;
+    private final int maximoNonces;
+    private final Clock reloj;
+
+    private final SecureRandom random = new SecureRandom();
+
+    // Mac no es seguro entre hilos: una instancia por hilo evita sincronizar la verificacion
+    private final ThreadLocal<Mac> macPorHilo;
+
+    // Nonce ya utilizado -> instante (epoch en segundos) en que expira su token
+    private final Map<String, Long> noncesUsados = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TokenQrService(@Value("${gym.qr.secreto:}") String secreto,
+                          @Value("${gym.qr.validez-segundos:60}") long validezSegundos,
+                          @Value("${gym.qr.maximo-nonces:100000}") int maximoNonces) {
+        this(secreto, validezSegundos, maximoNonces, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Crea el servicio con un reloj explicito, para verificar la expiracion de los tokens
+     * sin depender de la hora del sistema.
+     */
+    public TokenQrService(String secreto, long validezSegundos, int maximoNonces, Clock reloj) {
+        byte[] bytesClave;
+        if (secreto == null || secreto.isBlank()) {
+            // Sin secreto configurado los tokens solo son validos hasta el siguiente reinicio
+            bytesClave = new byte[32];
+            random.nextBytes(bytesClave);
+        } else {
+            bytesClave = secreto.getBytes(StandardCharsets.UTF_8);
+        }
+        this.clave = new SecretKeySpec(bytesClave, ALGORITMO);
+        this.validezSegundos = validezSegundos;
+        this.maximoNonces = maximoNonces;
+        this.reloj = reloj;
+        this.macPorHilo = ThreadLocal.withInitial(this::crearMac);
+    }
+
+    public long getValidezSegundos() {
+        return validezSegundos;
+    }
+
+    /**
+     * Emite un token QR de corta duracion para un miembro.
+     *
+     * @param miembroId ID del miembro
+     * @param fechaVencimiento Fecha de vencimiento de su membresia
+     * @return Token firmado con el formato datos.firma (Base64 URL)
+     */
+    public String emitirToken(Long miembroId, LocalDate fechaVencimiento) {
+        byte[] nonce = new byte[12];
+        random.nextBytes(nonce);
+        long expira = reloj.instant().getEpochSecond() + validezSegundos;
+
+        String datos = miembroId + ":" + fechaVencimiento.toEpochDay() + ":" + expira + ":" + BASE64.encodeToString(nonce);
+        byte[] bytesDatos = datos.getBytes(StandardCharsets.UTF_8);
+        return BASE64.encodeToString(bytesDatos) + "." + BASE64.encodeToString(firmar(bytesDatos));
+    }
+
+    /**
+     * Verifica un token QR escaneado sin consultar la base de datos.
+     * Comprueba la firma, la expiracion del token, la vigencia de la membresia y que
+     * el nonce no se haya usado antes; el nonce queda registrado al verificarse.
+     *
+     * @param token Token escaneado
+     * @return Mensaje de exito con el ID del miembro ("SUCCESS: id") o mensaje de error
+     */
+    public String verificarToken(String token) {
+        int punto = token == null ? -1 : token.indexOf('.');
+        if (punto <= 0) {
+            return "ERROR: Código QR inválido";
+        }
+
+        byte[] bytesDatos;
+        byte[] firma;
+        try {
+            bytesDatos = BASE64_DECODER.decode(token.substring(0, punto));
+            firma = BASE64_DECODER.decode(token.substring(punto + 1));
+        } catch (IllegalArgumentException e) {
+            return "ERROR: Código QR inválido";
+        }
+
+        if (!MessageDigest.isEqual(firmar(bytesDatos), firma)) {
+            return "ERROR: Código QR inválido";
+        }
+
+        String[] campos = new String(bytesDatos, StandardCharsets.UTF_8).split(":");
+        if (campos.length != 4) {
+            return "ERROR: Código QR inválido";
+        }
+
+        long miembroId = Long.parseLong(campos[0]);
+        LocalDate fechaVencimiento = LocalDate.ofEpochDay(Long.parseLong(campos[1]));
+        long expira = Long.parseLong(campos[2]);
+        long ahora = reloj.instant().getEpochSecond();
+
+        if (ahora > expira) {
+            return "ERROR: Código QR expirado. Genere uno nuevo.";
+        }
+
+        if (LocalDate.now(reloj).isAfter(fechaVencimiento)) {
+            return "ERROR: Membresía inactiva o vencida. Debe renovar.";
+        }
+
+        String error = registrarNonce(campos[3], expira, ahora);
+        if (error != null) {
+            return error;
+        }
+
+        return "SUCCESS: " + miembroId;
+    }
+
+    /**
+     * Descarta periodicamente los nonces de tokens ya expirados, que no pueden volver a aceptarse.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void limpiarNonces() {
+        descartarNoncesExpirados(reloj.instant().getEpochSecond());
+    }
+
+    // Devuelve null si el nonce se registro, o el mensaje de error si ya se uso o no hay lugar para guardarlo
+    private String registrarNonce(String nonce, long expira, long ahora) {
+        if (noncesUsados.size() >= maximoNonces) {
+            descartarNoncesExpirados(ahora);
+            if (noncesUsados.size() >= maximoNonces) {
+                // Cache llena de tokens aun vigentes: se rechaza antes que aceptar una posible repeticion,
+                // pero el token no se uso, por lo que el miembro puede volver a escanearlo
+                return "ERROR: Sistema ocupado, intente nuevamente";
+            }
+        }
+        return noncesUsados.putIfAbsent(nonce, expira) == null ? null : "ERROR: Código QR ya utilizado";
+    }
+
+    private void descartarNoncesExpirados(long ahora) {
+        Iterator<Map.Entry<String, Long>> it = noncesUsados.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getValue() < ahora) {
+                it.remove();
+            }
+        }
+    }
+
+    private byte[] firmar(byte[] datos) {
+        return macPorHilo.get().doFinal(datos);
+    }
+
+    private Mac crearMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(clave);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo inicializar " + ALGORITMO, e);
+        }
+    }
+}
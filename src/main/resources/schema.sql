@@ -0,0 +1,48 @@
+-- Objetos de base de datos que JPA no puede declarar con anotaciones.
+-- Se ejecuta despues de que Hibernate crea/actualiza las tablas
+-- (spring.jpa.defer-datasource-initialization=true); cada sentencia debe ser idempotente.
+
+-- ==================== ASISTENCIAS ====================
+
+-- Cierra asistencias abiertas duplicadas (conserva la mas reciente) para poder crear el indice unico
+UPDATE asistencias a
+SET fecha_hora_salida = a.fecha_hora_entrada, duracion_minutos = 0
+WHERE a.fecha_hora_salida IS NULL
+  AND EXISTS (SELECT 1 FROM asistencias b
+              WHERE b.miembro_id = a.miembro_id AND b.fecha_hora_salida IS NULL AND b.id > a.id);
+
+-- Un miembro solo puede tener una asistencia abierta (sin salida)
+CREATE UNIQUE INDEX IF NOT EXISTS uk_asistencias_miembro_abierta
+    ON asistencias (miembro_id) WHERE fecha_hora_salida IS NULL;
+
+-- ==================== RESERVAS ====================
+
+-- Cancela reservas activas duplicadas de una misma sesion (conserva la mas antigua) para poder crear el indice unico
+UPDATE reserva r
+SET estado = 'CANCELADA'
+WHERE r.estado = 'ACTIVA'
+  AND EXISTS (SELECT 1 FROM reserva o
+              WHERE o.miembro_id = r.miembro_id AND o.sesion_id = r.sesion_id
+                AND o.estado = 'ACTIVA' AND o.id < r.id);
+
+-- Un miembro solo puede tener una reserva activa por sesion (puede reservar varias fechas de la misma clase)
+DROP INDEX IF EXISTS uk_reserva_miembro_clase_activa;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_reserva_miembro_sesion_activa
+    ON reserva (miembro_id, sesion_id) WHERE estado = 'ACTIVA';
+
+-- Los cupos se controlan por sesion (clase_sesion.inscritos), ya no por clase
+ALTER TABLE clase_grupal DROP COLUMN IF EXISTS inscritos;
+
+-- Sesiones terminadas cuyas reservas aun no se conciliaron con las asistencias
+CREATE INDEX IF NOT EXISTS idx_clase_sesion_sin_conciliar
+    ON clase_sesion (fin) WHERE asistencia_conciliada = false;
+
+-- ==================== LISTA DE ESPERA ====================
+
+-- Orden de llegada a las listas de espera (FIFO por sesion)
+CREATE SEQUENCE IF NOT EXISTS lista_espera_posicion_seq;
+
+-- Las listas de espera son por sesion: se reemplazan la restriccion y el indice por clase
+ALTER TABLE lista_espera DROP CONSTRAINT IF EXISTS uk_lista_espera_miembro_clase;
+DROP INDEX IF EXISTS idx_lista_espera_clase_posicion;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_lista_espera_miembro_sesion ON lista_espera (miembro_id, sesion_id);
@@ -0,0 +1,132 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Dto.TicketAdmision;
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Services.AdmisionReservasService;
+import com.example.ProyectoGym.Services.ClaseService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rafaga de solicitudes de reserva de una misma sesion con la admision habilitada.
+ * Verifica que no se supera la capacidad, que los cupos se asignan en orden de llegada
+ * y que las conexiones a la base de datos en uso se mantienen constantes durante la rafaga.
+ */
+@SpringBootTest(properties = {
+		"gym.clases.admision.habilitada=true",
+		"gym.clases.admision.tasa-por-segundo=200"
+})
+class AdmisionReservasCargaTests {
+
+	private static final int SOLICITUDES = 5000;
+	private static final int CAPACIDAD = 100;
+	private static final int HILOS = 64;
+
+	@Autowired
+	private AdmisionReservasService admisionReservasService;
+
+	@Autowired
+	private ClaseService claseService;
+
+	@Autowired
+	private ClaseGrupalRepository claseGrupalRepository;
+
+	@Autowired
+	private ClaseSesionRepository claseSesionRepository;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private DataSource dataSource;
+
+	private final List<Miembro> miembros = new ArrayList<>();
+	private ClaseDePrueba clase;
+
+	@BeforeEach
+	void crearClaseYMiembros() {
+		clase = ClaseDePrueba.crear(claseService, claseGrupalRepository, "Spinning admision", "06:00", CAPACIDAD);
+		miembros.addAll(MiembrosDePrueba.ADMISION_RESERVAS.crear(miembroRepository, SOLICITUDES, "Premium"));
+	}
+
+	@AfterEach
+	void eliminarDatos() {
+		clase.eliminar(jdbcTemplate, claseGrupalRepository);
+		miembroRepository.deleteAll(miembros);
+		miembros.clear();
+	}
+
+	@Test
+	void rafagaDeSolicitudesSeAdmiteEnOrdenSinSobreventa() throws Exception {
+		Long sesionId = clase.proximaSesion(claseSesionRepository).getId();
+		HikariDataSource hikari = dataSource.unwrap(HikariDataSource.class);
+
+		AtomicBoolean midiendo = new AtomicBoolean(true);
+		AtomicInteger maximoConexiones = new AtomicInteger();
+		Thread monitor = new Thread(() -> {
+			while (midiendo.get()) {
+				maximoConexiones.accumulateAndGet(hikari.getHikariPoolMXBean().getActiveConnections(), Math::max);
+				try {
+					Thread.sleep(2);
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		});
+		monitor.start();
+
+		List<Callable<TicketAdmision>> solicitudes = new ArrayList<>();
+		for (Miembro miembro : miembros) {
+			solicitudes.add(() -> admisionReservasService.solicitar(miembro, sesionId));
+		}
+		List<TicketAdmision> tickets = ClaseDePrueba.ejecutarALaVez(HILOS, solicitudes);
+
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(120);
+		while (tickets.stream().anyMatch(t -> !t.isResuelto()) && System.nanoTime() < limite) {
+			Thread.sleep(50);
+		}
+		midiendo.set(false);
+		monitor.join();
+
+		tickets.sort(Comparator.comparingLong(TicketAdmision::getNumero));
+		long confirmadas = tickets.stream().filter(t -> t.getEstado() == TicketAdmision.Estado.CONFIRMADA).count();
+		assertTrue(tickets.stream().allMatch(TicketAdmision::isResuelto));
+		assertEquals(CAPACIDAD, confirmadas);
+		// Orden de llegada estricto: los primeros CAPACIDAD tickets obtienen los cupos
+		for (int i = 0; i < tickets.size(); i++) {
+			TicketAdmision.Estado esperado = i < CAPACIDAD
+					? TicketAdmision.Estado.CONFIRMADA : TicketAdmision.Estado.RECHAZADA;
+			assertEquals(esperado, tickets.get(i).getEstado());
+		}
+		Integer activas = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM reserva WHERE sesion_id = ? AND estado = 'ACTIVA'", Integer.class, sesionId);
+		assertEquals(CAPACIDAD, activas);
+		assertEquals(CAPACIDAD, claseSesionRepository.findById(sesionId).orElseThrow().getInscritos());
+		// Un solo hilo admisor accede a la base de datos, cualquiera sea el tamaño de la rafaga
+		assertTrue(maximoConexiones.get() <= 2);
+	}
+
+}
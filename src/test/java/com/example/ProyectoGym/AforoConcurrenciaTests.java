@@ -0,0 +1,154 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Services.AforoService;
+import com.example.ProyectoGym.Services.AsistenciaService;
+import com.example.ProyectoGym.Services.DiarioAsistenciasService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que el contador de aforo no supere la capacidad cuando las entradas llegan a la vez
+ * por la transaccion por peticion, la escritura diferida y el diario local, mientras la
+ * reconciliacion con la base de datos se ejecuta en paralelo, y que al terminar coincida con
+ * las asistencias abiertas mas las reservas en curso.
+ */
+@SpringBootTest(properties = {
+		"gym.aforo.capacidad=" + AforoConcurrenciaTests.CAPACIDAD,
+		"gym.asistencia.escritura-diferida.habilitada=true",
+		"gym.diario.archivo=target/diario/aforo-concurrencia.journal"
+})
+class AforoConcurrenciaTests {
+
+	static final int CAPACIDAD = 50;
+
+	// Cada miembro entra una sola vez; hay tres veces mas miembros que lugares
+	private static final int MIEMBROS = CAPACIDAD * 3;
+	private static final int HILOS = 32;
+
+	@Autowired
+	private AsistenciaService asistenciaService;
+
+	@Autowired
+	private DiarioAsistenciasService diarioAsistenciasService;
+
+	@Autowired
+	private AforoService aforoService;
+
+	@Autowired
+	private AsistenciaRepository asistenciaRepository;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> miembroIds = new ArrayList<>();
+
+	@BeforeEach
+	void crearMiembros() throws Exception {
+		MiembrosDePrueba.AFORO_CONCURRENCIA.crear(miembroRepository, MIEMBROS, "Basico")
+				.forEach(miembro -> miembroIds.add(miembro.getId()));
+		// Entradas del diario de una ejecucion anterior
+		esperarSinReservasEnCurso();
+		aforoService.reconciliar();
+	}
+
+	@AfterEach
+	void eliminarMiembros() throws Exception {
+		esperarSinReservasEnCurso();
+		for (Long id : miembroIds) {
+			jdbcTemplate.update("DELETE FROM asistencias WHERE miembro_id = ?", id);
+		}
+		miembroRepository.deleteAllById(miembroIds);
+		miembroIds.clear();
+		aforoService.reconciliar();
+	}
+
+	@Test
+	void entradasPorTodasLasViasNoSuperanLaCapacidad() throws Exception {
+		int libres = CAPACIDAD - aforoService.contarOcupados();
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		AtomicBoolean enCarrera = new AtomicBoolean(true);
+		AtomicInteger maximo = new AtomicInteger();
+
+		// Reconciliaciones concurrentes y lectura continua del contador durante las entradas
+		Future<?> reconciliacion = executor.submit(() -> {
+			inicio.await();
+			while (enCarrera.get()) {
+				aforoService.reconciliar();
+			}
+			return null;
+		});
+		Future<?> observador = executor.submit(() -> {
+			inicio.await();
+			while (enCarrera.get()) {
+				maximo.accumulateAndGet(aforoService.contarOcupados(), Math::max);
+			}
+			return null;
+		});
+
+		List<Future<String>> resultados = new ArrayList<>();
+		for (int i = 0; i < miembroIds.size(); i++) {
+			Long miembroId = miembroIds.get(i);
+			Callable<String> entrada = switch (i % 3) {
+				case 0 -> () -> asistenciaService.abrirAsistencia(miembroId);
+				case 1 -> () -> asistenciaService.registrarEntradaDiferida(miembroId).get(30, TimeUnit.SECONDS);
+				default -> () -> diarioAsistenciasService.registrarEntrada(miembroId, DiarioAsistenciasService.marcaDeTiempo());
+			};
+			resultados.add(executor.submit(() -> {
+				inicio.await();
+				return entrada.call();
+			}));
+		}
+
+		inicio.countDown();
+		int exitosas = 0;
+		for (Future<String> resultado : resultados) {
+			if (resultado.get(60, TimeUnit.SECONDS).startsWith("SUCCESS")) {
+				exitosas++;
+			}
+		}
+		esperarSinReservasEnCurso();
+		enCarrera.set(false);
+		reconciliacion.get(10, TimeUnit.SECONDS);
+		observador.get(10, TimeUnit.SECONDS);
+		executor.shutdown();
+
+		assertEquals(libres, exitosas);
+		assertTrue(maximo.get() <= CAPACIDAD, "El contador llego a " + maximo.get());
+		assertEquals(CAPACIDAD, aforoService.contarOcupados());
+		assertEquals(asistenciaRepository.countMiembrosEnGimnasio() + aforoService.contarReservasEnCurso(),
+				aforoService.contarOcupados());
+	}
+
+	// Las entradas del diario y de la escritura diferida quedan en curso hasta aplicarse en la base de datos
+	private void esperarSinReservasEnCurso() throws InterruptedException {
+		long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (aforoService.contarReservasEnCurso() > 0 && System.nanoTime() < limite) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, aforoService.contarReservasEnCurso(), "Quedaron reservas sin aplicar");
+	}
+}
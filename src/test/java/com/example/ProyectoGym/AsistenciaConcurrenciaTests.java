@@ -0,0 +1,88 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Services.AsistenciaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class AsistenciaConcurrenciaTests {
+
+	private static final int MIEMBROS = 20;
+	private static final int ENTRADAS_POR_MIEMBRO = 200;
+	private static final int HILOS = 32;
+
+	@Autowired
+	private AsistenciaService asistenciaService;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> miembroIds = new ArrayList<>();
+
+	@BeforeEach
+	void crearMiembros() {
+		MiembrosDePrueba.ASISTENCIA_CONCURRENCIA.crear(miembroRepository, MIEMBROS, "Basico")
+				.forEach(miembro -> miembroIds.add(miembro.getId()));
+	}
+
+	@AfterEach
+	void eliminarMiembros() {
+		for (Long id : miembroIds) {
+			jdbcTemplate.update("DELETE FROM asistencias WHERE miembro_id = ?", id);
+		}
+		miembroRepository.deleteAllById(miembroIds);
+		miembroIds.clear();
+	}
+
+	@Test
+	void entradasConcurrentesDejanUnaSolaAsistenciaAbiertaPorMiembro() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Future<String>> resultados = new ArrayList<>();
+
+		for (int i = 0; i < ENTRADAS_POR_MIEMBRO; i++) {
+			for (Long miembroId : miembroIds) {
+				resultados.add(executor.submit(() -> {
+					inicio.await();
+					return asistenciaService.registrarEntrada(miembroId);
+				}));
+			}
+		}
+
+		inicio.countDown();
+		int exitosas = 0;
+		for (Future<String> resultado : resultados) {
+			if (resultado.get(60, TimeUnit.SECONDS).startsWith("SUCCESS")) {
+				exitosas++;
+			}
+		}
+		executor.shutdown();
+
+		assertEquals(MIEMBROS, exitosas);
+		for (Long miembroId : miembroIds) {
+			Integer abiertas = jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM asistencias WHERE miembro_id = ? AND fecha_hora_salida IS NULL",
+					Integer.class, miembroId);
+			assertEquals(1, abiertas);
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Model.ClaseSesion;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import com.example.ProyectoGym.Services.ClaseService;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase grupal creada por una prueba que usa la base de datos, con sus sesiones generadas.
+ * Cada clase de prueba usa su propio nombre; eliminar borra tambien las reservas,
+ * la lista de espera y las sesiones de la clase. Las solicitudes concurrentes sobre la clase
+ * se lanzan con ejecutarALaVez.
+ */
+final class ClaseDePrueba {
+
+	private final Long claseId;
+
+	private ClaseDePrueba(Long claseId) {
+		this.claseId = claseId;
+	}
+
+	/**
+	 * Crea una clase diaria de 45 minutos con sus sesiones.
+	 *
+	 * @param claseService Servicio que crea la clase y genera sus sesiones
+	 * @param claseGrupalRepository Repositorio donde se busca la clase creada
+	 * @param nombre Nombre unico de la clase
+	 * @param horaInicio Hora de inicio en formato HH:mm
+	 * @param capacidad Cupos por sesion
+	 * @return Clase creada
+	 */
+	static ClaseDePrueba crear(ClaseService claseService, ClaseGrupalRepository claseGrupalRepository,
+							   String nombre, String horaInicio, int capacidad) {
+		claseService.crearClase(nombre, "Clase de prueba", "Lunes a Domingo", horaInicio, 45, capacidad, null, null);
+		return new ClaseDePrueba(claseGrupalRepository.findByNombre(nombre).orElseThrow().getId());
+	}
+
+	Long getClaseId() {
+		return claseId;
+	}
+
+	ClaseSesion proximaSesion(ClaseSesionRepository claseSesionRepository) {
+		return claseSesionRepository
+				.findFirstByClaseIdAndInicioAfterOrderByInicioAsc(claseId, LocalDateTime.now()).orElseThrow();
+	}
+
+	void eliminar(JdbcTemplate jdbcTemplate, ClaseGrupalRepository claseGrupalRepository) {
+		jdbcTemplate.update("DELETE FROM reserva WHERE clase_id = ?", claseId);
+		jdbcTemplate.update("DELETE FROM lista_espera WHERE clase_id = ?", claseId);
+		jdbcTemplate.update("DELETE FROM clase_sesion WHERE clase_id = ?", claseId);
+		claseGrupalRepository.deleteById(claseId);
+	}
+
+	/**
+	 * Ejecuta las tareas con la cantidad de hilos indicada, liberandolas todas a la vez.
+	 *
+	 * @param hilos Hilos del pool
+	 * @param tareas Tareas a ejecutar
+	 * @return Resultados en el mismo orden que las tareas
+	 */
+	static <T> List<T> ejecutarALaVez(int hilos, List<Callable<T>> tareas) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(hilos);
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Future<T>> futuros = new ArrayList<>();
+		for (Callable<T> tarea : tareas) {
+			futuros.add(executor.submit(() -> {
+				inicio.await();
+				return tarea.call();
+			}));
+		}
+
+		inicio.countDown();
+		List<T> resultados = new ArrayList<>();
+		try {
+			for (Future<T> futuro : futuros) {
+				resultados.add(futuro.get(60, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return resultados;
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.AsistenciaRepository;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Repository.SesionCompletadaRepository;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que las consultas por fecha de asistencias y sesiones completadas
+ * se resuelvan con indices. El plan se obtiene del SQL que generan los metodos del
+ * repositorio, capturado con un StatementInspector de Hibernate. No basta con que no haya
+ * Seq Scan: con enable_seqscan desactivado PostgreSQL puede recorrer un indice por otra columna
+ * (miembro_id, el orden de la consulta) y filtrar la fecha fila por fila. Por eso se exige que
+ * la columna de fecha aparezca comparada en el Index Cond y que ningun Filter la mencione,
+ * que es lo que ocurre si la fecha vuelve a envolverse en CAST, EXTRACT o MONTH().
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "com.example.ProyectoGym.ConsultasPorRangoTests$SqlCapturado")
+@Transactional
+class ConsultasPorRangoTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private AsistenciaRepository asistenciaRepository;
+
+	@Autowired
+	private SesionCompletadaRepository sesionCompletadaRepository;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	private Miembro miembro;
+
+	@BeforeEach
+	void poblarDatos() {
+		jdbcTemplate.update("INSERT INTO miembros (nombre, email, password, dni, activo) " +
+				"SELECT 'Explain ' || g, 'explain' || g || '@test.com', 'clave', ? || lpad(g::text, 6, '0'), true " +
+				"FROM generate_series(1, 200) g", MiembrosDePrueba.CONSULTAS_POR_RANGO.getPrefijoDni());
+		jdbcTemplate.update("INSERT INTO asistencias (miembro_id, fecha_hora_entrada, fecha_hora_salida, duracion_minutos) " +
+				"SELECT m.id, now() - (d || ' days')::interval, now() - (d || ' days')::interval + interval '1 hour', 60 " +
+				"FROM miembros m CROSS JOIN generate_series(0, 90) d WHERE m.email LIKE 'explain%@test.com'");
+		jdbcTemplate.update("INSERT INTO rutina_predefinida (nombre, objetivo, nivel, activo) " +
+				"VALUES ('Rutina Explain', 'Tonificar', 'Principiante', true)");
+		jdbcTemplate.update("INSERT INTO asignacion_rutina (miembro_id, rutina_predefinida_id, fecha_asignacion, activo) " +
+				"SELECT m.id, r.id, current_date, true FROM miembros m, rutina_predefinida r " +
+				"WHERE m.email LIKE 'explain%@test.com' AND r.nombre = 'Rutina Explain'");
+		jdbcTemplate.update("INSERT INTO sesion_completada (asignacion_rutina_id, miembro_id, fecha_completada) " +
+				"SELECT a.id, a.miembro_id, current_date - d FROM asignacion_rutina a " +
+				"JOIN rutina_predefinida r ON r.id = a.rutina_predefinida_id CROSS JOIN generate_series(0, 90) d " +
+				"WHERE r.nombre = 'Rutina Explain'");
+		jdbcTemplate.execute("ANALYZE miembros");
+		jdbcTemplate.execute("ANALYZE asistencias");
+		jdbcTemplate.execute("ANALYZE sesion_completada");
+		jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+		miembro = miembroRepository.findById(jdbcTemplate.queryForObject(
+				"SELECT id FROM miembros WHERE email = 'explain1@test.com'", Long.class)).orElseThrow();
+	}
+
+	@Test
+	void asistenciasDelDiaUsanIndice() {
+		LocalDateTime inicioDia = LocalDate.now().atStartOfDay();
+		assertRangoEnIndice("fecha_hora_entrada", () -> asistenciaRepository.findAsistenciasHoy(),
+				inicioDia, inicioDia.plusDays(1));
+		assertRangoEnIndice("fecha_hora_entrada", () -> asistenciaRepository.countAsistenciasHoy(),
+				inicioDia, inicioDia.plusDays(1));
+	}
+
+	@Test
+	void asistenciasDelMesUsanIndice() {
+		YearMonth mes = YearMonth.now();
+		LocalDateTime inicioMes = mes.atDay(1).atStartOfDay();
+		assertRangoEnIndice("fecha_hora_entrada",
+				() -> asistenciaRepository.findByMesAndAnio(mes.getMonthValue(), mes.getYear()),
+				inicioMes, inicioMes.plusMonths(1));
+		assertRangoEnIndice("fecha_hora_entrada", () -> asistenciaRepository.countAsistenciasMiembroMesActual(miembro),
+				miembro.getId(), inicioMes, inicioMes.plusMonths(1));
+	}
+
+	@Test
+	void sesionesDelMesUsanIndice() {
+		LocalDate inicioMes = YearMonth.now().atDay(1);
+		assertRangoEnIndice("fecha_completada", () -> sesionCompletadaRepository.countSesionesEsteMes(miembro),
+				miembro.getId(), inicioMes, inicioMes.plusMonths(1));
+		assertRangoEnIndice("fecha_completada", () -> sesionCompletadaRepository.countSesionesMesAnterior(miembro),
+				miembro.getId(), inicioMes.minusMonths(1), inicioMes);
+	}
+
+	// Ejecuta el metodo del repositorio, captura el SQL que Hibernate genero y obtiene su plan
+	// con los mismos parametros, en el orden en que aparecen en la consulta
+	private void assertRangoEnIndice(String columna, Runnable consulta, Object... parametros) {
+		SqlCapturado.iniciar();
+		List<String> capturadas;
+		try {
+			consulta.run();
+		} finally {
+			capturadas = SqlCapturado.detener();
+		}
+		// La primera consulta SELECT; antes puede haber sentencias de flush de la sesion
+		String sql = capturadas.stream().filter(c -> c.trim().toLowerCase().startsWith("select"))
+				.findFirst().orElse(null);
+		assertNotNull(sql, "El repositorio no ejecuto ninguna consulta");
+		List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parametros);
+		String texto = plan.stream().collect(Collectors.joining("\n"));
+		String detalle = "\n" + sql + "\n" + texto;
+
+		// El rango se compara contra la columna tal cual: "(fecha_hora_entrada >= ...)"
+		Pattern comparacion = Pattern.compile("\\((\\w+\\.)?" + columna + " [<>]=? ");
+		assertFalse(texto.contains("Seq Scan"), "La consulta recurre a un Seq Scan:" + detalle);
+		assertTrue(plan.stream().anyMatch(linea -> linea.contains("Index Cond:") && comparacion.matcher(linea).find()),
+				"El rango de " + columna + " no se resuelve en el indice:" + detalle);
+		assertFalse(plan.stream().anyMatch(linea -> linea.contains("Filter:") && linea.contains(columna)),
+				"La consulta filtra " + columna + " fila por fila:" + detalle);
+	}
+
+	/**
+	 * Registra el SQL que Hibernate prepara en el hilo de la prueba mientras la captura esta activa,
+	 * sin incluir las consultas de las tareas programadas que corren en otros hilos.
+	 */
+	public static class SqlCapturado implements StatementInspector {
+
+		private static final ThreadLocal<List<String>> CAPTURADAS = new ThreadLocal<>();
+
+		static void iniciar() {
+			CAPTURADAS.set(new ArrayList<>());
+		}
+
+		static List<String> detener() {
+			List<String> capturadas = CAPTURADAS.get();
+			CAPTURADAS.remove();
+			return capturadas;
+		}
+
+		@Override
+		public String inspect(String sql) {
+			List<String> capturadas = CAPTURADAS.get();
+			if (capturadas != null) {
+				capturadas.add(sql);
+			}
+			return sql;
+		}
+	}
+
+}
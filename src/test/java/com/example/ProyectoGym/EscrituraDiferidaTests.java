@@ -0,0 +1,161 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Services.AsistenciaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica que la escritura diferida por lotes confirma cada entrada una sola vez
+ * cuando muchas peticiones concurrentes caen en los mismos lotes. Incluye la comparacion
+ * de rendimiento contra una transaccion por peticion, que solo corre con mvn test -Pbenchmark.
+ */
+@SpringBootTest(properties = "gym.asistencia.escritura-diferida.habilitada=true")
+class EscrituraDiferidaTests {
+
+	private static final int MIEMBROS = 1000;
+	private static final int ENTRADAS_REPETIDAS = 20;
+	private static final int HILOS = 32;
+
+	@Autowired
+	private AsistenciaService asistenciaService;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Long> miembroIds = new ArrayList<>();
+
+	@BeforeEach
+	void crearMiembros() {
+		MiembrosDePrueba.ESCRITURA_DIFERIDA.crear(miembroRepository, MIEMBROS, "Basico")
+				.forEach(miembro -> miembroIds.add(miembro.getId()));
+	}
+
+	@AfterEach
+	void eliminarMiembros() {
+		borrarAsistencias();
+		miembroRepository.deleteAllById(miembroIds);
+		miembroIds.clear();
+	}
+
+	@Test
+	void entradasConcurrentesSeConfirmanTodas() throws Exception {
+		List<String> resultados = registrarConcurrentemente(miembroIds);
+
+		assertEquals(MIEMBROS, resultados.stream().filter(r -> r.startsWith("SUCCESS")).count());
+		assertEquals(MIEMBROS, contarAbiertas(miembroIds));
+	}
+
+	@Test
+	void entradasRepetidasEnElMismoLoteDejanUnaSolaAsistencia() throws Exception {
+		List<Long> repetidos = miembroIds.subList(0, 10);
+		List<Long> solicitudes = new ArrayList<>();
+		for (int i = 0; i < ENTRADAS_REPETIDAS; i++) {
+			solicitudes.addAll(repetidos);
+		}
+
+		List<String> resultados = registrarConcurrentemente(solicitudes);
+
+		assertEquals(repetidos.size(), resultados.stream().filter(r -> r.startsWith("SUCCESS")).count());
+		assertEquals(solicitudes.size() - repetidos.size(),
+				resultados.stream().filter(r -> r.equals("ERROR: El miembro ya tiene una entrada activa")).count());
+		assertEquals(repetidos.size(), contarAbiertas(repetidos));
+	}
+
+	@Test
+	@Tag("benchmark")
+	void escrituraDiferidaFrenteATransaccionPorPeticion() throws Exception {
+		medir("transaccion por peticion", miembroId -> () -> asistenciaService.registrarEntrada(miembroId));
+		borrarAsistencias();
+		medir("escritura diferida", miembroId -> () -> asistenciaService.registrarEntradaDiferida(miembroId).join());
+	}
+
+	// Registra una entrada por miembro con HILOS hilos e imprime el rendimiento y la latencia p99
+	private void medir(String nombre, Function<Long, Callable<String>> entrada) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Future<Long>> latencias = new ArrayList<>();
+
+		for (Long miembroId : miembroIds) {
+			Callable<String> llamada = entrada.apply(miembroId);
+			latencias.add(executor.submit(() -> {
+				inicio.await();
+				long t0 = System.nanoTime();
+				String resultado = llamada.call();
+				long duracion = System.nanoTime() - t0;
+				return resultado.startsWith("SUCCESS") ? duracion : -1L;
+			}));
+		}
+
+		long t0 = System.nanoTime();
+		inicio.countDown();
+		long[] nanos = new long[latencias.size()];
+		for (int i = 0; i < nanos.length; i++) {
+			nanos[i] = latencias.get(i).get(60, TimeUnit.SECONDS);
+		}
+		double segundos = (System.nanoTime() - t0) / 1e9;
+		executor.shutdown();
+
+		assertEquals(0, Arrays.stream(nanos).filter(n -> n < 0).count());
+		Arrays.sort(nanos);
+		double p99 = nanos[(int) Math.ceil(nanos.length * 0.99) - 1] / 1e6;
+		System.out.printf("%s: %.0f entradas/s, p99 %.2f ms%n", nombre, nanos.length / segundos, p99);
+	}
+
+	private List<String> registrarConcurrentemente(List<Long> solicitudes) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+		CountDownLatch inicio = new CountDownLatch(1);
+		List<Future<String>> futuros = new ArrayList<>();
+		for (Long miembroId : solicitudes) {
+			futuros.add(executor.submit(() -> {
+				inicio.await();
+				return asistenciaService.registrarEntradaDiferida(miembroId).get(30, TimeUnit.SECONDS);
+			}));
+		}
+
+		inicio.countDown();
+		List<String> resultados = new ArrayList<>();
+		for (Future<String> futuro : futuros) {
+			resultados.add(futuro.get(60, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		return resultados;
+	}
+
+	private int contarAbiertas(List<Long> ids) {
+		int abiertas = 0;
+		for (Long id : ids) {
+			abiertas += jdbcTemplate.queryForObject(
+					"SELECT COUNT(*) FROM asistencias WHERE miembro_id = ? AND fecha_hora_salida IS NULL",
+					Integer.class, id);
+		}
+		return abiertas;
+	}
+
+	private void borrarAsistencias() {
+		for (Long id : miembroIds) {
+			jdbcTemplate.update("DELETE FROM asistencias WHERE miembro_id = ?", id);
+		}
+	}
+}
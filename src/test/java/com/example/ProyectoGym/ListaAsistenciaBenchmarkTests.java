@@ -0,0 +1,83 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Dto.FilaAsistenciaMiembro;
+import com.example.ProyectoGym.Services.AsistenciaService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mide la lista de miembros con su estado de asistencia del dia con 10.000 y 50.000 miembros
+ * activos, uno de cada cinco con una visita hoy. Verifica que el tiempo por miembro no crece
+ * con el tamaño de la lista, es decir que el costo es lineal. Solo corre con mvn test -Pbenchmark;
+ * los datos se insertan en la transaccion de la prueba y se revierten al terminar.
+ */
+@SpringBootTest
+@Transactional
+@Tag("benchmark")
+class ListaAsistenciaBenchmarkTests {
+
+	private static final int REPETICIONES = 5;
+
+	// Tolerancia sobre el tiempo por miembro entre 10.000 y 50.000 miembros
+	private static final double CRECIMIENTO_MAXIMO = 2.0;
+
+	@Autowired
+	private AsistenciaService asistenciaService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void listaMiembrosConEstadoEscalaLinealmente() {
+		insertarMiembros(0, 10_000);
+		double porMiembro10k = medir("10.000 miembros");
+
+		insertarMiembros(10_000, 50_000);
+		double porMiembro50k = medir("50.000 miembros");
+
+		assertTrue(porMiembro50k <= porMiembro10k * CRECIMIENTO_MAXIMO,
+				String.format("%.2f us por miembro con 50.000 frente a %.2f us con 10.000", porMiembro50k, porMiembro10k));
+	}
+
+	// Inserta los miembros [desde, hasta) y una visita hoy para uno de cada cinco, cerrada si su ID es par
+	private void insertarMiembros(int desde, int hasta) {
+		jdbcTemplate.update("INSERT INTO miembros (nombre, email, password, dni, plan, activo) " +
+						"SELECT 'Lista ' || g, 'lista' || g || '@test.com', 'clave', ? || lpad(g::text, 6, '0'), " +
+						"'Basico', true FROM generate_series(?, ?) g",
+				MiembrosDePrueba.LISTA_ASISTENCIA.getPrefijoDni(), desde, hasta - 1);
+		jdbcTemplate.update("INSERT INTO asistencias (miembro_id, fecha_hora_entrada, fecha_hora_salida, duracion_minutos) " +
+						"SELECT m.id, current_date + interval '8 hours', " +
+						"CASE WHEN m.id % 2 = 0 THEN current_date + interval '9 hours' END, " +
+						"CASE WHEN m.id % 2 = 0 THEN 60 END " +
+						"FROM miembros m WHERE m.email LIKE 'lista%@test.com' AND m.id % 5 = 0 " +
+						"AND NOT EXISTS (SELECT 1 FROM asistencias a WHERE a.miembro_id = m.id)");
+		jdbcTemplate.execute("ANALYZE miembros");
+		jdbcTemplate.execute("ANALYZE asistencias");
+	}
+
+	// Devuelve la mediana en microsegundos por fila de la lista, despues de una ronda de calentamiento
+	private double medir(String nombre) {
+		List<FilaAsistenciaMiembro> lista = asistenciaService.obtenerListaMiembrosConEstado();
+		long[] nanos = new long[REPETICIONES];
+		for (int i = 0; i < REPETICIONES; i++) {
+			long t0 = System.nanoTime();
+			lista = asistenciaService.obtenerListaMiembrosConEstado();
+			nanos[i] = System.nanoTime() - t0;
+		}
+		Arrays.sort(nanos);
+		double mediana = nanos[REPETICIONES / 2] / 1e3;
+		double porMiembro = mediana / lista.size();
+		System.out.printf("%s: %d filas en %.1f ms, %.2f us por miembro%n",
+				nombre, lista.size(), mediana / 1e3, porMiembro);
+		return porMiembro;
+	}
+}
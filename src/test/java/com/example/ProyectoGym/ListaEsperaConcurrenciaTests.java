@@ -0,0 +1,129 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Model.ClaseSesion;
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Repository.ReservaRepository;
+import com.example.ProyectoGym.Services.ClaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cancelaciones y nuevas solicitudes de lista de espera simultaneas sobre una sesion llena.
+ * Verifica que los cupos liberados se asignan a los primeros de la lista en orden de llegada,
+ * que nadie es promovido dos veces y que los inscritos nunca superan la capacidad.
+ */
+@SpringBootTest
+class ListaEsperaConcurrenciaTests {
+
+	private static final int CAPACIDAD = 10;
+	// Miembros que ya esperan antes de las cancelaciones, en orden de llegada conocido
+	private static final int EN_ESPERA = 30;
+	// Miembros que se unen a la lista mientras se cancelan las reservas
+	private static final int NUEVOS = 30;
+	private static final int HILOS = 32;
+
+	@Autowired
+	private ClaseService claseService;
+
+	@Autowired
+	private ClaseGrupalRepository claseGrupalRepository;
+
+	@Autowired
+	private ClaseSesionRepository claseSesionRepository;
+
+	@Autowired
+	private ReservaRepository reservaRepository;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Miembro> miembros = new ArrayList<>();
+	private ClaseDePrueba clase;
+
+	@BeforeEach
+	void crearClaseYMiembros() {
+		clase = ClaseDePrueba.crear(claseService, claseGrupalRepository, "Spinning lista de espera", "08:00", CAPACIDAD);
+		miembros.addAll(MiembrosDePrueba.LISTA_ESPERA_CONCURRENCIA.crear(miembroRepository,
+				CAPACIDAD + EN_ESPERA + NUEVOS, "Premium"));
+	}
+
+	@AfterEach
+	void eliminarDatos() {
+		clase.eliminar(jdbcTemplate, claseGrupalRepository);
+		miembroRepository.deleteAll(miembros);
+		miembros.clear();
+	}
+
+	@Test
+	void cancelacionesSimultaneasPromuevenEnOrdenSinDuplicados() throws Exception {
+		ClaseSesion sesion = clase.proximaSesion(claseSesionRepository);
+		List<Miembro> titulares = miembros.subList(0, CAPACIDAD);
+		List<Miembro> enEspera = miembros.subList(CAPACIDAD, CAPACIDAD + EN_ESPERA);
+		List<Miembro> nuevos = miembros.subList(CAPACIDAD + EN_ESPERA, miembros.size());
+
+		for (Miembro miembro : titulares) {
+			assertTrue(claseService.reservarSesion(miembro, sesion.getId()).startsWith("SUCCESS"));
+		}
+		for (Miembro miembro : enEspera) {
+			assertTrue(claseService.unirseListaEspera(miembro, sesion.getId()).startsWith("SUCCESS: Estás en la lista"));
+		}
+
+		List<Callable<String>> solicitudes = new ArrayList<>();
+		for (Miembro miembro : titulares) {
+			Long reservaId = reservaRepository.findByMiembroAndEstado(miembro, "ACTIVA").get(0).getId();
+			solicitudes.add(() -> claseService.cancelarReserva(reservaId, miembro));
+		}
+		for (Miembro miembro : nuevos) {
+			solicitudes.add(() -> claseService.unirseListaEspera(miembro, sesion.getId()));
+		}
+		Collections.shuffle(solicitudes);
+
+		List<String> resultados = ClaseDePrueba.ejecutarALaVez(HILOS, solicitudes);
+
+		assertEquals(CAPACIDAD + NUEVOS, resultados.stream().filter(r -> r.startsWith("SUCCESS")).count());
+		assertTrue(claseSesionRepository.findById(sesion.getId()).orElseThrow().getInscritos() <= CAPACIDAD);
+		Integer duplicadas = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM (SELECT miembro_id FROM reserva WHERE sesion_id = ? AND estado = 'ACTIVA' " +
+						"GROUP BY miembro_id HAVING COUNT(*) > 1) d", Integer.class, sesion.getId());
+		assertEquals(0, duplicadas);
+
+		// Los cupos liberados son de los primeros en espera, en el orden en que se unieron
+		List<Long> promovidos = jdbcTemplate.queryForList(
+				"SELECT miembro_id FROM reserva WHERE sesion_id = ? AND estado = 'ACTIVA' ORDER BY id",
+				Long.class, sesion.getId());
+		List<Long> esperados = enEspera.subList(0, CAPACIDAD).stream().map(Miembro::getId).toList();
+		assertEquals(esperados, promovidos);
+		assertEquals(CAPACIDAD, claseSesionRepository.findById(sesion.getId()).orElseThrow().getInscritos());
+
+		// Los que no recibieron cupo siguen en la lista, por delante de los que se unieron despues
+		List<Long> lista = jdbcTemplate.queryForList(
+				"SELECT miembro_id FROM lista_espera WHERE sesion_id = ? ORDER BY posicion", Long.class, sesion.getId());
+		assertEquals(EN_ESPERA - CAPACIDAD + NUEVOS, lista.size());
+		assertEquals(enEspera.subList(CAPACIDAD, EN_ESPERA).stream().map(Miembro::getId).toList(),
+				lista.subList(0, EN_ESPERA - CAPACIDAD));
+		Integer enAmbas = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM lista_espera e JOIN reserva r ON r.miembro_id = e.miembro_id " +
+						"AND r.sesion_id = e.sesion_id AND r.estado = 'ACTIVA' WHERE e.sesion_id = ?",
+				Integer.class, sesion.getId());
+		assertEquals(0, enAmbas);
+	}
+
+}
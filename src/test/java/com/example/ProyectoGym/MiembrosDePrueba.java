@@ -0,0 +1,66 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Miembros generados por las pruebas que usan la base de datos.
+ * El DNI y el email son unicos, por lo que cada clase de prueba usa su propio prefijo:
+ * asi sus miembros no chocan con los de otra clase aunque la limpieza de una ejecucion anterior haya fallado.
+ */
+enum MiembrosDePrueba {
+
+	ASISTENCIA_CONCURRENCIA("91"),
+	ESCRITURA_DIFERIDA("92"),
+	RESERVA_CONCURRENCIA("93"),
+	ADMISION_RESERVAS("94"),
+	CONSULTAS_POR_RANGO("95"),
+	AFORO_CONCURRENCIA("96"),
+	LISTA_ESPERA_CONCURRENCIA("97"),
+	LISTA_ASISTENCIA("98");
+
+	// Dos digitos de prefijo y seis de numero completan los 8 caracteres del DNI
+	private static final int MAXIMO = 1_000_000;
+
+	private final String prefijoDni;
+
+	MiembrosDePrueba(String prefijoDni) {
+		this.prefijoDni = prefijoDni;
+	}
+
+	String getPrefijoDni() {
+		return prefijoDni;
+	}
+
+	String dni(int numero) {
+		if (numero < 0 || numero >= MAXIMO) {
+			throw new IllegalArgumentException("Numero de miembro de prueba fuera de rango: " + numero);
+		}
+		return prefijoDni + String.format("%06d", numero);
+	}
+
+	String email(int numero) {
+		return name().toLowerCase() + numero + "@test.com";
+	}
+
+	/**
+	 * Crea y guarda miembros activos con el plan indicado.
+	 *
+	 * @param miembroRepository Repositorio donde se guardan
+	 * @param cantidad Cantidad de miembros
+	 * @param plan Plan de los miembros ("Basico" o "Premium")
+	 * @return Miembros guardados, en orden de numero
+	 */
+	List<Miembro> crear(MiembroRepository miembroRepository, int cantidad, String plan) {
+		List<Miembro> nuevos = new ArrayList<>(cantidad);
+		for (int i = 0; i < cantidad; i++) {
+			nuevos.add(new Miembro("Prueba " + name() + " " + i, email(i), "clave",
+					dni(i), null, LocalDate.of(1990, 1, 1), plan));
+		}
+		return miembroRepository.saveAll(nuevos);
+	}
+}
@@ -0,0 +1,77 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Model.ClaseSesion;
+import com.example.ProyectoGym.Model.Miembro;
+import com.example.ProyectoGym.Repository.ClaseGrupalRepository;
+import com.example.ProyectoGym.Repository.ClaseSesionRepository;
+import com.example.ProyectoGym.Repository.MiembroRepository;
+import com.example.ProyectoGym.Services.ClaseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ReservaConcurrenciaTests {
+
+	private static final int SOLICITUDES = 500;
+	private static final int CAPACIDAD = 25;
+	private static final int HILOS = 64;
+
+	@Autowired
+	private ClaseService claseService;
+
+	@Autowired
+	private ClaseGrupalRepository claseGrupalRepository;
+
+	@Autowired
+	private ClaseSesionRepository claseSesionRepository;
+
+	@Autowired
+	private MiembroRepository miembroRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<Miembro> miembros = new ArrayList<>();
+	private ClaseDePrueba clase;
+
+	@BeforeEach
+	void crearClaseYMiembros() {
+		clase = ClaseDePrueba.crear(claseService, claseGrupalRepository, "Spinning concurrencia", "07:00", CAPACIDAD);
+		miembros.addAll(MiembrosDePrueba.RESERVA_CONCURRENCIA.crear(miembroRepository, SOLICITUDES, "Premium"));
+	}
+
+	@AfterEach
+	void eliminarDatos() {
+		clase.eliminar(jdbcTemplate, claseGrupalRepository);
+		miembroRepository.deleteAll(miembros);
+		miembros.clear();
+	}
+
+	@Test
+	void reservasSimultaneasNoSuperanLaCapacidad() throws Exception {
+		ClaseSesion sesion = clase.proximaSesion(claseSesionRepository);
+		List<Callable<String>> reservas = new ArrayList<>();
+		for (Miembro miembro : miembros) {
+			reservas.add(() -> claseService.reservarSesion(miembro, sesion.getId()));
+		}
+
+		List<String> resultados = ClaseDePrueba.ejecutarALaVez(HILOS, reservas);
+
+		assertEquals(CAPACIDAD, resultados.stream().filter(r -> r.startsWith("SUCCESS")).count());
+		Integer activas = jdbcTemplate.queryForObject(
+				"SELECT COUNT(*) FROM reserva WHERE sesion_id = ? AND estado = 'ACTIVA'", Integer.class, sesion.getId());
+		assertEquals(CAPACIDAD, activas);
+		assertEquals(CAPACIDAD, claseSesionRepository.findById(sesion.getId()).orElseThrow().getInscritos());
+	}
+
+}
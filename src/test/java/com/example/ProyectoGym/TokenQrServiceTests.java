@@ -0,0 +1,180 @@
+package com.example.ProyectoGym;
+
+import com.example.ProyectoGym.Services.TokenQrService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * La verificacion de tokens QR no usa la base de datos, por lo que estas pruebas
+ * no levantan el contexto de Spring. Usan un reloj controlado para que la expiracion
+ * no dependa de la velocidad de la maquina.
+ */
+class TokenQrServiceTests {
+
+	private static final long VALIDEZ_SEGUNDOS = 60;
+	private static final int TOKENS_POR_HILO = 50_000;
+
+	private final RelojAjustable reloj = new RelojAjustable(Instant.parse("2025-03-10T12:00:00Z"));
+
+	private final TokenQrService tokenQrService = new TokenQrService("secreto-de-prueba", VALIDEZ_SEGUNDOS, 1_000, reloj);
+
+	private LocalDate hoy() {
+		return LocalDate.now(reloj);
+	}
+
+	@Test
+	void aceptaTokenValido() {
+		String token = tokenQrService.emitirToken(7L, hoy().plusMonths(1));
+
+		assertEquals("SUCCESS: 7", tokenQrService.verificarToken(token));
+	}
+
+	@Test
+	void rechazaTokenReutilizado() {
+		String token = tokenQrService.emitirToken(7L, hoy().plusMonths(1));
+
+		assertEquals("SUCCESS: 7", tokenQrService.verificarToken(token));
+		reloj.avanzar(Duration.ofSeconds(VALIDEZ_SEGUNDOS));
+		assertEquals("ERROR: Código QR ya utilizado", tokenQrService.verificarToken(token));
+	}
+
+	@Test
+	void rechazaTokenAlterado() {
+		String token = tokenQrService.emitirToken(7L, hoy().plusMonths(1));
+		String datosAlterados = (token.charAt(0) == 'A' ? 'B' : 'A') + token.substring(1);
+		int punto = token.indexOf('.');
+		String firmaAlterada = token.substring(0, punto + 1) + (token.charAt(punto + 1) == 'A' ? 'B' : 'A')
+				+ token.substring(punto + 2);
+		TokenQrService otroSecreto = new TokenQrService("otro-secreto", VALIDEZ_SEGUNDOS, 1_000, reloj);
+
+		assertEquals("ERROR: Código QR inválido", tokenQrService.verificarToken(datosAlterados));
+		assertEquals("ERROR: Código QR inválido", tokenQrService.verificarToken(firmaAlterada));
+		assertEquals("ERROR: Código QR inválido", otroSecreto.verificarToken(token));
+		assertEquals("ERROR: Código QR inválido", tokenQrService.verificarToken("sin-firma"));
+		assertEquals("ERROR: Código QR inválido", tokenQrService.verificarToken(null));
+	}
+
+	@Test
+	void rechazaTokenExpirado() {
+		String token = tokenQrService.emitirToken(7L, hoy().plusMonths(1));
+
+		reloj.avanzar(Duration.ofSeconds(VALIDEZ_SEGUNDOS + 1));
+		assertEquals("ERROR: Código QR expirado. Genere uno nuevo.", tokenQrService.verificarToken(token));
+	}
+
+	@Test
+	void rechazaMembresiaVencida() {
+		String vencido = tokenQrService.emitirToken(7L, hoy().minusDays(1));
+
+		assertEquals("ERROR: Membresía inactiva o vencida. Debe renovar.", tokenQrService.verificarToken(vencido));
+	}
+
+	@Test
+	void cacheLlenaRechazaHastaQueExpirenLosTokens() {
+		TokenQrService cacheChica = new TokenQrService("secreto-de-prueba", VALIDEZ_SEGUNDOS, 2, reloj);
+		assertEquals("SUCCESS: 1", cacheChica.verificarToken(cacheChica.emitirToken(1L, hoy().plusMonths(1))));
+		assertEquals("SUCCESS: 2", cacheChica.verificarToken(cacheChica.emitirToken(2L, hoy().plusMonths(1))));
+
+		// Con la cache llena de tokens vigentes no se puede descartar ninguno sin arriesgar una repeticion,
+		// pero el token no fue usado: el miembro puede volver a escanearlo cuando haya lugar
+		reloj.avanzar(Duration.ofSeconds(VALIDEZ_SEGUNDOS / 2));
+		String tercero = cacheChica.emitirToken(3L, hoy().plusMonths(1));
+		assertEquals("ERROR: Sistema ocupado, intente nuevamente", cacheChica.verificarToken(tercero));
+
+		reloj.avanzar(Duration.ofSeconds(VALIDEZ_SEGUNDOS / 2 + 1));
+		assertEquals("SUCCESS: 3", cacheChica.verificarToken(tercero));
+	}
+
+	/**
+	 * Mide cuantos tokens por segundo verifica cada nucleo, con un hilo por nucleo disponible.
+	 * No forma parte de la ejecucion normal de pruebas: se ejecuta con mvn test -Pbenchmark.
+	 */
+	@Test
+	@Tag("benchmark")
+	void rendimientoDeVerificacionPorNucleo() throws Exception {
+		int hilos = Runtime.getRuntime().availableProcessors();
+		TokenQrService servicio = new TokenQrService("secreto-de-prueba", VALIDEZ_SEGUNDOS,
+				hilos * TOKENS_POR_HILO, reloj);
+		List<List<String>> tokensPorHilo = new ArrayList<>();
+		for (int h = 0; h < hilos; h++) {
+			List<String> tokens = new ArrayList<>(TOKENS_POR_HILO);
+			for (int i = 0; i < TOKENS_POR_HILO; i++) {
+				tokens.add(servicio.emitirToken((long) i, hoy().plusMonths(1)));
+			}
+			tokensPorHilo.add(tokens);
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(hilos);
+		try {
+			long inicio = System.nanoTime();
+			List<Future<Integer>> resultados = new ArrayList<>();
+			for (List<String> tokens : tokensPorHilo) {
+				resultados.add(executor.submit(() -> {
+					int aceptados = 0;
+					for (String token : tokens) {
+						if (servicio.verificarToken(token).startsWith("SUCCESS")) {
+							aceptados++;
+						}
+					}
+					return aceptados;
+				}));
+			}
+
+			int aceptados = 0;
+			for (Future<Integer> resultado : resultados) {
+				aceptados += resultado.get();
+			}
+			double segundos = (System.nanoTime() - inicio) / 1e9;
+
+			assertEquals(hilos * TOKENS_POR_HILO, aceptados);
+			System.out.printf("Verificacion QR: %d hilos, %.0f tokens/s por nucleo%n",
+					hilos, aceptados / segundos / hilos);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Reloj fijo que la prueba adelanta explicitamente.
+	 */
+	private static class RelojAjustable extends Clock {
+		private Instant ahora;
+
+		RelojAjustable(Instant inicio) {
+			this.ahora = inicio;
+		}
+
+		void avanzar(Duration duracion) {
+			ahora = ahora.plus(duracion);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zona) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return ahora;
+		}
+	}
+}